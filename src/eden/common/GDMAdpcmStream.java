@@ -0,0 +1,429 @@
+package eden.common;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+import javax.sound.sampled.AudioFormat;
+import javax.sound.sampled.AudioInputStream;
+import javax.sound.sampled.AudioSystem;
+import javax.sound.sampled.UnsupportedAudioFileException;
+
+/** The {@code GDMAdpcmStream} class streams an IMA ADPCM WAVE file, which is
+	about a quarter of the size of 16-bit PCM, from a read-only memory mapping
+	of its data chunk.
+	<br><br>
+	Blocks are decoded one at a time on the background thread of the stream as
+	its ring drains, hence neither the file nor its decoded samples are ever
+	held in the heap. Files are made with {@code encode}, without external
+	libraries.
+
+	@version    u0r1, 10/19/2026
+*/
+public class GDMAdpcmStream extends GDMAudioStream {
+
+	// public constants
+
+	/** WAVE format tag for IMA ADPCM */
+	public static final int WAVE_FORMAT_IMA_ADPCM = 0x11;
+
+	/** Bytes per block per channel written by {@code encode} */
+	public static final int BLOCK_SIZE = 1024;
+
+
+	// class constants
+
+	/** Quantizer step sizes */
+	private static final int[] STEPS = {
+		7, 8, 9, 10, 11, 12, 13, 14, 16, 17, 19, 21, 23, 25, 28, 31, 34, 37,
+		41, 45, 50, 55, 60, 66, 73, 80, 88, 97, 107, 118, 130, 143, 157, 173,
+		190, 209, 230, 253, 279, 307, 337, 371, 408, 449, 494, 544, 598, 658,
+		724, 796, 876, 963, 1060, 1166, 1282, 1411, 1552, 1707, 1878, 2066,
+		2272, 2499, 2749, 3024, 3327, 3660, 4026, 4428, 4871, 5358, 5894, 6484,
+		7132, 7845, 8630, 9493, 10442, 11487, 12635, 13899, 15289, 16818,
+		18500, 20350, 22385, 24623, 27086, 29794, 32767
+	};
+
+	/** Step index changes per code */
+	private static final int[] INDICES = {
+		-1, -1, -1, -1, 2, 4, 6, 8, -1, -1, -1, -1, 2, 4, 6, 8
+	};
+
+
+	// instance constants
+
+	/** Mapping of the data chunk */
+	private final MappedByteBuffer data;
+
+	/** Number of channels */
+	private final int channels;
+
+	/** Bytes per block */
+	private final int blockAlign;
+
+	/** Frames per block */
+	private final int samplesPerBlock;
+
+	/** Number of frames */
+	private final long length;
+
+	/** Decoded block, left then right channel */
+	private final short[] blockLeft, blockRight;
+
+
+	// instance variables
+
+	/** Next frame to be decoded */
+	private long position;
+
+	/** Block held decoded, -1 if none */
+	private long block;
+
+	/** Number of frames in the decoded block */
+	private int blockFrames;
+
+
+	// constructors
+
+	/** Constructs a new instance of this class with the default read-ahead
+
+		@param      file
+					IMA ADPCM WAVE file to be streamed
+
+		@throws     IOException
+					If an I/O exception occurs
+
+		@throws     UnsupportedAudioFileException
+					If the file is not an IMA ADPCM WAVE file
+	*/
+	public GDMAdpcmStream(File file) throws
+		IOException,
+		UnsupportedAudioFileException
+	{
+		this(file, GDMWaveStream.Header.read(file), READ_AHEAD);
+	}
+	/** Maps the data chunk described by a parsed header */
+	GDMAdpcmStream(File file, GDMWaveStream.Header header, int readAhead)
+		throws IOException, UnsupportedAudioFileException {
+
+		super(header.rate, readAhead);
+
+		if (header.format != WAVE_FORMAT_IMA_ADPCM || header.bits != 4) {
+			throw new UnsupportedAudioFileException(
+				"Bad format: " + header.format);
+		}
+
+		if (header.channels < 1
+			|| header.blockAlign < header.channels * 8
+			|| header.blockAlign % (header.channels * 4) != 0) {
+			throw new UnsupportedAudioFileException(
+				"Bad block size: " + header.blockAlign);
+		}
+		this.channels = header.channels;
+		this.blockAlign = header.blockAlign;
+		this.samplesPerBlock = getSamplesPerBlock(blockAlign, channels);
+		long size = header.dataSize;
+		long blocks = size / blockAlign;
+		this.length = header.factLength >= 0 ? Math.min(header.factLength,
+			(blocks + 1) * samplesPerBlock) : blocks * samplesPerBlock;
+		this.blockLeft = new short[samplesPerBlock];
+		this.blockRight = new short[samplesPerBlock];
+		this.block = -1;
+
+		try (FileChannel channel
+			= FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+			this.data = channel.map(FileChannel.MapMode.READ_ONLY,
+				header.dataOffset, size);
+		}
+	}
+
+
+	// methods
+
+	/** Encodes audio as an IMA ADPCM WAVE file of {@code BLOCK_SIZE} bytes per
+		block per channel. The stream is converted to 16-bit PCM first
+
+		@param      stream
+					Mono or stereo audio to be encoded, which is read to its
+					end but not closed
+
+		@param      file
+					WAVE file to be written
+
+		@return     Number of frames encoded
+
+		@throws     IOException
+					If an I/O exception occurs
+
+		@throws     IllegalArgumentException
+					If the stream can not be converted to 16-bit PCM, or has
+					more than two channels
+	*/
+	public static long encode(AudioInputStream stream, File file) throws
+		IOException,
+		IllegalArgumentException
+	{
+		AudioFormat source = stream.getFormat();
+		int channels = source.getChannels();
+
+		if (channels < 1 || channels > 2) {
+			throw new IllegalArgumentException("Bad channels: " + channels);
+		}
+		AudioInputStream pcm = AudioSystem.getAudioInputStream(
+			new AudioFormat(source.getSampleRate(), 16, channels, true, false),
+			stream);
+		int blockAlign = BLOCK_SIZE * channels;
+		int frames = getSamplesPerBlock(blockAlign, channels);
+		int rate = (int) source.getSampleRate();
+		byte[] in = new byte[frames * channels * 2];
+		short[][] samples = new short[channels][frames];
+		int[] indices = new int[channels];
+		ByteBuffer out = ByteBuffer.allocate(blockAlign)
+			.order(ByteOrder.LITTLE_ENDIAN);
+		long length = 0;
+
+		try (FileChannel channel = FileChannel.open(file.toPath(),
+			StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+			StandardOpenOption.TRUNCATE_EXISTING)) {
+			channel.position(60);
+
+			while (true) {
+				int read = 0, count;
+
+				while (read < in.length
+					&& (count = pcm.read(in, read, in.length - read)) > 0) {
+					read += count;
+				}
+				int n = read / (channels * 2);
+
+				if (n == 0) {
+					break;
+				}
+
+				// deinterleave, holding the last sample through the block
+				for (int f = 0; f < frames; f++) {
+
+					for (int c = 0; c < channels; c++) {
+						int i = (Math.min(f, n - 1) * channels + c) * 2;
+						samples[c][f]
+							= (short) ((in[i] & 0xff) | (in[i + 1] << 8));
+					}
+				}
+				out.clear();
+				encodeBlock(samples, indices, out);
+				out.flip();
+
+				while (out.hasRemaining()) {
+					channel.write(out);
+				}
+				length += n;
+
+				if (n < frames) {
+					break;
+				}
+			}
+			long size = channel.position() - 60;
+			ByteBuffer header = ByteBuffer.allocate(60)
+				.order(ByteOrder.LITTLE_ENDIAN);
+
+			// "RIFF", "WAVE", "fmt ", "fact", "data"
+			header.putInt(0x46464952).putInt((int) (size + 52))
+				.putInt(0x45564157).putInt(0x20746d66).putInt(20)
+				.putShort((short) WAVE_FORMAT_IMA_ADPCM)
+				.putShort((short) channels).putInt(rate)
+				.putInt((int) ((long) rate * blockAlign / frames))
+				.putShort((short) blockAlign).putShort((short) 4)
+				.putShort((short) 2).putShort((short) frames)
+				.putInt(0x74636166).putInt(4).putInt((int) length)
+				.putInt(0x61746164).putInt((int) size);
+			header.flip();
+
+			while (header.hasRemaining()) {
+				channel.write(header, header.position());
+			}
+		}
+		return length;
+	}
+
+
+	// overridden methods
+
+	@Override
+	public long getLength() {
+		return length;
+	}
+
+	// added in r1
+	@Override
+	protected double getFrameBytes() {
+		return (double) blockAlign / samplesPerBlock;
+	}
+
+	@Override
+	protected void seek(long frame) {
+		position = Math.max(0, Math.min(frame, length));
+	}
+
+	@Override
+	protected int decode(short[] left, short[] right, int frames) {
+		int out = 0;
+
+		while (out < frames && position < length) {
+			long b = position / samplesPerBlock;
+			int offset = (int) (position % samplesPerBlock);
+
+			if (b != block) {
+				blockFrames = decodeBlock(b);
+				block = b;
+			}
+
+			// truncated block
+			if (offset >= blockFrames) {
+				break;
+			}
+			int n = (int) Math.min(Math.min(frames - out,
+				blockFrames - offset), length - position);
+			System.arraycopy(blockLeft, offset, left, out, n);
+			System.arraycopy(blockRight, offset, right, out, n);
+			out += n;
+			position += n;
+		}
+		return out;
+	}
+
+	@Override
+	protected void release() {
+		// the mapping is unmapped once collected
+	}
+
+
+	// helper methods
+
+	/** Returns the number of frames in a block of a given size */
+	private static int getSamplesPerBlock(int blockAlign, int channels) {
+		return (blockAlign - channels * 4) / (channels * 4) * 8 + 1;
+	}
+
+	/** Decodes a block into {@code blockLeft} and {@code blockRight}. Channels
+		past the second are ignored
+
+		@return     Number of frames decoded
+	*/
+	private int decodeBlock(long b) {
+		long start = b * blockAlign;
+
+		if (start + channels * 4 > data.capacity()) {
+			return 0;
+		}
+		int offset = (int) start;
+		int bytes = (int) Math.min(blockAlign, data.capacity() - start);
+		int frames = Math.min(samplesPerBlock,
+			(bytes - channels * 4) / (channels * 4) * 8 + 1);
+
+		for (int c = 0; c < Math.min(channels, 2); c++) {
+			short[] out = c == 0 ? blockLeft : blockRight;
+			int h = offset + c * 4;
+			int predictor = (short) ((data.get(h) & 0xff)
+				| (data.get(h + 1) << 8));
+			int index = Math.min(88, data.get(h + 2) & 0xff);
+			out[0] = (short) predictor;
+
+			// words of 8 codes, interleaved by channel
+			for (int i = 1, p = offset + (channels + c) * 4; i < frames;
+				p += channels * 4) {
+
+				for (int k = 0; k < 8 && i < frames; k++, i++) {
+					int code = (data.get(p + k / 2) >> ((k & 1) * 4)) & 0xf;
+					int step = STEPS[index];
+					int delta = step >> 3;
+
+					if ((code & 4) != 0) {
+						delta += step;
+					}
+
+					if ((code & 2) != 0) {
+						delta += step >> 1;
+					}
+
+					if ((code & 1) != 0) {
+						delta += step >> 2;
+					}
+					predictor += (code & 8) != 0 ? -delta : delta;
+					predictor = Math.max(-32768, Math.min(32767, predictor));
+					index = Math.max(0, Math.min(88, index + INDICES[code]));
+					out[i] = (short) predictor;
+				}
+			}
+		}
+
+		if (channels == 1) {
+			System.arraycopy(blockLeft, 0, blockRight, 0, frames);
+		}
+		return frames;
+	}
+
+	/** Encodes a block of samples per channel, carrying step indices over
+		from the previous block */
+	private static void encodeBlock(short[][] samples, int[] indices,
+		ByteBuffer out) {
+
+		int channels = samples.length;
+		int frames = samples[0].length;
+		byte[][] codes = new byte[channels][frames];
+
+		for (int c = 0; c < channels; c++) {
+			int predictor = samples[c][0];
+			int index = indices[c];
+			out.putShort((short) predictor).put((byte) index).put((byte) 0);
+
+			for (int i = 1; i < frames; i++) {
+				int step = STEPS[index];
+				int diff = samples[c][i] - predictor;
+				int code = 0;
+
+				if (diff < 0) {
+					code = 8;
+					diff = -diff;
+				}
+				int delta = step >> 3;
+
+				if (diff >= step) {
+					code |= 4;
+					diff -= step;
+					delta += step;
+				}
+
+				if (diff >= step >> 1) {
+					code |= 2;
+					diff -= step >> 1;
+					delta += step >> 1;
+				}
+
+				if (diff >= step >> 2) {
+					code |= 1;
+					delta += step >> 2;
+				}
+				predictor += (code & 8) != 0 ? -delta : delta;
+				predictor = Math.max(-32768, Math.min(32767, predictor));
+				index = Math.max(0, Math.min(88, index + INDICES[code]));
+				codes[c][i] = (byte) code;
+			}
+			indices[c] = index;
+		}
+
+		// words of 8 codes, interleaved by channel
+		for (int i = 1; i < frames; i += 8) {
+
+			for (int c = 0; c < channels; c++) {
+
+				for (int k = 0; k < 8; k += 2) {
+					out.put((byte) (codes[c][i + k]
+						| (codes[c][i + k + 1] << 4)));
+				}
+			}
+		}
+	}
+}
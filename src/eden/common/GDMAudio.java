@@ -3,9 +3,7 @@ package eden.common;
 import java.io.IOException;
 import javax.sound.sampled.AudioFormat;
 import javax.sound.sampled.AudioInputStream;
-import javax.sound.sampled.AudioSystem;
 import javax.sound.sampled.LineUnavailableException;
-import javax.sound.sampled.SourceDataLine;
 
 /** The {@code GDMAudio} class eliminates the boilerplate required to play an
 	{@code AudioInputStream} while providing a handful of relevant features.
@@ -19,15 +17,21 @@ import javax.sound.sampled.SourceDataLine;
 	In the event of an {@code IOException}, the instance will be marked as
 	{@code broken}, hence disallowing relavant activites. A broken instance must
 	still be closed.
+	<br><br>
+	The period and buffer size of the line may be chosen upon construction,
+	trading processing for responsiveness. The line measures its own latency.
+	<br><br>
+	Exceptions caught and bytes played may be counted into a
+	{@code GDMAudioMetrics}.
 
 	@author     Brendon
-	@version    u0r1, 09/04/2017
+	@version    u0r3, 10/19/2026
 */
 public class GDMAudio implements Runnable {
 
 	// public constants
 
-	/** Amount of audio data to be buffered in bytes */
+	/** Default amount of audio data written at once in bytes */
 	public static final int BUFFER_SIZE = 4096;
 
 
@@ -46,8 +50,9 @@ public class GDMAudio implements Runnable {
 	/** Temporary medium for data interchange */
 	private final byte[] buffer;
 
+	// changed on r2
 	/** Data line to write audio data to */
-	private final SourceDataLine line;
+	private final GDMOutputLine line;
 
 
 	// instance variables
@@ -76,6 +81,10 @@ public class GDMAudio implements Runnable {
 	private boolean broken;
 	// } added on r1
 
+	// added on r3
+	/** Metrics to count into, {@code null} if none */
+	private volatile GDMAudioMetrics metrics;
+
 
 	// constructors
 
@@ -120,13 +129,43 @@ public class GDMAudio implements Runnable {
 	public GDMAudio(String name, AudioInputStream stream, AudioFormat format)
 		throws LineUnavailableException, IOException {
 
-		// name, elapsed, total, broken, format, buffer
+		this(name, stream, format,
+			BUFFER_SIZE / Math.max(1, format.getFrameSize()), 0);
+	}
+	// added on r2
+	/** Constructs a new instance of this class with a given name, format,
+		stream, period and buffer size
+
+		@param      name
+					Name of this audio resource
+
+		@param      stream
+					Audio resource to be read from upon playback
+
+		@param      format
+					{@code AudioFormat} defining audio parameters
+
+		@param      period
+					Amount of audio data written at once in frames
+
+		@param      buffer
+					Line buffer size in frames, 0 for the default of the line
+
+		@throws     LineUnavailableException
+					If a line can not be opened because it is unavailable
+
+		@throws     IOException
+					If an input or output error occurs
+	*/
+	public GDMAudio(String name, AudioInputStream stream, AudioFormat format,
+		int period, int buffer) throws LineUnavailableException, IOException {
+
+		// name, elapsed, total, broken, format
 		this.name = name;
 		this.elapsed = 0;
 		this.total = stream.available();
 		this.broken = false;
 		this.format = format;
-		this.buffer = new byte[BUFFER_SIZE];
 
 		// stream
 		if (stream.markSupported()) {
@@ -134,9 +173,9 @@ public class GDMAudio implements Runnable {
 		}
 		this.stream = stream;
 
-		// line
-		this.line = AudioSystem.getSourceDataLine(format);
-		line.open();
+		// line, buffer
+		this.line = new GDMOutputLine(format, period, buffer);
+		this.buffer = new byte[line.getPeriodBytes()];
 	}
 
 
@@ -169,6 +208,10 @@ public class GDMAudio implements Runnable {
 						}
 						line.write(buffer, 0, bytes);
 						elapsed += bytes;
+
+						if (metrics != null) {
+							metrics.addStreamed(bytes);
+						}
 					}
 
 				// more expensive
@@ -184,11 +227,13 @@ public class GDMAudio implements Runnable {
 
 				System.err.println("[GDMAudio]\n  "
 					+ name + " caught IOException: " + e.toString());
+				addError();
 
 			} catch (Exception e) {
 
 				System.err.println("[GDMAudio]\n  "
 					+ name + " caught exception: " + e.toString());
+				addError();
 			}
 		}
 	}
@@ -200,6 +245,16 @@ public class GDMAudio implements Runnable {
 		this.running = false;
 	}
 
+	// added on r3
+	/** Sets the metrics to count exceptions and bytes played into
+
+		@param      metrics
+					Metrics, {@code null} for none
+	*/
+	void setMetrics(GDMAudioMetrics metrics) {
+		this.metrics = metrics;
+	}
+
 	/** Resets playback marker to its starting point
 
 		@return     {@code false} if the operation was unsuccessful, in which
@@ -222,6 +277,7 @@ public class GDMAudio implements Runnable {
 
 				System.err.println("[GDMAudio]\n  "
 					+ name + " caught IOException: " + e.toString());
+				addError();
 
 				return false;
 			} catch (Exception e) {
@@ -260,6 +316,7 @@ public class GDMAudio implements Runnable {
 
 				System.err.println("[GDMAudio]\n  "
 					+ name + " caught IOException: " + e.toString());
+				addError();
 
 				return false;
 			} catch (Exception e) {
@@ -341,4 +398,26 @@ public class GDMAudio implements Runnable {
 		return name;
 	}
 	// } added on r1
+
+	// added on r2
+	/** Returns the line of this {@code GDMAudio}, which reports its latency,
+		fill level and underruns
+
+		@return     output line
+	*/
+	public GDMOutputLine getLine() {
+		return line;
+	}
+
+
+	// helper methods
+
+	/** Counts an exception caught into the metrics, if any */
+	private void addError() {
+		GDMAudioMetrics m = metrics;
+
+		if (m != null) {
+			m.addError();
+		}
+	}
 }
@@ -0,0 +1,244 @@
+package eden.common;
+
+import java.io.BufferedInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URL;
+import java.util.concurrent.ConcurrentHashMap;
+import javax.sound.sampled.AudioFormat;
+import javax.sound.sampled.AudioInputStream;
+import javax.sound.sampled.AudioSystem;
+import javax.sound.sampled.UnsupportedAudioFileException;
+
+/** The {@code GDMAudioCache} class decodes short audio clips once and keeps
+	them in memory as read-only PCM arrays, to be shared by any number of
+	voices.
+	<br><br>
+	Clips are converted to the output format at load time: samples of any PCM
+	bit depth, sign and byte order are scaled to 16 bits, channels are mapped
+	onto stereo, and the sample rate is converted by linear interpolation.
+	Non-PCM encodings are first decoded by {@code AudioSystem}. Loading the
+	same file or URL again returns the same array without reading it.
+
+	@version    u0r0, 10/19/2026
+*/
+public class GDMAudioCache {
+
+	// instance constants
+
+	/** Output sample rate */
+	private final float rate;
+
+	/** Decoded clips by their canonical file path or URL */
+	private final ConcurrentHashMap<String, short[]> clips;
+
+
+	// constructors
+
+	/** Constructs a new instance of this class converting to a given output
+		sample rate. The output is always 16-bit interleaved stereo
+
+		@param      rate
+					Output sample rate in Hz
+	*/
+	public GDMAudioCache(float rate) {
+		this.rate = rate;
+		this.clips = new ConcurrentHashMap<>();
+	}
+
+
+	// methods
+
+	/** Returns the decoded clip of a file, decoding it if not yet cached
+
+		@param      file
+					File to be loaded
+
+		@return     Interleaved stereo 16-bit samples. Not to be modified
+
+		@throws     IOException
+					If an I/O exception occurs
+
+		@throws     UnsupportedAudioFileException
+					If the file does not contain valid data of a recognized
+					file type and format
+	*/
+	public short[] get(File file) throws
+		IOException,
+		UnsupportedAudioFileException
+	{
+		String key = file.getCanonicalPath();
+		short[] out = clips.get(key);
+
+		if (out == null) {
+			out = decode(AudioSystem.getAudioInputStream(file));
+			short[] previous = clips.putIfAbsent(key, out);
+			out = previous == null ? out : previous;
+		}
+		return out;
+	}
+	/** Returns the decoded clip of a URL, decoding it if not yet cached
+
+		@param      url
+					URL to audio resource to be loaded
+
+		@return     Interleaved stereo 16-bit samples. Not to be modified
+
+		@throws     IOException
+					If an I/O exception occurs
+
+		@throws     UnsupportedAudioFileException
+					If the audio resource does not contain valid data of a
+					recognized file type and format
+	*/
+	public short[] get(URL url) throws
+		IOException,
+		UnsupportedAudioFileException
+	{
+		String key = url.toExternalForm();
+		short[] out = clips.get(key);
+
+		if (out == null) {
+			out = decode(AudioSystem.getAudioInputStream(
+				new BufferedInputStream(url.openStream())));
+			short[] previous = clips.putIfAbsent(key, out);
+			out = previous == null ? out : previous;
+		}
+		return out;
+	}
+
+	/** Removes every cached clip. Arrays already handed out remain valid */
+	public void clear() {
+		clips.clear();
+	}
+
+	/** Returns the number of cached clips
+		@return     clip count
+	*/
+	public int size() {
+		return clips.size();
+	}
+
+	/** Decodes an audio stream into the output format without caching it.
+		The stream is closed afterwards
+
+		@param      stream
+					Audio resource to be decoded
+
+		@return     Interleaved stereo 16-bit samples
+
+		@throws     IOException
+					If an I/O exception occurs
+
+		@throws     UnsupportedAudioFileException
+					If the stream can not be decoded to PCM
+	*/
+	public short[] decode(AudioInputStream stream) throws
+		IOException,
+		UnsupportedAudioFileException
+	{
+		AudioFormat format = stream.getFormat();
+
+		AudioFormat.Encoding encoding = format.getEncoding();
+
+		if (!AudioFormat.Encoding.PCM_SIGNED.equals(encoding)
+			&& !AudioFormat.Encoding.PCM_UNSIGNED.equals(encoding)) {
+			AudioFormat pcm = new AudioFormat(format.getSampleRate(), 16,
+				format.getChannels(), true, false);
+
+			if (!AudioSystem.isConversionSupported(pcm, format)) {
+				stream.close();
+				throw new UnsupportedAudioFileException(
+					"Bad encoding: " + format.getEncoding());
+			}
+			stream = AudioSystem.getAudioInputStream(pcm, stream);
+			format = pcm;
+		}
+		byte[] data = readAll(stream);
+		int channels = format.getChannels();
+		int size = format.getSampleSizeInBits() / 8;
+		int frames = data.length / (size * channels);
+
+		// to 16-bit stereo at the source rate
+		short[] left = new short[frames];
+		short[] right = new short[frames];
+		boolean signed
+			= AudioFormat.Encoding.PCM_SIGNED.equals(format.getEncoding());
+		boolean bigEndian = format.isBigEndian();
+
+		for (int f = 0, i = 0; f < frames; f++) {
+			left[f] = toShort(data, i, size, signed, bigEndian);
+			right[f] = channels > 1
+				? toShort(data, i + size, size, signed, bigEndian) : left[f];
+			i += size * channels;
+		}
+		return resample(left, right, format.getSampleRate());
+	}
+
+
+	// helper methods
+
+	/** Reads a stream to its end, then closes it */
+	private static byte[] readAll(InputStream stream) throws IOException {
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		byte[] buffer = new byte[GDMAudio.BUFFER_SIZE];
+		int bytes;
+
+		while ((bytes = stream.read(buffer)) > 0) {
+			out.write(buffer, 0, bytes);
+		}
+		stream.close();
+		return out.toByteArray();
+	}
+
+	/** Reads a sample of any size as its 16 most significant bits */
+	private static short toShort(byte[] data, int offset, int size,
+		boolean signed, boolean bigEndian) {
+
+		int msb = bigEndian ? offset : offset + size - 1;
+		int value = data[msb];
+
+		if (size > 1) {
+			int next = bigEndian ? msb + 1 : msb - 1;
+			value = (value << 8) | (data[next] & 0xff);
+		} else {
+			value <<= 8;
+		}
+
+		if (!signed) {
+			value ^= 0x8000;
+		}
+		return (short) value;
+	}
+
+	/** Interleaves two channels, converting their sample rate by linear
+		interpolation */
+	private short[] resample(short[] left, short[] right, float source) {
+
+		if (source == rate || left.length < 2) {
+			short[] out = new short[left.length * 2];
+
+			for (int f = 0; f < left.length; f++) {
+				out[f * 2] = left[f];
+				out[f * 2 + 1] = right[f];
+			}
+			return out;
+		}
+		double step = source / rate;
+		int frames = (int) ((left.length - 1) / step) + 1;
+		short[] out = new short[frames * 2];
+
+		for (int f = 0; f < frames; f++) {
+			double position = f * step;
+			int i = (int) position;
+			int j = Math.min(i + 1, left.length - 1);
+			double t = position - i;
+			out[f * 2] = (short) Math.round(left[i] + (left[j] - left[i]) * t);
+			out[f * 2 + 1]
+				= (short) Math.round(right[i] + (right[j] - right[i]) * t);
+		}
+		return out;
+	}
+}
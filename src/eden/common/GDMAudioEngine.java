@@ -17,6 +17,8 @@ import javax.sound.sampled.AudioSystem;
 import javax.sound.sampled.LineUnavailableException;
 import javax.sound.sampled.UnsupportedAudioFileException;
 
+import eden.common.io.EventLog;
+
 /** The {@code GDMAudioEngine} class is a simple audio engine that provides the
 	ability to play multiple sampled audio simultaneously with ease.
 	<br><br>
@@ -30,12 +32,51 @@ import javax.sound.sampled.UnsupportedAudioFileException;
 	<br><br>
 	For mutual conclusions, it is suggested to invoke the {@code unloadAll}
 	method before program shutdown.
+	<br><br>
+	In mixer mode, every channel is decoded into memory at load time and
+	played through a single {@code GDMAudioMixer}, hence a channel may be
+	played again while it is still playing. Files and URLs are decoded through
+	a {@code GDMAudioCache}, so loading one twice shares its samples. WAVE
+	files of at least {@code STREAM_SIZE} bytes are streamed from a memory
+	mapping instead, through a {@code GDMWaveStream}, as are IMA ADPCM files
+	of any size, through a {@code GDMAdpcmStream}. Voices are allocated by
+	a {@code GDMVoiceManager}, with a priority and an instance limit per
+	channel.
+	<br><br>
+	The period and buffer size of lines opened afterwards may be set with
+	{@code setLineSizes}, trading processing for responsiveness.
+	<br><br>
+	In mixer mode, streamed channels may be played as music with
+	{@code playMusic}, which loops them gaplessly and crossfades between them
+	through a {@code GDMMusicPlayer}.
+	<br><br>
+	In mixer mode, output goes to a sound card, or to a {@code GDMAudioSink}
+	given with {@code setSink}. Without a sound card, a real-time
+	{@code GDMNullSink} stands in, hence loading and playback still succeed.
+	<br><br>
+	In mixer mode, channels may be played panned and low-pass filtered, and a
+	master {@code GDMEffect} applied to the mixed output.
+	<br><br>
+	In mixer mode, channels may also be played at a rate of their own, which
+	varies their pitch, and {@code setRate} slows down or speeds up every
+	channel but the streamed ones, as for slow motion.
+	<br><br>
+	Playback is instrumented by a {@code GDMAudioMetrics}, from
+	{@code getMetrics}, to diagnose stutter. Voice and underrun events of the
+	mixer may also be recorded into an {@code EventLog}.
 
 	@author     Brendon
-	@version    u0r2, 09/04/2017
+	@version    u0r14, 10/19/2026
 */
 public class GDMAudioEngine {
 
+	// added in r5
+	// public constants
+
+	/** Size in bytes from which files are streamed in mixer mode */
+	public static final long STREAM_SIZE = 1 << 20;
+
+
 	// instance constants
 
 	/** An array of audio resources as channels */
@@ -48,6 +89,63 @@ public class GDMAudioEngine {
 	/** Threads to play audio on */
 	private final ThreadPoolExecutor pool;
 
+	// added in r3 {
+	/** Whether channels are played through a mixer */
+	private final boolean mixed;
+
+	/** Channel names in mixer mode */
+	private final String[] names;
+
+	/** Mixer sample numbers per channel in mixer mode */
+	private final int[] samples;
+
+	// added in r4
+	/** Decoded samples shared between channels in mixer mode */
+	private final GDMAudioCache cache;
+
+	// added in r6
+	/** Allocator of mixer voices, {@code null} if not in mixer mode */
+	private final GDMVoiceManager voices;
+
+	// added in r13
+	/** Metrics counted into by channels if not in mixer mode */
+	private final GDMAudioMetrics metrics = new GDMAudioMetrics();
+
+
+	// instance variables
+
+	/** Mixer onto which channels are played, opened upon first load */
+	private GDMAudioMixer mixer;
+	// } added in r3
+
+	// added in r7 {
+	/** Period of lines to be opened in frames, 0 for the default */
+	private int period;
+
+	/** Buffer size of lines to be opened in frames, 0 for the default */
+	private int buffer;
+	// } added in r7
+
+	// added in r8
+	/** Player of looping tracks, made upon first use in mixer mode */
+	private GDMMusicPlayer music;
+
+	// added in r9
+	/** Sink of the mixer, {@code null} for a line opened upon first load */
+	private GDMAudioSink sink;
+
+	// added in r11
+	/** Stage applied to the mixed output, {@code null} if none */
+	private GDMEffect master;
+
+	// added in r12
+	/** Rate applied to every non-streamed channel in mixer mode */
+	private float rate = 1f;
+
+	// added in r14
+	/** Log the mixer records events into, {@code null} if none */
+	private EventLog events;
+
 
 	// constructors
 
@@ -58,6 +156,41 @@ public class GDMAudioEngine {
 					Number of audio channels to be made available
 	*/
 	public GDMAudioEngine(int channels) {
+		this(channels, false);
+	}
+	// added in r3
+	/** Constructs an instance of this class with a given number of channels,
+		optionally in mixer mode
+
+		@param      channels
+					Number of audio channels to be made available
+
+		@param      mixed
+					Whether channels are to be played through a single mixer
+	*/
+	public GDMAudioEngine(int channels, boolean mixed) {
+		this(channels, mixed ? new GDMVoiceManager(GDMAudioMixer.VOICES,
+			GDMVoiceManager.Policy.OLDEST) : null);
+	}
+	// added in r6
+	/** Constructs an instance of this class with a given number of channels in
+		mixer mode, if a voice manager is given
+
+		@param      channels
+					Number of audio channels to be made available
+
+		@param      voices
+					Allocator of mixer voices, {@code null} to play every
+					channel on a line of its own
+	*/
+	public GDMAudioEngine(int channels, GDMVoiceManager voices) {
+
+		// mixer
+		this.mixed = voices != null;
+		this.voices = voices;
+		this.names = new String[channels];
+		this.samples = new int[channels];
+		this.cache = new GDMAudioCache(GDMAudioMixer.FORMAT.getSampleRate());
 
 		// channels
 		this.channels = new GDMAudio[channels];
@@ -136,6 +269,30 @@ public class GDMAudioEngine {
 		IllegalStateException,
 		LineUnavailableException
 	{
+		// added in r4
+		if (mixed) {
+			String n = (name.length > 0) && (name[0] != null)
+				? name[0] : file.getName();
+
+			// added in r5
+			if (file.length() >= STREAM_SIZE) {
+
+				try {
+					return makeMixerChannel(null, GDMWaveStream.open(file), n);
+				} catch (UnsupportedAudioFileException e) {
+					// not a PCM WAVE file, decode it instead
+				}
+			}
+
+			try {
+				return makeMixerChannel(cache.get(file), null, n);
+			} catch (UnsupportedAudioFileException e) {
+
+				// added in r10: formats the system can not decode
+				return makeMixerChannel(null, GDMWaveStream.open(file), n);
+			}
+		}
+
 		if ((name.length > 0) && (name[0] != null)) {
 
 			return makeChannel(AudioSystem.getAudioInputStream(
@@ -175,6 +332,12 @@ public class GDMAudioEngine {
 		IllegalStateException,
 		LineUnavailableException
 	{
+		// added in r4
+		if (mixed) {
+			return makeMixerChannel(cache.get(url), null, (name.length > 0)
+				&& (name[0] != null) ? name[0] : url.getFile());
+		}
+
 		if ((name.length > 0) && (name[0] != null)) {
 
 			return makeChannel(AudioSystem.getAudioInputStream(
@@ -185,6 +348,45 @@ public class GDMAudioEngine {
 				new BufferedInputStream(url.openStream())),
 			AudioSystem.getAudioFileFormat(url).getFormat());
 	}
+	// added in r8
+	/** Loads a PCM or IMA ADPCM WAVE file to be streamed in mixer mode
+		regardless of its size, as needed by {@code playMusic}. Otherwise, this
+		method is equivalent to {@code load}
+
+		@param      filepath
+					Path to file to be loaded
+
+		@param      name
+					Optional name describing this audio resource
+
+		@return     Channel number to which this audio resource is mapped
+
+		@throws     IOException
+					If an I/O exception occurs
+
+		@throws     UnsupportedAudioFileException
+					If the audio resource does not contain valid data of a
+					recognized file type and format
+
+		@throws     IllegalStateException
+					If there are no free channels available for use
+
+		@throws     LineUnavailableException
+					If a line can not be opened because it is unavailable
+	*/
+	public int loadStream(String filepath, String... name) throws
+		IOException,
+		UnsupportedAudioFileException,
+		IllegalStateException,
+		LineUnavailableException
+	{
+		if (!mixed) {
+			return load(filepath, name);
+		}
+		File file = new File(filepath);
+		return makeMixerChannel(null, GDMWaveStream.open(file),
+			(name.length > 0) && (name[0] != null) ? name[0] : file.getName());
+	}
 	/** Loads audio data from an {@code InputStream}. This allows for continuous
 		playback as long as the {@code InputStream} is open and/or has data
 
@@ -259,6 +461,10 @@ public class GDMAudioEngine {
 			throw new IllegalArgumentException("Bad channel: " + channel);
 		}
 
+		if (mixed) {
+			return mixer.play(samples[channel], 1f);
+		}
+
 		if (channels[channel].isFree()) {
 			futures[channel] = pool.submit(channels[channel]);
 			return true;
@@ -266,6 +472,73 @@ public class GDMAudioEngine {
 		return false;
 	}
 
+	// added in r11
+	/** Calls an audio channel for playback, panned and low-pass filtered in
+		mixer mode. Otherwise, this method is equivalent to {@code play}
+
+		@param      channel
+					Channel number to be called
+
+		@param      gain
+					Linear gain
+
+		@param      pan
+					Position from -1 (left) to 1 (right)
+
+		@param      cutoff
+					Low-pass cutoff frequency in Hz, 0 for none
+
+		@return     {@code false} if the operation was not commenced;
+					{@code true} otherwise
+
+		@throws     IllegalArgumentException
+					If the channel number is invalid
+	*/
+	public boolean play(int channel, float gain, float pan, float cutoff) throws
+		IllegalArgumentException
+	{
+		return play(channel, gain, pan, cutoff, 1f);
+	}
+	// added in r12
+	/** Calls an audio channel for playback at a given rate, panned and
+		low-pass filtered in mixer mode. Otherwise, this method is equivalent
+		to {@code play}
+
+		@param      channel
+					Channel number to be called
+
+		@param      gain
+					Linear gain
+
+		@param      pan
+					Position from -1 (left) to 1 (right)
+
+		@param      cutoff
+					Low-pass cutoff frequency in Hz, 0 for none
+
+		@param      rate
+					Playback rate, 1 for the original pitch. Ignored for
+					streamed channels
+
+		@return     {@code false} if the operation was not commenced;
+					{@code true} otherwise
+
+		@throws     IllegalArgumentException
+					If the channel number is invalid
+	*/
+	public boolean play(int channel, float gain, float pan, float cutoff,
+		float rate) throws IllegalArgumentException
+	{
+		if (!isValidChannel(channel)) {
+			throw new IllegalArgumentException("Bad channel: " + channel);
+		}
+
+		if (mixed) {
+			return mixer.play(samples[channel], gain, pan, cutoff, rate);
+		}
+		return play(channel);
+	}
+
 	/** Calls an audio channel for playback on the current thread. If the
 		specified channel is busy, this method does nothing
 
@@ -299,6 +572,11 @@ public class GDMAudioEngine {
 			throw new IllegalArgumentException("Bad channel: " + channel);
 		}
 
+		if (mixed) {
+			return mixer.play(samples[channel], 1f)
+				&& mixer.await(samples[channel]);
+		}
+
 		if (channels[channel].isFree()) {
 			channels[channel].run();
 			return true;
@@ -342,6 +620,10 @@ public class GDMAudioEngine {
 			throw new IllegalArgumentException("Bad channel: " + channel);
 		}
 
+		if (mixed) {
+			return mixer.await(samples[channel]);
+		}
+
 		try {
 			futures[channel].get();
 			return true;
@@ -374,9 +656,314 @@ public class GDMAudioEngine {
 		if (!isValidChannel(channel)) {
 			throw new IllegalArgumentException("Bad channel: " + channel);
 		}
+
+		if (mixed) {
+			mixer.stop(samples[channel]);
+			return;
+		}
 		channels[channel].stop();
 	}
 
+	// added in r6
+	/** Sets the voice priority of a channel in mixer mode. Voices are only
+		stolen by channels of equal or higher priority
+
+		@param      name
+					Channel name
+
+		@param      priority
+					New priority
+
+		@throws     IllegalArgumentException
+					If the channel name is invalid
+	*/
+	public void setPriority(String name, int priority) throws
+		IllegalArgumentException
+	{
+		setPriority(getChannel(name), priority);
+	}
+	/** Sets the voice priority of a channel in mixer mode. Voices are only
+		stolen by channels of equal or higher priority
+
+		@param      channel
+					Channel number
+
+		@param      priority
+					New priority
+
+		@throws     IllegalArgumentException
+					If the channel number is invalid
+	*/
+	public void setPriority(int channel, int priority) throws
+		IllegalArgumentException
+	{
+		if (!isValidChannel(channel)) {
+			throw new IllegalArgumentException("Bad channel: " + channel);
+		}
+
+		if (mixed) {
+			voices.setPriority(samples[channel], priority);
+		}
+	}
+
+	/** Sets the maximum number of simultaneous voices of a channel in mixer
+		mode. Once reached, the channel steals its own voices
+
+		@param      name
+					Channel name
+
+		@param      instances
+					New maximum instance count
+
+		@throws     IllegalArgumentException
+					If the channel name or instance count is invalid
+	*/
+	public void setMaxInstances(String name, int instances) throws
+		IllegalArgumentException
+	{
+		setMaxInstances(getChannel(name), instances);
+	}
+	/** Sets the maximum number of simultaneous voices of a channel in mixer
+		mode. Once reached, the channel steals its own voices
+
+		@param      channel
+					Channel number
+
+		@param      instances
+					New maximum instance count
+
+		@throws     IllegalArgumentException
+					If the channel number or instance count is invalid
+	*/
+	public void setMaxInstances(int channel, int instances) throws
+		IllegalArgumentException
+	{
+		if (!isValidChannel(channel)) {
+			throw new IllegalArgumentException("Bad channel: " + channel);
+		}
+
+		if (mixed) {
+			voices.setMaxInstances(samples[channel], instances);
+		}
+	}
+
+	/** Returns the allocator of mixer voices, which also counts dropped and
+		stolen voices
+
+		@return     voice manager, {@code null} if not in mixer mode
+	*/
+	public GDMVoiceManager getVoiceManager() {
+		return voices;
+	}
+
+	// added in r7
+	/** Sets the period and buffer size of lines opened afterwards. In mixer
+		mode, this only has effect before the first load
+
+		@param      period
+					Frames written to a line at once, 0 for the default
+
+		@param      buffer
+					Line buffer size in frames, 0 for the default of the line
+
+		@throws     IllegalArgumentException
+					If {@code period < 0} or {@code buffer < 0}
+	*/
+	public void setLineSizes(int period, int buffer) throws
+		IllegalArgumentException
+	{
+		if (period < 0 || buffer < 0) {
+			throw new IllegalArgumentException(
+				"Bad sizes: " + period + ", " + buffer);
+		}
+		this.period = period;
+		this.buffer = buffer;
+	}
+
+	// added in r11
+	/** Sets the stage applied to the mixed output in mixer mode, such as a
+		{@code GDMEffect.Chain}
+
+		@param      effect
+					Master stage, {@code null} for none
+	*/
+	public synchronized void setMasterEffect(GDMEffect effect) {
+		master = effect;
+
+		if (mixer != null) {
+			mixer.setMasterEffect(effect);
+		}
+	}
+
+	// added in r14
+	/** Sets the log into which the mixer records events in mixer mode, such
+		as dropped voices and underruns
+
+		@param      events
+					Event log, {@code null} for none
+	*/
+	public synchronized void setEventLog(EventLog events) {
+		this.events = events;
+
+		if (mixer != null) {
+			mixer.setEventLog(events);
+		}
+	}
+
+	// added in r12
+	/** Sets the rate applied to every non-streamed channel in mixer mode,
+		playing or not. Streamed channels, such as music, are not affected
+
+		@param      rate
+					Global playback rate, 1 for none
+
+		@throws     IllegalArgumentException
+					If the rate is not positive and finite
+	*/
+	public synchronized void setRate(float rate) throws
+		IllegalArgumentException
+	{
+		if (!(rate > 0f) || Float.isInfinite(rate)) {
+			throw new IllegalArgumentException("Bad rate: " + rate);
+		}
+		this.rate = rate;
+
+		if (mixer != null) {
+			mixer.setRate(rate);
+		}
+	}
+
+	// added in r9
+	/** Sets the sink to which the mixer writes, in place of a line. Only has
+		effect in mixer mode before the first load
+
+		@param      sink
+					Opened sink, {@code null} for a line
+	*/
+	public synchronized void setSink(GDMAudioSink sink) {
+		this.sink = sink;
+	}
+
+	/** Returns the sink to which the mixer writes, which is a
+		{@code GDMNullSink} if no line could be opened
+
+		@return     sink, {@code null} if not in mixer mode or not yet opened
+	*/
+	public GDMAudioSink getSink() {
+		return mixer == null ? null : mixer.getSink();
+	}
+
+	// added in r13
+	/** Returns the counters and histograms of playback: those of the mixer in
+		mixer mode, or those counted into by every channel otherwise
+
+		@return     metrics, {@code null} if the mixer is not yet opened
+	*/
+	public GDMAudioMetrics getMetrics() {
+
+		if (mixed) {
+			GDMAudioMixer m = mixer;
+			return m == null ? null : m.getMetrics();
+		}
+		return metrics;
+	}
+
+	/** Returns the line of the mixer, which reports its latency, fill level
+		and underruns
+
+		@return     output line, {@code null} if not in mixer mode or not
+					yet opened
+	*/
+	public GDMOutputLine getOutputLine() {
+		return mixer == null ? null : mixer.getLine();
+	}
+
+	// added in r8
+	/** Plays a streamed channel as music in a loop, crossfading from the
+		previous music. Loops are gapless
+
+		@param      name
+					Channel name to be played
+
+		@param      seconds
+					Duration of the crossfade, 0 to cut at once
+
+		@return     {@code false} if the operation was not commenced;
+					{@code true} otherwise
+
+		@throws     IllegalArgumentException
+					If the channel name is invalid or not streamed
+
+		@throws     IllegalStateException
+					If not in mixer mode
+	*/
+	public boolean playMusic(String name, float seconds) throws
+		IllegalArgumentException,
+		IllegalStateException
+	{
+		return playMusic(getChannel(name), seconds);
+	}
+	/** Plays a streamed channel as music in a loop, crossfading from the
+		previous music. Loops are gapless
+
+		@param      channel
+					Channel number to be played
+
+		@param      seconds
+					Duration of the crossfade, 0 to cut at once
+
+		@return     {@code false} if the operation was not commenced;
+					{@code true} otherwise
+
+		@throws     IllegalArgumentException
+					If the channel number is invalid or not streamed
+
+		@throws     IllegalStateException
+					If not in mixer mode
+	*/
+	public boolean playMusic(int channel, float seconds) throws
+		IllegalArgumentException,
+		IllegalStateException
+	{
+		if (!isValidChannel(channel)) {
+			throw new IllegalArgumentException("Bad channel: " + channel);
+		}
+		return getMusicPlayer().play(samples[channel], seconds);
+	}
+
+	/** Fades out and stops the music
+
+		@param      seconds
+					Duration of the fade, 0 to stop at once
+	*/
+	public void stopMusic(float seconds) {
+
+		if (music != null) {
+			music.stop(seconds);
+		}
+	}
+
+	/** Returns the music player, which reports the playback clock of the
+		music as heard
+
+		@return     music player
+
+		@throws     IllegalStateException
+					If not in mixer mode or no channel has been loaded yet
+	*/
+	public synchronized GDMMusicPlayer getMusicPlayer() throws
+		IllegalStateException
+	{
+		if (mixer == null) {
+			throw new IllegalStateException("No mixer.");
+		}
+
+		if (music == null) {
+			music = new GDMMusicPlayer(mixer);
+		}
+		return music;
+	}
+
 	/** Unloads an audio channel. This releases any resource associated to the
 		channel
 
@@ -409,6 +996,12 @@ public class GDMAudioEngine {
 		if (!isValidChannel(channel)) {
 			throw new IllegalArgumentException("Bad channel: " + channel);
 		}
+
+		if (mixed) {
+			mixer.unregister(samples[channel]);
+			names[channel] = null;
+			return true;
+		}
 		return channels[channel].close();
 	}
 
@@ -421,6 +1014,17 @@ public class GDMAudioEngine {
 	public boolean unloadAll() {
 		boolean out = true;
 
+		if (mixed) {
+
+			for (int i = 0; i < names.length; i++) {
+
+				if (names[i] != null) {
+					unload(i);
+				}
+			}
+			return mixer == null || mixer.close();
+		}
+
 		for (GDMAudio o : channels) {
 
 			if (o != null) {
@@ -452,6 +1056,9 @@ public class GDMAudioEngine {
 		@throws     IOException
 					If an input or output error occurs
 
+		@throws     UnsupportedAudioFileException
+					If the audio resource can not be decoded in mixer mode
+
 		@throws     LineUnavailableException
 					If a line can not be opened because it is unavailable
 	*/
@@ -459,19 +1066,91 @@ public class GDMAudioEngine {
 		String... name) throws
 		IllegalStateException,
 		IOException,
+		UnsupportedAudioFileException,
 		LineUnavailableException
 	{
+		if (mixed) {
+			return makeMixerChannel(cache.decode(stream), null,
+				(name.length > 0) && (name[0] != null)
+					? name[0] : "Audio" + stream.hashCode());
+		}
 		final int i = getFreeChannel();
 
 		if (i < 0) {
 			throw new IllegalStateException("No free channels.");
 		}
 
-		if ((name.length > 0) && (name[0] != null)) {
+		if (period > 0 || buffer > 0) {
+			channels[i] = new GDMAudio((name.length > 0) && (name[0] != null)
+					? name[0] : "Audio" + stream.hashCode(), stream, format,
+				period > 0 ? period : GDMAudio.BUFFER_SIZE
+					/ Math.max(1, format.getFrameSize()), buffer);
+		} else if ((name.length > 0) && (name[0] != null)) {
 			channels[i] = new GDMAudio(name[0] , stream, format);
 		} else {
 			channels[i] = new GDMAudio(stream, format);
 		}
+		channels[i].setMetrics(metrics);
+		return i;
+	}
+
+	// added in r3
+	/** Registers decoded samples or a stream to the mixer on a free channel.
+		The mixer is opened upon first use, onto a line if no sink is set, or
+		a real-time {@code GDMNullSink} if no line is available
+
+		@param      pcm
+					Samples in {@code GDMAudioMixer.FORMAT}, from the cache,
+					or {@code null} if streaming
+
+		@param      stream
+					Stream, or {@code null} if not streaming
+
+		@param      name
+					Name describing this audio resource
+
+		@return     Channel number to which this audio resource is mapped
+
+		@throws     IllegalStateException
+					If there are no free channels available for use
+	*/
+	private synchronized int makeMixerChannel(short[] pcm,
+		GDMAudioStream stream, String name) throws
+		IllegalStateException
+	{
+		final int i = getFreeChannel();
+
+		if (i < 0) {
+
+			if (stream != null) {
+				stream.close();
+			}
+			throw new IllegalStateException("No free channels.");
+		}
+
+		if (mixer == null) {
+			int p = period > 0 ? period : GDMOutputLine.PERIOD;
+
+			// changed in r9
+			if (sink == null) {
+
+				try {
+					sink = new GDMOutputLine(GDMAudioMixer.FORMAT, p, buffer);
+				} catch (LineUnavailableException
+					| IllegalArgumentException e) {
+					// no sound card, keep time without one
+					sink = new GDMNullSink(GDMAudioMixer.FORMAT, p, true);
+				}
+			}
+			mixer = new GDMAudioMixer(voices, sink);
+			mixer.setMasterEffect(master);
+			mixer.setRate(rate);
+			mixer.setEventLog(events);
+			mixer.start();
+		}
+		samples[i] = stream == null ? mixer.register(pcm)
+			: mixer.register(stream);
+		names[i] = name;
 		return i;
 	}
 
@@ -484,7 +1163,8 @@ public class GDMAudioEngine {
 
 		for (int i = 0; i < channels.length; i++) {
 
-			if (channels[i] == null || channels[i].isClosed()) {
+			if (mixed ? names[i] == null
+				: channels[i] == null || channels[i].isClosed()) {
 				return i;
 			}
 		}
@@ -503,7 +1183,7 @@ public class GDMAudioEngine {
 
 		return (channel >= 0)
 			&& (channel < channels.length)
-			&& (channels[channel] != null);
+			&& (mixed ? names[channel] != null : channels[channel] != null);
 	}
 
 	// added in r2
@@ -522,7 +1202,9 @@ public class GDMAudioEngine {
 
 		for (int i = 0; i < channels.length; i++) {
 
-			if (channels[i].getName().equalsIgnoreCase(name)) {
+			if (mixed ? name.equalsIgnoreCase(names[i])
+				: (channels[i] != null)
+				&& channels[i].getName().equalsIgnoreCase(name)) {
 				return i;
 			}
 		}
@@ -0,0 +1,445 @@
+package eden.common;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/** The {@code GDMAudioMetrics} class gathers counters and histograms of audio
+	playback, to diagnose stutter in the field.
+	<br><br>
+	A {@code GDMAudioMixer} records the time taken to mix each block, the
+	depth of its request queue and the number of active voices, and counts
+	requests rejected by a full queue and exceptions caught while mixing.
+	Underruns of the sink and of streams, voices dropped and stolen by the
+	voice manager, and bytes read by streams are read from their sources.
+	Without a mixer, {@code GDMAudio} channels count exceptions and bytes
+	written to their lines.
+	<br><br>
+	Recording never allocates or locks. Values may be read from any thread,
+	and {@code reset} starts a new measurement without disturbing playback.
+
+	@version    u0r0, 10/19/2026
+*/
+public class GDMAudioMetrics {
+
+	// instance constants
+
+	/** Mix time per block in nanoseconds */
+	private final Histogram mixTime;
+
+	/** Pending requests per block */
+	private final Histogram queueDepth;
+
+	/** Active voices per block */
+	private final Histogram activeVoices;
+
+	/** Requests rejected, exceptions caught and bytes written by channels */
+	private final AtomicLong rejected, errors, streamed;
+
+	/** Frames mixed in the blocks timed by {@code mixTime} */
+	private final AtomicLong mixedFrames;
+
+	/** Voice manager of the mixer, {@code null} if none */
+	private final GDMVoiceManager manager;
+
+	/** Sink of the mixer, {@code null} if none */
+	private final GDMAudioSink sink;
+
+	/** Streams of the mixer, {@code null} if none */
+	private final AtomicReferenceArray<GDMAudioStream> streams;
+
+
+	// instance variables
+
+	/** Counts at the last reset */
+	private volatile long underrunBase, streamUnderrunBase, droppedBase,
+		stolenBase, streamedBase;
+
+
+	// constructors
+
+	/** Constructs a new instance of this class which counts on its own */
+	public GDMAudioMetrics() {
+		this(null, null, null);
+	}
+	/** Constructs a new instance of this class for a mixer
+
+		@param      manager
+					Voice manager of the mixer
+
+		@param      sink
+					Sink of the mixer, {@code null} if offline
+
+		@param      streams
+					Streams of the mixer
+	*/
+	GDMAudioMetrics(GDMVoiceManager manager, GDMAudioSink sink,
+		AtomicReferenceArray<GDMAudioStream> streams) {
+
+		this.mixTime = new Histogram();
+		this.queueDepth = new Histogram();
+		this.activeVoices = new Histogram();
+		this.rejected = new AtomicLong();
+		this.errors = new AtomicLong();
+		this.streamed = new AtomicLong();
+		this.mixedFrames = new AtomicLong();
+		this.manager = manager;
+		this.sink = sink;
+		this.streams = streams;
+	}
+
+
+	// methods
+
+	/** Returns the histogram of the time taken to mix each block
+		@return     histogram in nanoseconds
+	*/
+	public Histogram getMixTime() {
+		return mixTime;
+	}
+
+	/** Returns the histogram of the number of requests pending before each
+		block
+
+		@return     histogram in requests
+	*/
+	public Histogram getQueueDepth() {
+		return queueDepth;
+	}
+
+	/** Returns the histogram of the number of voices active in each block
+		@return     histogram in voices
+	*/
+	public Histogram getActiveVoices() {
+		return activeVoices;
+	}
+
+	/** Returns the number of periods which the sink ran out of before the
+		next was written
+
+		@return     underrun count
+	*/
+	public long getUnderruns() {
+		return (sink == null ? 0 : sink.getUnderruns()) - underrunBase;
+	}
+
+	/** Returns the number of blocks read from streams short of data, as
+		their background threads fell behind
+
+		@return     underrun count
+	*/
+	public long getStreamUnderruns() {
+		long out = 0;
+
+		if (streams != null) {
+
+			for (int i = 0; i < streams.length(); i++) {
+				GDMAudioStream stream = streams.get(i);
+
+				if (stream != null) {
+					out += stream.getUnderruns();
+				}
+			}
+		}
+		return out - streamUnderrunBase;
+	}
+
+	/** Returns the number of requests to play which were not heard, either
+		rejected by a full queue or dropped by the voice manager
+
+		@return     voice count
+	*/
+	public long getDropped() {
+		return rejected.get()
+			+ (manager == null ? 0 : manager.getDropped()) - droppedBase;
+	}
+
+	/** Returns the number of voices cut short to play a request
+		@return     voice count
+	*/
+	public long getStolen() {
+		return (manager == null ? 0 : manager.getStolen()) - stolenBase;
+	}
+
+	/** Returns the number of bytes read from the sources of streams, or
+		written by channels without a mixer
+
+		@return     byte count
+	*/
+	public long getStreamed() {
+		long out = streamed.get();
+
+		if (streams != null) {
+
+			for (int i = 0; i < streams.length(); i++) {
+				GDMAudioStream stream = streams.get(i);
+
+				if (stream != null) {
+					out += stream.getStreamed();
+				}
+			}
+		}
+		return out - streamedBase;
+	}
+
+	/** Returns the number of exceptions caught during playback
+		@return     exception count
+	*/
+	public long getErrors() {
+		return errors.get();
+	}
+
+	/** Returns the mean share of real time spent mixing, over the frames
+		actually mixed, as the last block of a period may be short
+
+		@return     load from 0, over 1 if mixing is slower than real time
+	*/
+	public double getLoad() {
+		long frames = mixedFrames.get();
+		return frames == 0 ? 0 : mixTime.getSum() * GDMAudioMixer.FORMAT
+			.getFrameRate() / (1e9 * frames);
+	}
+
+	/** Clears the histograms and counters, so that further values are
+		measured from now on */
+	public void reset() {
+		mixTime.reset();
+		queueDepth.reset();
+		activeVoices.reset();
+		mixedFrames.set(0);
+		errors.set(0);
+		underrunBase += getUnderruns();
+		streamUnderrunBase += getStreamUnderruns();
+		droppedBase += getDropped();
+		stolenBase += getStolen();
+		streamedBase += getStreamed();
+	}
+
+	/** Records a mixed block. Called from the mixing thread only
+
+		@param      nanos
+					Time taken to mix the block
+
+		@param      frames
+					Frames in the block, up to {@code BLOCK_FRAMES}
+
+		@param      depth
+					Requests pending before the block
+
+		@param      voices
+					Voices active in the block
+	*/
+	void recordBlock(long nanos, int frames, int depth, int voices) {
+		mixTime.record(nanos);
+		mixedFrames.addAndGet(frames);
+		queueDepth.record(depth);
+		activeVoices.record(voices);
+	}
+
+	/** Counts a request rejected by a full queue */
+	void addRejected() {
+		rejected.incrementAndGet();
+	}
+
+	/** Counts an exception caught during playback */
+	void addError() {
+		errors.incrementAndGet();
+	}
+
+	/** Counts bytes written by a channel without a mixer */
+	void addStreamed(long bytes) {
+		streamed.addAndGet(bytes);
+	}
+
+
+	// overridden methods
+
+	/** Returns a one-line summary of the metrics */
+	@Override
+	public String toString() {
+		return String.format(java.util.Locale.ROOT,
+			"mix %s us, load %.1f%%, queue %d, voices %d/%d, underruns %d+%d,"
+			+ " dropped %d, stolen %d, streamed %d KiB, errors %d",
+			mixTime.toString(1000), getLoad() * 100, queueDepth.getMax(),
+			activeVoices.getPercentile(0.5), activeVoices.getMax(),
+			getUnderruns(), getStreamUnderruns(), getDropped(), getStolen(),
+			getStreamed() >> 10, getErrors());
+	}
+
+
+	// helper classes
+
+	/** A {@code Histogram} counts non-negative values into buckets of eight
+		per power of two, hence percentiles are within 12.5% of the recorded
+		values. Values under 8 are counted exactly */
+	public static class Histogram {
+
+		// class constants
+
+		/** Bits of a value below its highest set bit kept in its bucket */
+		private static final int PRECISION = 3;
+
+		/** Number of buckets per power of two */
+		private static final int SUB_BUCKETS = 1 << PRECISION;
+
+		/** Number of buckets to hold every positive {@code long} */
+		private static final int BUCKETS
+			= (62 - PRECISION + 2) * SUB_BUCKETS;
+
+
+		// instance constants
+
+		/** Number of values per bucket */
+		private final AtomicLongArray counts;
+
+		/** Number, sum and maximum of values */
+		private final AtomicLong count, sum, max;
+
+
+		// constructors
+
+		/** Constructs a new instance of this class */
+		public Histogram() {
+			this.counts = new AtomicLongArray(BUCKETS);
+			this.count = new AtomicLong();
+			this.sum = new AtomicLong();
+			this.max = new AtomicLong();
+		}
+
+
+		// methods
+
+		/** Records a value
+
+			@param      value
+						Value to be recorded, negative values counting as 0
+		*/
+		public void record(long value) {
+			value = Math.max(0, value);
+			counts.incrementAndGet(getIndex(value));
+			count.incrementAndGet();
+			sum.addAndGet(value);
+
+			if (value > max.get()) {
+				max.accumulateAndGet(value, Math::max);
+			}
+		}
+
+		/** Returns the number of values recorded
+			@return     value count
+		*/
+		public long getCount() {
+			return count.get();
+		}
+
+		/** Returns the sum of the values recorded
+			@return     sum
+		*/
+		public long getSum() {
+			return sum.get();
+		}
+
+		/** Returns the largest value recorded
+			@return     maximum, 0 if none
+		*/
+		public long getMax() {
+			return max.get();
+		}
+
+		/** Returns the mean of the values recorded
+			@return     mean, 0 if none
+		*/
+		public double getMean() {
+			long n = count.get();
+			return n == 0 ? 0 : (double) sum.get() / n;
+		}
+
+		/** Returns the value which a share of the values recorded do not
+			exceed
+
+			@param      share
+						Share from 0 to 1, such as 0.99 for the 99th
+						percentile
+
+			@return     upper bound of the bucket holding the percentile,
+						at most the maximum; 0 if none
+		*/
+		public long getPercentile(double share) {
+			long n = count.get();
+
+			if (n == 0) {
+				return 0;
+			}
+			long target = Math.max(1, (long) Math.ceil(share * n));
+			long seen = 0;
+
+			for (int i = 0; i < BUCKETS; i++) {
+				seen += counts.get(i);
+
+				if (seen >= target) {
+					return Math.min(getUpperBound(i), max.get());
+				}
+			}
+			return max.get();
+		}
+
+		/** Clears every value recorded */
+		public void reset() {
+
+			for (int i = 0; i < BUCKETS; i++) {
+				counts.set(i, 0);
+			}
+			count.set(0);
+			sum.set(0);
+			max.set(0);
+		}
+
+		/** Returns the median, 99th percentile and maximum, scaled down
+
+			@param      unit
+						Divisor of every value, such as 1000 for
+						microseconds out of nanoseconds
+
+			@return     {@code "median/p99/max"}
+		*/
+		public String toString(long unit) {
+			return getPercentile(0.5) / unit + "/"
+				+ getPercentile(0.99) / unit + "/" + getMax() / unit;
+		}
+
+
+		// overridden methods
+
+		/** Returns the median, 99th percentile and maximum */
+		@Override
+		public String toString() {
+			return toString(1);
+		}
+
+
+		// helper methods
+
+		/** Returns the bucket of a non-negative value */
+		private static int getIndex(long value) {
+
+			if (value < SUB_BUCKETS) {
+				return (int) value;
+			}
+			int exponent = 63 - Long.numberOfLeadingZeros(value);
+			int shift = exponent - PRECISION;
+			return (shift + 1) * SUB_BUCKETS
+				+ (int) ((value >>> shift) & (SUB_BUCKETS - 1));
+		}
+
+		/** Returns the largest value counted in a bucket */
+		private static long getUpperBound(int index) {
+
+			if (index < SUB_BUCKETS) {
+				return index;
+			}
+			int shift = index / SUB_BUCKETS - 1;
+			long low = (long) (SUB_BUCKETS + index % SUB_BUCKETS) << shift;
+			return low + (1L << shift) - 1;
+		}
+	}
+}
@@ -0,0 +1,1053 @@
+package eden.common;
+
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import javax.sound.sampled.AudioFormat;
+import javax.sound.sampled.LineUnavailableException;
+
+import eden.common.io.EventLog;
+import eden.common.io.Modal;
+
+/** The {@code GDMAudioMixer} class mixes any number of sampled audio voices
+	onto a single {@code SourceDataLine} from one real-time thread, so that
+	polyphony is bound by processing power rather than by the number of lines
+	the system offers.
+	<br><br>
+	Samples are registered once as 16-bit PCM in the output {@code FORMAT}, and
+	any number of voices may play the same sample at once. Requests from other
+	threads are passed to the mixing thread through a lock-free
+	{@code GDMCommandQueue}, hence {@code play} and {@code stop} never block.
+	<br><br>
+	Voices are mixed in fixed-size blocks of {@code BLOCK_FRAMES} frames into a
+	{@code float} accumulator, which is then saturated to 16 bits. The line is
+	written a period at a time, whose size, along with the line buffer size,
+	bounds the latency of a request.
+	<br><br>
+	Long tracks are registered as a {@code GDMAudioStream} instead, which is
+	decoded ahead on a thread of its own and played by at most one voice.
+	<br><br>
+	Voices are allocated by a {@code GDMVoiceManager}, which may steal a busy
+	voice for a request of equal or higher priority. The gain of a voice may be
+	ramped over time with {@code fade}, to crossfade between tracks.
+	<br><br>
+	Mixed audio data is written to a {@code GDMAudioSink}, which is a line
+	unless another is given. Without a sound card, a {@code GDMNullSink} or a
+	{@code GDMWaveSink} stands in, and offline mixers may be driven faster than
+	real time with {@code render}.
+	<br><br>
+	Each voice may be panned and low-pass filtered as it is requested, and the
+	mixed output passed through a master {@code GDMEffect}. Voices which are
+	centered and unfiltered are mixed straight into the accumulator; others
+	are mixed into a scratch block first, processed, then accumulated.
+	<br><br>
+	Each voice of a sample may also be played at a rate of its own, times a
+	global rate set with {@code setRate}, which varies pitch and speed
+	together. Such voices are read through a 32.32 fixed-point phase with
+	linear interpolation between frames; voices at a rate of 1 are copied.
+	Streams always play at a rate of 1.
+	<br><br>
+	Every block is timed and counted into the {@code GDMAudioMetrics} of this
+	mixer, along with the depth of the request queue and the active voices.
+	An exception thrown while mixing is counted and a period of silence
+	written in place, so that the mixing thread never dies.
+	<br><br>
+	Given an {@code EventLog}, dropped, stolen and rejected voices, exceptions
+	and sink underruns are also recorded as events, for post-mortem analysis.
+
+	@version    u0r9, 10/19/2026
+*/
+public class GDMAudioMixer implements Runnable {
+
+	// public constants
+
+	/** Output format: 44.1 kHz, 16-bit, stereo, signed, little-endian */
+	public static final AudioFormat FORMAT
+		= new AudioFormat(44100f, 16, 2, true, false);
+
+	/** Number of frames mixed per block */
+	public static final int BLOCK_FRAMES = 512;
+
+	/** Maximum number of registered samples */
+	public static final int SAMPLES = 256;
+
+	/** Default number of voices */
+	public static final int VOICES = 32;
+
+
+	// class constants
+
+	/** Command: start a voice on a sample */
+	private static final int PLAY = 1;
+
+	/** Command: stop every voice playing a sample */
+	private static final int STOP = 2;
+
+	/** Command: ramp the gain of every voice playing a sample */
+	private static final int FADE = 3;
+
+	/** Command: stop every voice playing a sample, then free the sample */
+	private static final int UNREGISTER = 4;
+
+	// added in r9 {
+	/** Event source of every mixer */
+	private static final int SOURCE = EventLog.source("GDMAudioMixer");
+
+	/** Event formats */
+	private static final int
+		DROPPED = EventLog.define(" VOICE DROPPED, sample %d"),
+		STOLEN = EventLog.define(" VOICE STOLEN, sample %d from %d"),
+		REJECTED = EventLog.define(" VOICE REJECTED, sample %d"),
+		ERROR = EventLog.define(" MIX ERROR at frame %2$d"),
+		UNDERRUN = EventLog.define(" UNDERRUN x%d at frame %d");
+	// } added in r9
+
+	/** Phase increment of a rate of 1, in 32.32 fixed point */
+	private static final long ONE = 1L << 32;
+
+	/** Highest rate of a voice */
+	private static final float RATE_MAX = 16f;
+
+
+	// instance constants
+
+	/** Registered samples, interleaved stereo */
+	private final AtomicReferenceArray<short[]> samples;
+
+	/** Registered streams, sharing numbers with samples */
+	private final AtomicReferenceArray<GDMAudioStream> streams;
+
+	/** Number of voices requested or playing, per sample */
+	private final AtomicIntegerArray pending;
+
+	/** Requests to the mixing thread */
+	private final GDMCommandQueue commands;
+
+	/** Voices, accessed by the mixing thread only */
+	private final Voice[] voices;
+
+	/** Allocator of voices */
+	private final GDMVoiceManager manager;
+
+	/** Mixing accumulator, interleaved stereo */
+	private final float[] block;
+
+	// added in r6
+	/** Block of a voice being processed, interleaved stereo */
+	private final float[] scratch;
+
+	/** Output buffer */
+	private final byte[] bytes;
+
+	/** Sink to write mixed audio data to, {@code null} if offline */
+	private final GDMAudioSink sink;
+
+	// added in r8
+	/** Counters and histograms of mixing */
+	private final GDMAudioMetrics metrics;
+
+
+	// instance variables
+
+	/** Reference to thread on which mixing is being performed */
+	private Thread thread;
+
+	/** Whether the mixing thread should keep running */
+	private volatile boolean running;
+
+	/** Number of frames mixed */
+	private volatile long frames;
+
+	// added in r6
+	/** Stage applied to the mixed output, {@code null} if none */
+	private volatile GDMEffect master;
+
+	// added in r7
+	/** Rate applied to every voice of a sample */
+	private volatile float rate = 1f;
+
+	// added in r9
+	/** Log to record events into, {@code null} if none */
+	private volatile EventLog events;
+
+
+	// constructors
+
+	/** Constructs a new instance of this class with {@code VOICES} voices
+		and opens its line
+
+		@throws     LineUnavailableException
+					If a line can not be opened because it is unavailable
+	*/
+	public GDMAudioMixer() throws LineUnavailableException {
+		this(VOICES);
+	}
+	/** Constructs a new instance of this class with a given number of voices
+		and opens its line
+
+		@param      voices
+					Maximum number of simultaneous voices
+
+		@throws     LineUnavailableException
+					If a line can not be opened because it is unavailable
+	*/
+	public GDMAudioMixer(int voices) throws LineUnavailableException {
+		this(new GDMVoiceManager(voices, GDMVoiceManager.Policy.OLDEST));
+	}
+	/** Constructs a new instance of this class with a given voice manager
+		and opens its line
+
+		@param      manager
+					Allocator of voices, used by this mixer only
+
+		@throws     LineUnavailableException
+					If a line can not be opened because it is unavailable
+	*/
+	public GDMAudioMixer(GDMVoiceManager manager) throws
+		LineUnavailableException
+	{
+		this(manager, GDMOutputLine.PERIOD, 0);
+	}
+	/** Constructs a new instance of this class with a given voice manager
+		and opens its line with a given period and buffer size
+
+		@param      manager
+					Allocator of voices, used by this mixer only
+
+		@param      period
+					Frames written to the line at once
+
+		@param      buffer
+					Line buffer size in frames, 0 for the default of the line
+
+		@throws     LineUnavailableException
+					If a line can not be opened because it is unavailable
+	*/
+	public GDMAudioMixer(GDMVoiceManager manager, int period, int buffer)
+		throws LineUnavailableException
+	{
+		this(manager, new GDMOutputLine(FORMAT, period, buffer));
+	}
+	// changed in r5
+	/** Constructs a new instance of this class with a given voice manager
+		and sink, which may be {@code null} to mix offline into buffers
+
+		@param      manager
+					Allocator of voices, used by this mixer only
+
+		@param      sink
+					Opened sink to write mixed audio data to
+	*/
+	public GDMAudioMixer(GDMVoiceManager manager, GDMAudioSink sink) {
+		this.samples = new AtomicReferenceArray<>(SAMPLES);
+		this.streams = new AtomicReferenceArray<>(SAMPLES);
+		this.pending = new AtomicIntegerArray(SAMPLES);
+		this.commands = new GDMCommandQueue(256);
+		this.manager = manager;
+		this.voices = new Voice[manager.getVoices()];
+
+		for (int i = 0; i < voices.length; i++) {
+			this.voices[i] = new Voice();
+		}
+		this.block = new float[BLOCK_FRAMES * 2];
+		this.scratch = new float[BLOCK_FRAMES * 2];
+		this.bytes = new byte[(sink == null ? BLOCK_FRAMES : sink.getPeriod())
+			* FORMAT.getFrameSize()];
+		this.sink = sink;
+		this.metrics = new GDMAudioMetrics(manager, sink, streams);
+	}
+
+
+	// methods
+
+	/** Registers a sample for playback
+
+		@param      pcm
+					Interleaved stereo 16-bit samples in {@code FORMAT}. Not to
+					be modified afterwards
+
+		@return     Sample number to be referred to by {@code play}
+
+		@throws     IllegalStateException
+					If there are no free sample slots available for use
+	*/
+	public synchronized int register(short[] pcm) throws IllegalStateException {
+		int out = getFreeSample();
+		samples.set(out, pcm);
+		return out;
+	}
+	/** Registers a stream for playback and starts decoding it ahead
+
+		@param      stream
+					Stream to be played by at most one voice at a time
+
+		@return     Sample number to be referred to by {@code play}
+
+		@throws     IllegalStateException
+					If there are no free sample slots available for use
+	*/
+	public synchronized int register(GDMAudioStream stream) throws
+		IllegalStateException
+	{
+		int out = getFreeSample();
+		streams.set(out, stream);
+		stream.start();
+		return out;
+	}
+
+	/** Unregisters a sample, stopping its voices. The sample number is freed
+		and streams are closed on the mixing thread once its voices have
+		stopped, hence the number is not reused before then
+
+		@param      sample
+					Sample number to be unregistered
+	*/
+	public synchronized void unregister(int sample) {
+
+		while (!commands.offer(UNREGISTER, sample, 0f, 0f, 0f, 0f)) {
+
+			// without a mixing thread, requests are applied by the caller
+			if (thread == null) {
+				processCommands();
+			} else {
+				Thread.yield();
+			}
+		}
+	}
+
+	/** Returns the stream registered under a sample number
+
+		@param      sample
+					Sample number
+
+		@return     Registered stream, {@code null} if none
+	*/
+	public GDMAudioStream getStream(int sample) {
+		return streams.get(sample);
+	}
+
+	/** Requests a voice to play a sample. This method never blocks
+
+		@param      sample
+					Sample number to be played
+
+		@param      gain
+					Linear gain
+
+		@return     {@code false} if the request could not be queued;
+					{@code true} otherwise
+	*/
+	public boolean play(int sample, float gain) {
+		return play(sample, gain, 0f, 0f);
+	}
+	// added in r6
+	/** Requests a voice to play a sample, panned and low-pass filtered. This
+		method never blocks
+
+		@param      sample
+					Sample number to be played
+
+		@param      gain
+					Linear gain
+
+		@param      pan
+					Position from -1 (left) to 1 (right)
+
+		@param      cutoff
+					Low-pass cutoff frequency in Hz, 0 for none
+
+		@return     {@code false} if the request could not be queued;
+					{@code true} otherwise
+	*/
+	public boolean play(int sample, float gain, float pan, float cutoff) {
+		return play(sample, gain, pan, cutoff, 1f);
+	}
+	// added in r7
+	/** Requests a voice to play a sample at a given rate, panned and low-pass
+		filtered. This method never blocks
+
+		@param      sample
+					Sample number to be played
+
+		@param      gain
+					Linear gain
+
+		@param      pan
+					Position from -1 (left) to 1 (right)
+
+		@param      cutoff
+					Low-pass cutoff frequency in Hz, 0 for none
+
+		@param      rate
+					Playback rate, 1 for the original pitch and speed, up to
+					16. Ignored for streams
+
+		@return     {@code false} if the request could not be queued;
+					{@code true} otherwise
+
+		@throws     IllegalArgumentException
+					If the rate is not positive and finite
+	*/
+	public boolean play(int sample, float gain, float pan, float cutoff,
+		float rate) throws IllegalArgumentException {
+
+		checkRate(rate);
+		pending.incrementAndGet(sample);
+
+		if (commands.offer(PLAY, sample, gain, pan, cutoff, rate)) {
+			return true;
+		}
+		pending.decrementAndGet(sample);
+		metrics.addRejected();
+		record(Modal.ALERT, REJECTED, sample, 0);
+		return false;
+	}
+
+	/** Requests every voice playing a sample to stop. This method never blocks
+
+		@param      sample
+					Sample number whose voices are to be stopped
+
+		@return     {@code false} if the request could not be queued;
+					{@code true} otherwise
+	*/
+	public boolean stop(int sample) {
+		return commands.offer(STOP, sample, 0f, 0f, 0f, 0f);
+	}
+
+	/** Requests the gain of every voice playing a sample to be ramped
+		linearly. This method never blocks
+
+		@param      sample
+					Sample number whose voices are to be faded
+
+		@param      gain
+					Linear gain to be reached
+
+		@param      seconds
+					Duration of the ramp, 0 to apply the gain at once
+
+		@param      stop
+					Whether voices are to be stopped once they reach a gain
+					of 0
+
+		@return     {@code false} if the request could not be queued;
+					{@code true} otherwise
+	*/
+	public boolean fade(int sample, float gain, float seconds, boolean stop) {
+		return commands.offer(FADE, sample, gain,
+			seconds * FORMAT.getFrameRate(), stop ? 1f : 0f, 0f);
+	}
+
+	/** Awaits for every requested voice of a sample to end, then returns
+
+		@param      sample
+					Sample number to await for
+
+		@return     {@code false} if interrupted;
+					{@code true} otherwise
+	*/
+	public boolean await(int sample) {
+
+		try {
+			while (pending.get(sample) > 0) {
+				Thread.sleep(1);
+			}
+			return true;
+		} catch (InterruptedException e) {
+			return false;
+		}
+	}
+
+	/** Returns whether a sample is requested or playing on any voice
+
+		@param      sample
+					Sample number to check the condition with
+
+		@return     {@code true} if the condition is true;
+					{@code false} otherwise
+	*/
+	public boolean isPlaying(int sample) {
+		return pending.get(sample) > 0;
+	}
+
+	/** Starts mixing on a new thread of maximum priority */
+	public synchronized void start() {
+
+		if (thread == null) {
+			running = true;
+			thread = new Thread(this, "GDMMixer");
+			thread.setDaemon(true);
+			thread.setPriority(Thread.MAX_PRIORITY);
+			thread.start();
+		}
+	}
+
+	/** Mixes and writes periods to the sink until closed */
+	@Override
+	public void run() {
+		sink.start();
+		long underruns = sink.getUnderruns();
+
+		while (running) {
+
+			// changed in r8
+			try {
+				render(bytes, 0, bytes.length / FORMAT.getFrameSize());
+			} catch (RuntimeException e) {
+				metrics.addError();
+				record(Modal.ERROR, ERROR, 0, frames);
+				java.util.Arrays.fill(bytes, (byte) 0);
+			}
+			sink.write(bytes, 0, bytes.length);
+
+			// added in r9
+			long u = sink.getUnderruns();
+
+			if (u != underruns) {
+				record(Modal.ALERT, UNDERRUN, (int) (u - underruns), frames);
+				underruns = u;
+			}
+		}
+	}
+
+	// added in r5
+	/** Mixes a number of frames and writes them to the sink on the current
+		thread, as fast as the sink accepts them. Offline mixers are driven by
+		calling this method directly, on one thread only, without
+		{@code start}
+
+		@param      frames
+					Number of frames to be mixed
+	*/
+	public void render(long frames) {
+		int period = bytes.length / FORMAT.getFrameSize();
+
+		while (frames > 0) {
+			int length = (int) Math.min(frames, period);
+			render(bytes, 0, length);
+			sink.write(bytes, 0, length * FORMAT.getFrameSize());
+			frames -= length;
+		}
+	}
+
+	/** Mixes frames into a buffer in {@code FORMAT}, processing pending
+		requests before every block. Offline mixers are driven by calling this
+		method directly, on one thread only
+
+		@param      buffer
+					Buffer to write mixed audio data to
+
+		@param      offset
+					Offset in bytes
+
+		@param      frames
+					Number of frames to be mixed
+	*/
+	public void render(byte[] buffer, int offset, int frames) {
+
+		while (frames > 0) {
+			int length = Math.min(frames, BLOCK_FRAMES);
+			long time = System.nanoTime();
+			int depth = commands.size();
+			processCommands();
+			int active = mix(length);
+
+			// saturate to 16 bits
+			for (int i = 0; i < length * 2; i++) {
+				float f = block[i];
+				int s = f >= 32767f ? 32767 : f <= -32768f ? -32768 : (int) f;
+				buffer[offset++] = (byte) s;
+				buffer[offset++] = (byte) (s >> 8);
+			}
+			metrics.recordBlock(System.nanoTime() - time, length, depth,
+				active);
+			frames -= length;
+			this.frames += length;
+		}
+	}
+
+	/** Returns the number of frames mixed, which is the clock of the mixer
+
+		@return     frame count
+	*/
+	public long getFrames() {
+		return frames;
+	}
+
+	/** Stops mixing and releases the sink
+
+		@return     {@code false} if the operation was unsuccessful;
+					{@code true} otherwise
+	*/
+	public synchronized boolean close() {
+		running = false;
+
+		try {
+			if (thread != null) {
+				thread.join(1000);
+				thread = null;
+			}
+
+			for (int i = 0; i < SAMPLES; i++) {
+				GDMAudioStream stream = streams.getAndSet(i, null);
+
+				if (stream != null) {
+					stream.close();
+				}
+			}
+			if (sink != null) {
+				sink.close();
+			}
+			return true;
+		} catch (Exception e) {
+			return false;
+		}
+	}
+
+	/** Returns the line of this mixer, which reports its latency, fill level
+		and underruns
+
+		@return     output line, {@code null} if offline or not playing to a
+					sound card
+	*/
+	public GDMOutputLine getLine() {
+		return sink instanceof GDMOutputLine ? (GDMOutputLine) sink : null;
+	}
+
+	// added in r5
+	/** Returns the sink of this mixer
+
+		@return     sink, {@code null} if offline
+	*/
+	public GDMAudioSink getSink() {
+		return sink;
+	}
+
+	// added in r9
+	/** Sets the log to record events into, such as dropped voices
+
+		@param      events
+					Event log, {@code null} for none
+	*/
+	public void setEventLog(EventLog events) {
+		this.events = events;
+	}
+
+	// added in r8
+	/** Returns the counters and histograms of this mixer
+		@return     metrics
+	*/
+	public GDMAudioMetrics getMetrics() {
+		return metrics;
+	}
+
+	// added in r7
+	/** Sets the rate applied to every voice of a sample, playing or not, as
+		for slow motion. Streams are not affected
+
+		@param      rate
+					Global playback rate, 1 for none
+
+		@throws     IllegalArgumentException
+					If the rate is not positive and finite
+	*/
+	public void setRate(float rate) throws IllegalArgumentException {
+		checkRate(rate);
+		this.rate = rate;
+	}
+
+	/** Returns the rate applied to every voice of a sample
+		@return     global playback rate
+	*/
+	public float getRate() {
+		return rate;
+	}
+
+	// added in r6
+	/** Sets the stage applied to the mixed output, such as a {@code Chain}.
+		It is processed on the mixing thread from the next block
+
+		@param      effect
+					Master stage, {@code null} for none
+	*/
+	public void setMasterEffect(GDMEffect effect) {
+		master = effect;
+	}
+
+	/** Returns the stage applied to the mixed output
+
+		@return     master stage, {@code null} if none
+	*/
+	public GDMEffect getMasterEffect() {
+		return master;
+	}
+
+	/** Returns the voice manager of this mixer
+		@return     voice manager
+	*/
+	public GDMVoiceManager getVoiceManager() {
+		return manager;
+	}
+
+	/** Returns the number of voices currently playing. Approximate when
+		called from outside the mixing thread
+
+		@return     active voice count
+	*/
+	public int getActiveVoices() {
+		int out = 0;
+
+		for (Voice v : voices) {
+
+			if (v.isActive()) {
+				out++;
+			}
+		}
+		return out;
+	}
+
+
+	// helper methods
+
+	/** Rejects a rate at which a voice would never advance or end */
+	private static void checkRate(float rate) throws IllegalArgumentException {
+
+		if (!(rate > 0f) || Float.isInfinite(rate)) {
+			throw new IllegalArgumentException("Bad rate: " + rate);
+		}
+	}
+
+	/** Returns a free sample number */
+	private int getFreeSample() throws IllegalStateException {
+
+		for (int i = 0; i < SAMPLES; i++) {
+
+			if (samples.get(i) == null && streams.get(i) == null) {
+				return i;
+			}
+		}
+		throw new IllegalStateException("No free samples.");
+	}
+
+	/** Applies queued requests */
+	private void processCommands() {
+
+		while (commands.poll()) {
+			int sample = commands.getTarget();
+
+			switch (commands.getOperation()) {
+				case PLAY:
+					startVoice(sample, commands.getParameter(0),
+						commands.getParameter(1), commands.getParameter(2),
+						commands.getParameter(3));
+					break;
+				case FADE:
+					for (Voice v : voices) {
+
+						if (v.isActive() && v.sample == sample) {
+							float length
+								= Math.max(1f, commands.getParameter(1));
+							v.target = commands.getParameter(0);
+							v.step = Math.abs(v.target - v.gain) / length;
+							v.release = commands.getParameter(2) != 0f;
+						}
+					}
+					break;
+				case STOP:
+					stopVoices(sample);
+					break;
+				case UNREGISTER:
+					// no voice reads the stream once stopped
+					stopVoices(sample);
+					manager.clear(sample);
+					samples.set(sample, null);
+					GDMAudioStream stream = streams.getAndSet(sample, null);
+
+					if (stream != null) {
+						stream.close();
+					}
+					break;
+			}
+		}
+	}
+
+	/** Frees every voice playing a sample */
+	private void stopVoices(int sample) {
+
+		for (int i = 0; i < voices.length; i++) {
+			Voice v = voices[i];
+
+			if (v.isActive() && v.sample == sample) {
+				endVoice(i);
+			}
+		}
+	}
+
+	/** Starts a voice on a sample as allocated by the voice manager, or drops
+		the request */
+	private void startVoice(int sample, float gain, float pan, float cutoff,
+		float rate) {
+
+		short[] data = samples.get(sample);
+		GDMAudioStream stream = streams.get(sample);
+
+		if (stream != null) {
+
+			// streams play on one voice at a time
+			for (Voice v : voices) {
+
+				if (v.stream == stream) {
+					pending.decrementAndGet(sample);
+					return;
+				}
+			}
+		}
+		int i = data == null && stream == null ? -1
+			: manager.allocate(sample, gain);
+
+		if (i < 0) {
+			pending.decrementAndGet(sample);
+			record(Modal.ALERT, DROPPED, sample, 0);
+			return;
+		}
+		Voice v = voices[i];
+
+		// stolen
+		if (v.isActive()) {
+			pending.decrementAndGet(v.sample);
+			record(Modal.INFO, STOLEN, sample, v.sample);
+		}
+
+		if (stream != null) {
+			stream.rewind();
+		}
+		v.data = data;
+		v.stream = stream;
+		v.sample = sample;
+		v.position = 0;
+		v.fraction = 0;
+		v.rate = rate > 0 ? Math.min(rate, RATE_MAX) : 1f;
+		v.gain = gain;
+		v.target = gain;
+		v.step = 0f;
+		v.release = false;
+		v.pan.setPan(pan);
+		v.lowPass.setCutoff(cutoff, FORMAT.getSampleRate());
+		v.lowPass.reset();
+	}
+
+	/** Frees a voice */
+	private void endVoice(int voice) {
+		Voice v = voices[voice];
+		v.data = null;
+		v.stream = null;
+		manager.release(voice);
+		pending.decrementAndGet(v.sample);
+	}
+
+	/** Mixes a block of every active voice into the accumulator, then applies
+		the master stage, returning the number of voices mixed */
+	private int mix(int frames) {
+		java.util.Arrays.fill(block, 0, frames * 2, 0f);
+		float global = rate;
+		int out = 0;
+
+		for (int k = 0; k < voices.length; k++) {
+			Voice v = voices[k];
+
+			if (!v.isActive()) {
+				continue;
+			}
+			out++;
+
+			// added in r6
+			if (v.pan.isCenter() && v.lowPass.isOpen()) {
+				mix(k, block, frames, global);
+			} else {
+				java.util.Arrays.fill(scratch, 0, frames * 2, 0f);
+				mix(k, scratch, frames, global);
+				v.pan.process(scratch, frames);
+
+				if (!v.lowPass.isOpen()) {
+					v.lowPass.process(scratch, frames);
+				}
+
+				for (int i = 0; i < frames * 2; i++) {
+					block[i] += scratch[i];
+				}
+			}
+		}
+		GDMEffect effect = master;
+
+		if (effect != null) {
+			effect.process(block, frames);
+		}
+		return out;
+	}
+
+	/** Mixes a block of a voice into an accumulator at its rate times a
+		global rate, ending the voice if it reaches the end of its data */
+	private void mix(int k, float[] out, int frames, float global) {
+		Voice v = voices[k];
+		short[] data = v.data;
+		float gain = v.gain;
+		float end = ramp(v, frames);
+
+		if (v.stream != null) {
+			v.stream.read(out, frames, gain, end);
+
+			if (v.stream.isEnded() || (v.release && end == 0f)) {
+				endVoice(k);
+			}
+			return;
+		}
+		// added in r7
+		long increment = (long) (v.rate * global * ONE);
+
+		if (increment != ONE) {
+			resample(v, out, frames, gain, end, increment);
+		} else if (gain == end) {
+			int length = Math.min(frames * 2, data.length - v.position);
+
+			for (int i = 0, j = v.position; i < length; i++, j++) {
+				out[i] += data[j] * gain;
+			}
+			v.position += length;
+		} else {
+			int length = Math.min(frames * 2, data.length - v.position);
+			float delta = (end - gain) / frames;
+
+			for (int i = 0, j = v.position; i < length; i += 2, j += 2) {
+				out[i] += data[j] * gain;
+				out[i + 1] += data[j + 1] * gain;
+				gain += delta;
+			}
+			v.position += length;
+		}
+
+		if (v.position >= data.length || (v.release && end == 0f)) {
+			endVoice(k);
+		} else {
+			manager.setLevel(k,
+				end * (data.length - v.position) / data.length);
+		}
+	}
+
+	// added in r9
+	/** Records an event into the log, if any */
+	private void record(int mode, int format, int a, long b) {
+		EventLog log = events;
+
+		if (log != null) {
+			log.write(SOURCE, mode, format, a, b);
+		}
+	}
+
+	// added in r7
+	/** Mixes a block of a voice into an accumulator through its fixed-point
+		phase, interpolating linearly between frames. Once the last frame is
+		passed, the position is left at the end of the data
+
+		@param      increment
+					Phase increment per output frame, in 32.32 fixed point
+	*/
+	private static void resample(Voice v, float[] out, int frames, float gain,
+		float end, long increment) {
+
+		short[] data = v.data;
+		long last = data.length / 2 - 1;
+		long phase = (long) (v.position / 2) << 32
+			| (v.fraction & 0xffffffffL);
+		float delta = (end - gain) / frames;
+
+		for (int i = 0; i < frames * 2; i += 2) {
+			long frame = phase >>> 32;
+
+			if (frame >= last) {
+				v.position = data.length;
+				v.fraction = 0;
+				return;
+			}
+			int j = (int) frame * 2;
+			float t = (phase & 0xffffffffL) * (1f / ONE);
+			float l = data[j] + (data[j + 2] - data[j]) * t;
+			float r = data[j + 1] + (data[j + 3] - data[j + 1]) * t;
+			out[i] += l * gain;
+			out[i + 1] += r * gain;
+			gain += delta;
+			phase += increment;
+		}
+		v.position = (int) Math.min(data.length, (phase >>> 32) * 2);
+		v.fraction = (int) phase;
+	}
+
+	/** Advances the gain of a voice towards its target by a block
+
+		@return     Gain at the end of the block
+	*/
+	private float ramp(Voice v, int frames) {
+
+		if (v.gain != v.target) {
+			float step = v.step * frames;
+
+			if (Math.abs(v.target - v.gain) <= step) {
+				v.gain = v.target;
+			} else {
+				v.gain += v.target > v.gain ? step : -step;
+			}
+		}
+		return v.gain;
+	}
+
+
+	// helper classes
+
+	/** A {@code Voice} plays a sample from an offset */
+	private static class Voice {
+
+		/** Sample being played, {@code null} if free or streaming */
+		short[] data;
+
+		/** Stream being played, {@code null} if free or not streaming */
+		GDMAudioStream stream;
+
+		/** Sample number being played */
+		int sample;
+
+		/** Playback offset in samples */
+		int position;
+
+		// added in r7
+		/** Fraction of a frame past the offset, in 32.32 fixed point */
+		int fraction;
+
+		/** Playback rate */
+		float rate;
+
+		/** Linear gain */
+		float gain;
+
+		/** Gain being ramped to */
+		float target;
+
+		/** Gain change per frame, towards the target */
+		float step;
+
+		/** Whether to stop once the gain reaches 0 */
+		boolean release;
+
+		// added in r6
+		/** Stereo position */
+		final GDMEffect.Pan pan = new GDMEffect.Pan(0f);
+
+		/** Low-pass filter */
+		final GDMEffect.LowPass lowPass
+			= new GDMEffect.LowPass(0f, FORMAT.getSampleRate());
+
+
+		/** Returns whether this voice is playing */
+		boolean isActive() {
+			return data != null || stream != null;
+		}
+	}
+}
@@ -0,0 +1,64 @@
+package eden.common;
+
+import javax.sound.sampled.AudioFormat;
+
+/** The {@code GDMAudioSink} interface is a destination of mixed audio data,
+	written a period at a time by a {@code GDMAudioMixer}.
+	<br><br>
+	A {@code GDMOutputLine} plays to a sound card, a {@code GDMNullSink}
+	discards, and a {@code GDMWaveSink} writes to a WAVE file. The latter two
+	work without a sound card, optionally paced to real time.
+
+	@version    u0r1, 10/19/2026
+*/
+public interface GDMAudioSink {
+
+	/** Writes audio data, blocking while the sink can not accept it
+
+		@param      buffer
+					Audio data
+
+		@param      offset
+					Offset in bytes
+
+		@param      length
+					Length in bytes
+
+		@return     Number of bytes written
+	*/
+	int write(byte[] buffer, int offset, int length);
+
+	/** Starts consuming audio data */
+	void start();
+
+	/** Releases the sink */
+	void close();
+
+	/** Returns the estimated time for a frame written now to be heard
+		@return     latency in nanoseconds
+	*/
+	long getLatency();
+
+	/** Returns the amount of audio data written at once
+		@return     period in frames
+	*/
+	int getPeriod();
+
+	/** Returns the number of frames written
+		@return     frame count
+	*/
+	long getWritten();
+
+	/** Returns the audio format of the sink
+		@return     audio format
+	*/
+	AudioFormat getFormat();
+
+	// added in r1
+	/** Returns the number of writes which found the sink out of audio data,
+		as heard as a gap
+
+		@return     underrun count
+	*/
+	long getUnderruns();
+}
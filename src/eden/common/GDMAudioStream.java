@@ -0,0 +1,453 @@
+package eden.common;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.LockSupport;
+
+/** The {@code GDMAudioStream} class is a source of audio data too long to be
+	decoded into memory, played by a {@code GDMAudioMixer} one voice at a time.
+	<br><br>
+	Source frames are decoded by a subclass on a background thread of its own,
+	converted to the mixer format and written ahead into a small ring, from
+	which the mixing thread reads without blocking. Looping and rewinding are
+	position resets performed by the background thread, hence the mixing thread
+	never performs any I/O. As a looping source wraps around within the ring,
+	loops are gapless.
+	<br><br>
+	The number of frames read by the mixing thread since the last rewind is
+	kept as the playback position of this stream. The time spent decoding is
+	measured, to compare the cost of source formats, and so is the amount of
+	source data read.
+
+	@version    u0r3, 10/19/2026
+*/
+public abstract class GDMAudioStream implements Runnable {
+
+	// public constants
+
+	/** Default read-ahead in frames, about 370 ms at 44.1 kHz */
+	public static final int READ_AHEAD = 16384;
+
+
+	// class constants
+
+	/** Number of source frames decoded at once */
+	private static final int CHUNK_FRAMES = 1024;
+
+	/** Time to sleep for while the ring is full, in nanoseconds */
+	private static final long PARK_NANOS = 2000000;
+
+
+	// instance constants
+
+	/** Read-ahead ring, interleaved stereo */
+	private final short[] ring;
+
+	/** Ring index mask, ring length minus one */
+	private final int mask;
+
+	/** Source frames, left then right channel */
+	private final short[] left, right;
+
+	/** Source sample rate in Hz */
+	private final float rate;
+
+	/** Source frames per output frame */
+	private final double step;
+
+	/** Number of requested rewinds */
+	private final AtomicInteger requested;
+
+
+	// instance variables
+
+	/** Next ring index to be read, written by the mixing thread only */
+	private volatile long head;
+
+	/** Next ring index to be written, written by the background thread only */
+	private volatile long tail;
+
+	/** Number of performed rewinds */
+	private volatile int done;
+
+	/** Ring index from which the last rewind is to be read */
+	private volatile long mark;
+
+	/** Whether the source has been exhausted since the last rewind */
+	private volatile boolean ended;
+
+	/** Whether the source restarts once exhausted */
+	private volatile boolean looping;
+
+	/** Whether this stream has been closed */
+	private volatile boolean closed;
+
+	/** Number of blocks read short of data */
+	private volatile long underruns;
+
+	/** Number of frames read since the last rewind */
+	private volatile long played;
+
+	// added in r2
+	/** Time spent decoding and number of frames decoded */
+	private volatile long decodeNanos, decoded;
+
+	// added in r3
+	/** Number of source frames decoded */
+	private volatile long sourceFrames;
+
+	/** Reference to the background thread */
+	private Thread thread;
+
+	/** Resampling state: source frames around the output frame */
+	private short prevLeft, prevRight, nextLeft, nextRight;
+
+	/** Resampling state: output position between source frames */
+	private double phase;
+
+	/** Number of valid and consumed source frames in the chunk */
+	private int chunk, chunkPosition;
+
+
+	// constructors
+
+	/** Constructs a new instance of this class
+
+		@param      rate
+					Source sample rate in Hz
+
+		@param      readAhead
+					Minimum read-ahead in frames, rounded up to a power of two
+	*/
+	protected GDMAudioStream(float rate, int readAhead) {
+		int size = Integer.highestOneBit(Math.max(readAhead, CHUNK_FRAMES));
+
+		if (size < readAhead) {
+			size <<= 1;
+		}
+		this.ring = new short[size * 2];
+		this.mask = size * 2 - 1;
+		this.left = new short[CHUNK_FRAMES];
+		this.right = new short[CHUNK_FRAMES];
+		this.rate = rate;
+		this.step = rate / GDMAudioMixer.FORMAT.getSampleRate();
+		this.requested = new AtomicInteger();
+		this.ended = true;
+	}
+
+
+	// methods
+
+	/** Starts decoding on a new background thread */
+	public synchronized void start() {
+
+		if (thread == null) {
+			thread = new Thread(this, "GDMStreamer");
+			thread.setDaemon(true);
+			thread.start();
+		}
+	}
+
+	/** Decodes ahead into the ring until closed */
+	@Override
+	public void run() {
+
+		while (!closed) {
+			int request = requested.get();
+
+			if (request != done) {
+				seek(0);
+				reset();
+				ended = false;
+				mark = tail;
+
+				// read ahead before playback resumes
+				while (!ended && getFree() >= CHUNK_FRAMES * 2) {
+					fill(CHUNK_FRAMES);
+				}
+				done = request;
+				continue;
+			}
+
+			// looping was set after the source had been exhausted
+			if (ended && looping) {
+				seek(0);
+				reset();
+				ended = false;
+			}
+
+			if (ended || getFree() < CHUNK_FRAMES * 2) {
+				LockSupport.parkNanos(PARK_NANOS);
+				continue;
+			}
+			fill(CHUNK_FRAMES);
+		}
+		release();
+	}
+
+	/** Requests playback to restart from the beginning. To be called from the
+		mixing thread only. Until the background thread has performed the
+		rewind, {@code read} mixes nothing
+	*/
+	public void rewind() {
+		played = 0;
+		requested.incrementAndGet();
+		LockSupport.unpark(thread);
+	}
+
+	/** Mixes frames from the ring into an accumulator. Never blocks. To be
+		called from the mixing thread only
+
+		@param      block
+					Interleaved stereo accumulator
+
+		@param      frames
+					Number of frames to be mixed
+
+		@param      gain
+					Linear gain at the first frame
+
+		@param      end
+					Linear gain after the last frame, ramped to linearly
+
+		@return     Number of frames mixed
+	*/
+	public int read(float[] block, int frames, float gain, float end) {
+
+		if (done != requested.get()) {
+			return 0;
+		}
+		long h = head;
+
+		if (h < mark) {
+			h = mark;
+		}
+		int length = (int) Math.min(frames * 2, tail - h);
+		float delta = (end - gain) / frames;
+
+		for (int i = 0; i < length; i += 2) {
+			block[i] += ring[(int) ((h + i) & mask)] * gain;
+			block[i + 1] += ring[(int) ((h + i + 1) & mask)] * gain;
+			gain += delta;
+		}
+		head = h + length;
+		played += length / 2;
+
+		if (length < frames * 2 && !ended) {
+			underruns++;
+		}
+		return length / 2;
+	}
+
+	/** Returns whether playback has reached the end of a non-looping source.
+		To be called from the mixing thread only
+
+		@return     {@code true} if the condition is true;
+					{@code false} otherwise
+	*/
+	public boolean isEnded() {
+		return done == requested.get() && ended && head >= tail;
+	}
+
+	/** Stops the background thread and releases the source */
+	public synchronized void close() {
+		closed = true;
+
+		if (thread != null) {
+			LockSupport.unpark(thread);
+		} else {
+			release();
+		}
+	}
+
+	/** Returns whether the source restarts once exhausted
+		@return     {@code true} if the condition is true;
+					{@code false} otherwise
+	*/
+	public boolean isLooping() {
+		return looping;
+	}
+
+	/** Sets whether the source restarts once exhausted
+		@param      looping
+					New looping state
+	*/
+	public void setLooping(boolean looping) {
+		this.looping = looping;
+		LockSupport.unpark(thread);
+	}
+
+	/** Returns the number of frames read since the last rewind, including
+		every loop
+
+		@return     frame count at the output rate
+	*/
+	public long getPlayed() {
+		return played;
+	}
+
+	/** Returns the length of the source
+
+		@return     frame count at the source rate, -1 if unknown
+	*/
+	public long getLength() {
+		return -1;
+	}
+
+	/** Returns the duration of the source
+
+		@return     duration in seconds, -1 if unknown
+	*/
+	public double getDuration() {
+		long length = getLength();
+		return length < 0 ? -1 : (double) length / rate;
+	}
+
+	// added in r2
+	/** Returns the processing time spent by the background thread per second
+		of audio, including conversion to the mixer format
+
+		@return     nanoseconds per second of audio, 0 if nothing is decoded
+	*/
+	public long getDecodeCost() {
+		long frames = decoded;
+		return frames == 0 ? 0 : (long) (decodeNanos
+			* (double) GDMAudioMixer.FORMAT.getFrameRate() / frames);
+	}
+
+	/** Returns the number of mixed blocks which ran short of data
+		@return     underrun count
+	*/
+	public long getUnderruns() {
+		return underruns;
+	}
+
+	// added in r3
+	/** Returns the amount of source data decoded, including every loop
+		@return     byte count, 0 if the size of a source frame is unknown
+	*/
+	public long getStreamed() {
+		return (long) (sourceFrames * getFrameBytes());
+	}
+
+	/** Returns the size of a source frame, which subclasses of known formats
+		override
+
+		@return     size in bytes, may be fractional for compressed formats;
+					0 if unknown
+	*/
+	protected double getFrameBytes() {
+		return 0;
+	}
+
+
+	// abstract methods
+
+	/** Moves decoding to a source frame. Called from the background thread
+
+		@param      frame
+					Source frame number
+	*/
+	protected abstract void seek(long frame);
+
+	/** Decodes source frames as 16-bit samples. Called from the background
+		thread
+
+		@param      left
+					Destination of left channel samples
+
+		@param      right
+					Destination of right channel samples
+
+		@param      frames
+					Maximum number of frames to be decoded
+
+		@return     Number of frames decoded, 0 at the end of the source
+	*/
+	protected abstract int decode(short[] left, short[] right, int frames);
+
+	/** Releases the source. Called once, after decoding has stopped */
+	protected abstract void release();
+
+
+	// helper methods
+
+	/** Returns the number of free ring slots. Data before the last rewind is
+		free, as it is never read */
+	private int getFree() {
+		return (int) (ring.length - (tail - Math.max(head, mark)));
+	}
+
+	/** Clears the resampling state */
+	private void reset() {
+		chunk = chunkPosition = 0;
+		phase = 0;
+
+		if (nextFrame()) {
+			prevLeft = nextLeft;
+			prevRight = nextRight;
+			nextFrame();
+		}
+	}
+
+	/** Writes up to a number of output frames into the ring, measuring the
+		time taken */
+	private void fill(int frames) {
+		long time = System.nanoTime();
+		long t = tail;
+		fill(frames, t);
+		decodeNanos += System.nanoTime() - time;
+		decoded += (tail - t) / 2;
+	}
+
+	/** Writes up to a number of output frames into the ring from an index */
+	private void fill(int frames, long t) {
+
+		for (int f = 0; f < frames; f++) {
+
+			while (phase >= 1) {
+				prevLeft = nextLeft;
+				prevRight = nextRight;
+				phase -= 1;
+
+				if (!nextFrame()) {
+
+					if (looping) {
+						seek(0);
+						nextFrame();
+					} else {
+						tail = t;
+						ended = true;
+						return;
+					}
+				}
+			}
+			ring[(int) (t & mask)]
+				= (short) (prevLeft + (nextLeft - prevLeft) * phase);
+			ring[(int) ((t + 1) & mask)]
+				= (short) (prevRight + (nextRight - prevRight) * phase);
+			t += 2;
+			phase += step;
+		}
+		tail = t;
+	}
+
+	/** Reads the next source frame into {@code nextLeft} and
+		{@code nextRight}, decoding a new chunk if needed */
+	private boolean nextFrame() {
+
+		if (chunkPosition >= chunk) {
+			chunk = decode(left, right, CHUNK_FRAMES);
+			chunkPosition = 0;
+
+			if (chunk <= 0) {
+				chunk = 0;
+				return false;
+			}
+			sourceFrames += chunk;
+		}
+		nextLeft = left[chunkPosition];
+		nextRight = right[chunkPosition];
+		chunkPosition++;
+		return true;
+	}
+}
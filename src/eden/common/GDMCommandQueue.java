@@ -0,0 +1,197 @@
+package eden.common;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/** The {@code GDMCommandQueue} class is a bounded, lock-free queue of
+	primitive commands, designed to pass requests from any number of threads
+	to a single real-time consumer without locking or allocating.
+	<br><br>
+	A command consists of an operation code, a target and a fixed number of
+	{@code float} parameters. Slots are claimed by producers with a single
+	compare-and-set, and handed over to the consumer through a per-slot
+	sequence number.
+
+	@version    u0r0, 10/19/2026
+*/
+public class GDMCommandQueue {
+
+	// public constants
+
+	/** Number of {@code float} parameters per command */
+	public static final int PARAMETERS = 4;
+
+
+	// instance constants
+
+	/** Slot index mask, capacity minus one */
+	private final int mask;
+
+	/** Per-slot sequence numbers, telling producers and the consumer apart */
+	private final AtomicLongArray sequences;
+
+	/** Operation codes */
+	private final int[] operations;
+
+	/** Operation targets */
+	private final int[] targets;
+
+	/** Operation parameters, {@code PARAMETERS} per slot */
+	private final float[] parameters;
+
+	/** Next position to be claimed by a producer */
+	private final AtomicLong tail;
+
+
+	// instance variables
+
+	/** Next position to be consumed, accessed by the consumer only */
+	private long head;
+
+	/** Slot of the last polled command */
+	private int current;
+
+
+	// constructors
+
+	/** Constructs a new instance of this class with a given capacity
+
+		@param      capacity
+					Minimum number of commands that may be queued, rounded up
+					to a power of two
+
+		@throws     IllegalArgumentException
+					If {@code capacity < 1}
+	*/
+	public GDMCommandQueue(int capacity) {
+
+		if (capacity < 1) {
+			throw new IllegalArgumentException("Bad capacity: " + capacity);
+		}
+		int size = Integer.highestOneBit(capacity);
+
+		if (size < capacity) {
+			size <<= 1;
+		}
+		this.mask = size - 1;
+		this.sequences = new AtomicLongArray(size);
+		this.operations = new int[size];
+		this.targets = new int[size];
+		this.parameters = new float[size * PARAMETERS];
+		this.tail = new AtomicLong();
+		this.current = -1;
+
+		for (int i = 0; i < size; i++) {
+			sequences.set(i, i);
+		}
+	}
+
+
+	// methods
+
+	/** Enqueues a command. Safe to be called from any thread
+
+		@return     {@code false} if the queue is full;
+					{@code true} otherwise
+	*/
+	public boolean offer(int operation, int target,
+		float p0, float p1, float p2, float p3) {
+
+		long position;
+		int slot;
+
+		while (true) {
+			position = tail.get();
+			slot = (int) (position & mask);
+			long difference = sequences.get(slot) - position;
+
+			if (difference == 0) {
+
+				if (tail.compareAndSet(position, position + 1)) {
+					break;
+				}
+			} else if (difference < 0) {
+				return false;
+			}
+		}
+		operations[slot] = operation;
+		targets[slot] = target;
+		int i = slot * PARAMETERS;
+		parameters[i] = p0;
+		parameters[i + 1] = p1;
+		parameters[i + 2] = p2;
+		parameters[i + 3] = p3;
+		sequences.lazySet(slot, position + 1);
+		return true;
+	}
+
+	/** Dequeues a command, whose fields are then read with the
+		{@code getOperation}, {@code getTarget} and {@code getParameter}
+		methods. To be called from the consumer thread only
+
+		@return     {@code false} if the queue is empty;
+					{@code true} otherwise
+	*/
+	public boolean poll() {
+
+		if (current >= 0) {
+			release();
+		}
+		int slot = (int) (head & mask);
+
+		if (sequences.get(slot) != head + 1) {
+			return false;
+		}
+		current = slot;
+		return true;
+	}
+
+	/** Returns the operation code of the last polled command
+		@return     operation code
+	*/
+	public int getOperation() {
+		return operations[current];
+	}
+
+	/** Returns the target of the last polled command
+		@return     target
+	*/
+	public int getTarget() {
+		return targets[current];
+	}
+
+	/** Returns a parameter of the last polled command
+
+		@param      index
+					Parameter index in [0, {@code PARAMETERS})
+
+		@return     parameter
+	*/
+	public float getParameter(int index) {
+		return parameters[current * PARAMETERS + index];
+	}
+
+	/** Returns the approximate number of queued commands
+		@return     queue depth
+	*/
+	public int size() {
+		return (int) Math.max(0, tail.get() - head);
+	}
+
+	/** Returns the number of slots
+		@return     capacity
+	*/
+	public int capacity() {
+		return mask + 1;
+	}
+
+
+	// helper methods
+
+	/** Hands the slot of the last polled command back to the producers */
+	private void release() {
+		sequences.lazySet(current, head + mask + 1);
+		head++;
+		current = -1;
+	}
+}
@@ -0,0 +1,334 @@
+package eden.common;
+
+/** The {@code GDMEffect} interface is a stage of audio processing applied by
+	a {@code GDMAudioMixer} to a block of interleaved stereo {@code float}
+	frames in place, either to a voice or to the master output.
+	<br><br>
+	Stages never allocate while processing, and are called from the mixing
+	thread only. Their parameters may be set from any thread; a change takes
+	effect from the next block.
+	<br><br>
+	The stages provided are {@code Gain}, {@code Pan}, {@code LowPass} and
+	{@code Delay}, which may be combined into a {@code Chain}.
+
+	@version    u0r0, 10/19/2026
+*/
+public interface GDMEffect {
+
+	/** Processes a block in place
+
+		@param      block
+					Interleaved stereo frames
+
+		@param      frames
+					Number of frames to be processed
+	*/
+	void process(float[] block, int frames);
+
+	/** Clears any state carried from block to block */
+	void reset();
+
+
+	// helper classes
+
+	/** A {@code Gain} scales both channels */
+	class Gain implements GDMEffect {
+
+		/** Linear gain */
+		private volatile float gain;
+
+
+		/** Constructs a new instance of this class
+
+			@param      gain
+						Linear gain
+		*/
+		public Gain(float gain) {
+			this.gain = gain;
+		}
+
+
+		/** Sets the gain
+			@param      gain
+						Linear gain
+		*/
+		public void setGain(float gain) {
+			this.gain = gain;
+		}
+
+		@Override
+		public void process(float[] block, int frames) {
+			float g = gain;
+
+			if (g == 1f) {
+				return;
+			}
+
+			for (int i = 0; i < frames * 2; i++) {
+				block[i] *= g;
+			}
+		}
+
+		@Override
+		public void reset() {
+			// stateless
+		}
+	}
+
+	/** A {@code Pan} balances the channels. At the center both are kept at
+		full level, and towards a side the other is attenuated linearly, hence
+		a centered sound keeps its level */
+	class Pan implements GDMEffect {
+
+		/** Channel gains */
+		private volatile float left, right;
+
+
+		/** Constructs a new instance of this class
+
+			@param      pan
+						Position from -1 (left) to 1 (right)
+		*/
+		public Pan(float pan) {
+			setPan(pan);
+		}
+
+
+		/** Sets the position
+			@param      pan
+						Position from -1 (left) to 1 (right)
+		*/
+		public void setPan(float pan) {
+			pan = Math.max(-1f, Math.min(1f, pan));
+			left = Math.min(1f, 1f - pan);
+			right = Math.min(1f, 1f + pan);
+		}
+
+		/** Returns whether the position is the center, where processing has
+			no effect
+
+			@return     {@code true} if the condition is true;
+						{@code false} otherwise
+		*/
+		public boolean isCenter() {
+			return left == 1f && right == 1f;
+		}
+
+		@Override
+		public void process(float[] block, int frames) {
+			float l = left, r = right;
+
+			for (int i = 0; i < frames * 2; i += 2) {
+				block[i] *= l;
+				block[i + 1] *= r;
+			}
+		}
+
+		@Override
+		public void reset() {
+			// stateless
+		}
+	}
+
+	/** A {@code LowPass} is a one-pole low-pass filter, which dulls a sound
+		at 6 dB per octave above its cutoff frequency */
+	class LowPass implements GDMEffect {
+
+		/** Smoothing coefficient, 1 to pass every frequency */
+		private volatile float coefficient;
+
+		/** Filter state per channel */
+		private float left, right;
+
+
+		/** Constructs a new instance of this class
+
+			@param      cutoff
+						Cutoff frequency in Hz, 0 to pass every frequency
+
+			@param      rate
+						Sample rate in Hz
+		*/
+		public LowPass(float cutoff, float rate) {
+			setCutoff(cutoff, rate);
+		}
+
+
+		/** Sets the cutoff frequency
+
+			@param      cutoff
+						Cutoff frequency in Hz, 0 to pass every frequency
+
+			@param      rate
+						Sample rate in Hz
+		*/
+		public void setCutoff(float cutoff, float rate) {
+			coefficient = cutoff <= 0 || cutoff >= rate / 2 ? 1f
+				: (float) (1 - Math.exp(-2 * Math.PI * cutoff / rate));
+		}
+
+		/** Returns whether every frequency is passed, where processing has no
+			effect
+
+			@return     {@code true} if the condition is true;
+						{@code false} otherwise
+		*/
+		public boolean isOpen() {
+			return coefficient == 1f;
+		}
+
+		@Override
+		public void process(float[] block, int frames) {
+			float a = coefficient, l = left, r = right;
+
+			for (int i = 0; i < frames * 2; i += 2) {
+				l += a * (block[i] - l);
+				r += a * (block[i + 1] - r);
+				block[i] = l;
+				block[i + 1] = r;
+			}
+			left = l;
+			right = r;
+		}
+
+		@Override
+		public void reset() {
+			left = right = 0f;
+		}
+	}
+
+	/** A {@code Delay} adds echoes of a sound, each fed back at a lower
+		level. Its line is allocated upon construction */
+	class Delay implements GDMEffect {
+
+		/** Delay line, interleaved stereo */
+		private final float[] line;
+
+		/** Delay in frames */
+		private volatile int delay;
+
+		/** Level of each echo relative to the previous one */
+		private volatile float feedback;
+
+		/** Level of the echoes in the output */
+		private volatile float mix;
+
+		/** Next frame of the line to be written */
+		private int position;
+
+
+		/** Constructs a new instance of this class
+
+			@param      capacity
+						Longest delay in frames
+
+			@param      delay
+						Delay in frames
+
+			@param      feedback
+						Level of each echo relative to the previous one, from
+						0 to below 1
+
+			@param      mix
+						Level of the echoes in the output
+
+			@throws     IllegalArgumentException
+						If {@code capacity < 1}
+		*/
+		public Delay(int capacity, int delay, float feedback, float mix) {
+
+			if (capacity < 1) {
+				throw new IllegalArgumentException("Bad capacity: " + capacity);
+			}
+			this.line = new float[capacity * 2];
+			setDelay(delay);
+			setFeedback(feedback);
+			setMix(mix);
+		}
+
+
+		/** Sets the delay
+			@param      delay
+						Delay in frames, up to the capacity
+		*/
+		public void setDelay(int delay) {
+			this.delay = Math.max(1, Math.min(delay, line.length / 2));
+		}
+
+		/** Sets the level of each echo relative to the previous one
+			@param      feedback
+						Level from 0 to below 1
+		*/
+		public void setFeedback(float feedback) {
+			this.feedback = Math.max(0f, Math.min(0.99f, feedback));
+		}
+
+		/** Sets the level of the echoes in the output
+			@param      mix
+						Linear level
+		*/
+		public void setMix(float mix) {
+			this.mix = mix;
+		}
+
+		@Override
+		public void process(float[] block, int frames) {
+			int capacity = line.length / 2;
+			int d = delay, p = position;
+			float f = feedback, m = mix;
+
+			for (int i = 0; i < frames * 2; i += 2) {
+				int read = p - d < 0 ? p - d + capacity : p - d;
+				float l = line[read * 2], r = line[read * 2 + 1];
+				line[p * 2] = block[i] + l * f;
+				line[p * 2 + 1] = block[i + 1] + r * f;
+				block[i] += l * m;
+				block[i + 1] += r * m;
+
+				if (++p == capacity) {
+					p = 0;
+				}
+			}
+			position = p;
+		}
+
+		@Override
+		public void reset() {
+			java.util.Arrays.fill(line, 0f);
+		}
+	}
+
+	/** A {@code Chain} applies stages in order */
+	class Chain implements GDMEffect {
+
+		/** Stages in order */
+		private final GDMEffect[] stages;
+
+
+		/** Constructs a new instance of this class
+
+			@param      stages
+						Stages in order
+		*/
+		public Chain(GDMEffect... stages) {
+			this.stages = stages.clone();
+		}
+
+
+		@Override
+		public void process(float[] block, int frames) {
+
+			for (GDMEffect stage : stages) {
+				stage.process(block, frames);
+			}
+		}
+
+		@Override
+		public void reset() {
+
+			for (GDMEffect stage : stages) {
+				stage.reset();
+			}
+		}
+	}
+}
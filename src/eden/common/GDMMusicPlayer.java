@@ -0,0 +1,162 @@
+package eden.common;
+
+/** The {@code GDMMusicPlayer} class plays one looping track at a time through
+	a {@code GDMAudioMixer}, crossfading between tracks.
+	<br><br>
+	Tracks are streams, which loop gaplessly as the background thread of a
+	stream wraps around within its ring; the line is never drained, stopped or
+	reset between loops. The playback clock is derived from the frames read by
+	the mixer less the latency of its line, so that game events synchronized
+	to it coincide with what is heard.
+
+	@version    u0r0, 10/19/2026
+*/
+public class GDMMusicPlayer {
+
+	// instance constants
+
+	/** Mixer onto which tracks are played */
+	private final GDMAudioMixer mixer;
+
+
+	// instance variables
+
+	/** Sample number of the current track, -1 if none */
+	private volatile int current;
+
+
+	// constructors
+
+	/** Constructs a new instance of this class
+
+		@param      mixer
+					Mixer onto which tracks are to be played
+	*/
+	public GDMMusicPlayer(GDMAudioMixer mixer) {
+		this.mixer = mixer;
+		this.current = -1;
+	}
+
+
+	// methods
+
+	/** Plays a track in a loop, fading out the current track meanwhile. If the
+		track is already current this method does nothing
+
+		@param      sample
+					Sample number of a stream registered to the mixer
+
+		@param      seconds
+					Duration of the crossfade, 0 to cut at once
+
+		@return     {@code false} if the request could not be queued;
+					{@code true} otherwise
+
+		@throws     IllegalArgumentException
+					If the sample is not a stream
+	*/
+	public synchronized boolean play(int sample, float seconds) throws
+		IllegalArgumentException
+	{
+		GDMAudioStream stream = mixer.getStream(sample);
+
+		if (stream == null) {
+			throw new IllegalArgumentException("Not a stream: " + sample);
+		}
+
+		if (sample == current) {
+			return true;
+		}
+		stop(seconds);
+		stream.setLooping(true);
+		current = sample;
+
+		if (seconds > 0) {
+			return mixer.play(sample, 0f)
+				&& mixer.fade(sample, 1f, seconds, false);
+		}
+		return mixer.play(sample, 1f);
+	}
+
+	/** Fades out and stops the current track
+
+		@param      seconds
+					Duration of the fade, 0 to stop at once
+	*/
+	public synchronized void stop(float seconds) {
+		int sample = current;
+
+		if (sample < 0) {
+			return;
+		}
+		current = -1;
+
+		if (seconds > 0) {
+			mixer.fade(sample, 0f, seconds, true);
+		} else {
+			mixer.stop(sample);
+		}
+	}
+
+	/** Returns the sample number of the current track
+		@return     sample number, -1 if none
+	*/
+	public int getCurrent() {
+		return current;
+	}
+
+	/** Returns the time for which the current track has been heard, including
+		every loop. Frames mixed but still queued in the line are excluded
+
+		@return     time in seconds, 0 if there is no current track
+	*/
+	public double getTime() {
+		int sample = current;
+
+		if (sample < 0) {
+			return 0;
+		}
+		GDMAudioStream stream = mixer.getStream(sample);
+
+		if (stream == null) {
+			return 0;
+		}
+		double out = stream.getPlayed() / GDMAudioMixer.FORMAT.getFrameRate();
+		GDMAudioSink sink = mixer.getSink();
+
+		if (sink != null) {
+			out -= sink.getLatency() / 1e9;
+		}
+		return Math.max(0, out);
+	}
+
+	/** Returns the position heard within the current loop of the current
+		track
+
+		@return     position in seconds, as {@code getTime} if the duration of
+					the track is unknown
+	*/
+	public double getPosition() {
+		double duration = getDuration();
+		double out = getTime();
+		return duration > 0 ? out % duration : out;
+	}
+
+	/** Returns the number of loops of the current track heard to the end
+		@return     loop count, 0 if the duration of the track is unknown
+	*/
+	public int getLoops() {
+		double duration = getDuration();
+		return duration > 0 ? (int) (getTime() / duration) : 0;
+	}
+
+
+	// helper methods
+
+	/** Returns the duration of the current track in seconds, -1 if unknown */
+	private double getDuration() {
+		int sample = current;
+		GDMAudioStream stream = sample < 0 ? null : mixer.getStream(sample);
+		return stream == null ? -1 : stream.getDuration();
+	}
+}
@@ -0,0 +1,197 @@
+package eden.common;
+
+import java.util.concurrent.locks.LockSupport;
+import javax.sound.sampled.AudioFormat;
+
+/** The {@code GDMNullSink} class discards audio data, standing in for a sound
+	card on hosts without one.
+	<br><br>
+	If paced, writes block as a line would, keeping at most {@code AHEAD}
+	periods ahead of the wall clock, so that the mixer and anything timed by
+	it run at real time. Otherwise writes return at once and mixing runs as
+	fast as the processor allows.
+	<br><br>
+	A paced sink whose written audio data has all been heard by the wall clock
+	counts an underrun, and restarts its clock from the next write as a line
+	would.
+
+	@version    u0r1, 10/19/2026
+*/
+public class GDMNullSink implements GDMAudioSink {
+
+	// public constants
+
+	/** Number of periods a paced sink accepts ahead of the wall clock */
+	public static final int AHEAD = 2;
+
+
+	// instance constants
+
+	/** Audio format of the sink */
+	private final AudioFormat format;
+
+	/** Bytes per frame */
+	private final int frameSize;
+
+	/** Period in frames */
+	private final int period;
+
+	/** Whether writes are paced to real time */
+	private final boolean paced;
+
+
+	// instance variables
+
+	/** Number of frames written */
+	private volatile long written;
+
+	/** Wall clock at which frame 0 is heard in nanoseconds, 0 if not started */
+	private volatile long origin;
+
+	// added in r1
+	/** Number of writes after every frame written had been heard */
+	private volatile long underruns;
+
+
+	// constructors
+
+	/** Constructs a new instance of this class
+
+		@param      format
+					Audio format of the sink
+
+		@param      period
+					Period in frames
+
+		@param      paced
+					Whether writes are to be paced to real time
+
+		@throws     IllegalArgumentException
+					If {@code period < 1}
+	*/
+	public GDMNullSink(AudioFormat format, int period, boolean paced) {
+
+		if (period < 1) {
+			throw new IllegalArgumentException("Bad period: " + period);
+		}
+		this.format = format;
+		this.frameSize = Math.max(1, format.getFrameSize());
+		this.period = period;
+		this.paced = paced;
+	}
+
+
+	// methods
+
+	/** Returns whether writes are paced to real time
+		@return     {@code true} if the condition is true;
+					{@code false} otherwise
+	*/
+	public boolean isPaced() {
+		return paced;
+	}
+
+
+	// overridden methods
+
+	@Override
+	public int write(byte[] buffer, int offset, int length) {
+
+		if (paced) {
+
+			long now = System.nanoTime();
+
+			if (origin == 0) {
+				origin = now;
+			} else if (now - origin > toNanos(written)) {
+				// ran dry, heard again from now on
+				underruns++;
+				origin = now - toNanos(written);
+			}
+			long due = origin + toNanos(written - (long) period * AHEAD);
+			long wait;
+
+			while ((wait = due - System.nanoTime()) > 0) {
+				LockSupport.parkNanos(wait);
+			}
+		}
+		consume(buffer, offset, length);
+		written += length / frameSize;
+		return length;
+	}
+
+	@Override
+	public void start() {
+		// paced from the first write
+	}
+
+	@Override
+	public void close() {
+		// nothing to release
+	}
+
+	/** Returns the time for a frame written now to be heard, which is the
+		written audio data ahead of the wall clock if paced
+
+		@return     latency in nanoseconds, 0 if not paced
+	*/
+	@Override
+	public long getLatency() {
+		long o = origin;
+		return o == 0 ? 0
+			: Math.max(0, toNanos(written) - (System.nanoTime() - o));
+	}
+
+	@Override
+	public int getPeriod() {
+		return period;
+	}
+
+	@Override
+	public long getWritten() {
+		return written;
+	}
+
+	@Override
+	public AudioFormat getFormat() {
+		return format;
+	}
+
+	// added in r1
+	@Override
+	public long getUnderruns() {
+		return underruns;
+	}
+
+	/** Returns a one-line report of latency and frames written
+		@return     report
+	*/
+	@Override
+	public String toString() {
+		return String.format("%.1f ms, %d frames, %s", getLatency() / 1e6,
+			written, paced ? "discarded" : "offline");
+	}
+
+
+	// helper methods
+
+	/** Consumes audio data. Discards it by default
+
+		@param      buffer
+					Audio data
+
+		@param      offset
+					Offset in bytes
+
+		@param      length
+					Length in bytes
+	*/
+	protected void consume(byte[] buffer, int offset, int length) {
+		// discarded
+	}
+
+	/** Converts a frame count to nanoseconds at the rate of the format */
+	private long toNanos(long frames) {
+		return (long) (frames * 1e9 / format.getFrameRate());
+	}
+}
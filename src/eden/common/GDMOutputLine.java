@@ -0,0 +1,416 @@
+package eden.common;
+
+import javax.sound.sampled.AudioFormat;
+import javax.sound.sampled.AudioSystem;
+import javax.sound.sampled.LineUnavailableException;
+import javax.sound.sampled.SourceDataLine;
+
+/** The {@code GDMOutputLine} class wraps a {@code SourceDataLine} opened with
+	a chosen period and buffer size, and measures its output latency.
+	<br><br>
+	The period is the amount of audio data written at once, and the buffer the
+	amount the line queues ahead of the device. Smaller sizes lower latency at
+	the cost of more frequent writes and a higher risk of underruns.
+	<br><br>
+	Once started, the first {@code CALIBRATION} writes record the frame
+	position reported by the line against the wall clock. A line fitted through
+	them gives the actual playback rate and start delay, from which the latency
+	of a frame written now is estimated without polling the line. The estimate
+	is re-anchored to the frame position of the line upon every underrun, as
+	the device stalls, and checked against it every {@code CHECK} writes for
+	drift: if they differ by more than a period, it is re-anchored and
+	calibration is redone. Underruns and the buffer fill level are tracked on
+	every write.
+	<br><br>
+	This is the {@code GDMAudioSink} which plays to a sound card.
+
+	@version    u0r1, 10/19/2026
+*/
+public class GDMOutputLine implements GDMAudioSink {
+
+	// public constants
+
+	/** Default period in frames */
+	public static final int PERIOD = 1024;
+
+	/** Number of position samples taken to calibrate */
+	public static final int CALIBRATION = 64;
+
+	/** Number of writes between checks of the estimate against the line */
+	public static final int CHECK = 64;
+
+
+	// instance constants
+
+	/** Line being wrapped */
+	private final SourceDataLine line;
+
+	/** Audio format of the line */
+	private final AudioFormat format;
+
+	/** Bytes per frame */
+	private final int frameSize;
+
+	/** Period in frames */
+	private final int period;
+
+	/** Calibration samples: wall clock in nanoseconds, frame positions */
+	private final long[] times, positions;
+
+
+	// instance variables
+
+	/** Number of frames written */
+	private volatile long written;
+
+	/** Number of writes which found the line buffer empty */
+	private volatile long underruns;
+
+	/** Whether calibration samples are being taken */
+	private volatile boolean calibrating;
+
+	/** Number of calibration samples taken */
+	private int samples;
+
+	/** Number of writes since the estimate was last checked */
+	private int checks;
+
+	/** Wall clock of the first write since start, in nanoseconds */
+	private long started;
+
+	/** Measured playback rate in frames per nanosecond, 0 if uncalibrated */
+	private volatile double rate;
+
+	/** Wall clock at which frame 0 was played, in nanoseconds */
+	private volatile double origin;
+
+
+	// constructors
+
+	/** Constructs and opens a new line with a given period and buffer size
+
+		@param      format
+					Audio format of the line
+
+		@param      period
+					Period in frames
+
+		@param      buffer
+					Buffer size in frames, 0 for the default of the line
+
+		@throws     LineUnavailableException
+					If a line can not be opened because it is unavailable
+	*/
+	public GDMOutputLine(AudioFormat format, int period, int buffer) throws
+		LineUnavailableException
+	{
+		this(AudioSystem.getSourceDataLine(format), format, period, buffer);
+	}
+	/** Opens a given line with a given period and buffer size
+
+		@param      line
+					Line to be opened
+
+		@param      format
+					Audio format of the line
+
+		@param      period
+					Period in frames
+
+		@param      buffer
+					Buffer size in frames, 0 for the default of the line
+
+		@throws     LineUnavailableException
+					If a line can not be opened because it is unavailable
+
+		@throws     IllegalArgumentException
+					If {@code period < 1} or {@code buffer < 0}
+	*/
+	public GDMOutputLine(SourceDataLine line, AudioFormat format, int period,
+		int buffer) throws LineUnavailableException {
+
+		if (period < 1) {
+			throw new IllegalArgumentException("Bad period: " + period);
+		}
+
+		if (buffer < 0) {
+			throw new IllegalArgumentException("Bad buffer: " + buffer);
+		}
+		this.line = line;
+		this.format = format;
+		this.frameSize = Math.max(1, format.getFrameSize());
+		this.period = period;
+		this.times = new long[CALIBRATION];
+		this.positions = new long[CALIBRATION];
+		this.calibrating = true;
+
+		if (buffer > 0) {
+			line.open(format, Math.max(buffer, period) * frameSize);
+		} else {
+			line.open(format);
+		}
+	}
+
+
+	// methods
+
+	/** Writes audio data to the line, blocking while its buffer is full
+
+		@param      buffer
+					Audio data
+
+		@param      offset
+					Offset in bytes
+
+		@param      length
+					Length in bytes
+
+		@return     Number of bytes written
+	*/
+	public int write(byte[] buffer, int offset, int length) {
+
+		if (written > 0 && line.isRunning()
+			&& line.available() >= line.getBufferSize()) {
+			underruns++;
+			anchor(line.getLongFramePosition());
+		}
+
+		if (started == 0) {
+			started = System.nanoTime();
+		}
+		int out = line.write(buffer, offset, length);
+		written += out / frameSize;
+
+		if (calibrating) {
+			sample();
+		} else if (++checks >= CHECK) {
+			checks = 0;
+			check();
+		}
+		return out;
+	}
+
+	/** Starts the line */
+	public void start() {
+		line.start();
+	}
+
+	/** Stops the line. Queued audio data is kept */
+	public void stop() {
+		line.stop();
+	}
+
+	/** Blocks until queued audio data has been played */
+	public void drain() {
+		line.drain();
+	}
+
+	/** Discards queued audio data and restarts calibration */
+	public void flush() {
+		line.flush();
+		written = 0;
+		started = 0;
+		calibrate();
+	}
+
+	/** Closes the line */
+	public void close() {
+		line.close();
+	}
+
+	/** Returns whether the line is open
+		@return     {@code true} if the condition is true;
+					{@code false} otherwise
+	*/
+	public boolean isOpen() {
+		return line.isOpen();
+	}
+
+	/** Requests calibration to be redone over the next {@code CALIBRATION}
+		writes, as after a device change */
+	public void calibrate() {
+		calibrating = true;
+	}
+
+	/** Returns whether calibration has completed
+		@return     {@code true} if the condition is true;
+					{@code false} otherwise
+	*/
+	public boolean isCalibrated() {
+		return rate > 0;
+	}
+
+	/** Returns the estimated time for a frame written now to be played. Once
+		calibrated, the frame position is estimated from the wall clock;
+		before, it is polled from the line
+
+		@return     latency in nanoseconds
+	*/
+	public long getLatency() {
+		double r = rate;
+		double position;
+
+		if (r > 0) {
+			position = (System.nanoTime() - origin) * r;
+		} else {
+			r = format.getFrameRate() / 1e9;
+			position = line.getLongFramePosition();
+		}
+		return (long) (Math.max(0, written - position) / r);
+	}
+
+	/** Returns the playback rate measured by calibration, which may differ
+		from the nominal rate of the line by clock drift
+
+		@return     frames per second, 0 if uncalibrated
+	*/
+	public double getMeasuredRate() {
+		return rate * 1e9;
+	}
+
+	/** Returns the time from the first write to the first frame played, as
+		measured by calibration
+
+		@return     start delay in nanoseconds, 0 if uncalibrated
+	*/
+	public long getStartDelay() {
+		return rate > 0 ? (long) (origin - started) : 0;
+	}
+
+	/** Returns the number of frames queued in the line buffer
+		@return     fill level in frames
+	*/
+	public int getFill() {
+		return (line.getBufferSize() - line.available()) / frameSize;
+	}
+
+	/** Returns the size of the line buffer
+		@return     buffer size in frames
+	*/
+	public int getBufferFrames() {
+		return line.getBufferSize() / frameSize;
+	}
+
+	/** Returns the period
+		@return     period in frames
+	*/
+	public int getPeriod() {
+		return period;
+	}
+
+	/** Returns the period
+		@return     period in bytes
+	*/
+	public int getPeriodBytes() {
+		return period * frameSize;
+	}
+
+	/** Returns the number of writes which found the line buffer empty
+		@return     underrun count
+	*/
+	@Override
+	public long getUnderruns() {
+		return underruns;
+	}
+
+	/** Returns the number of frames written
+		@return     frame count
+	*/
+	public long getWritten() {
+		return written;
+	}
+
+	/** Returns the audio format of the line
+		@return     audio format
+	*/
+	public AudioFormat getFormat() {
+		return format;
+	}
+
+	/** Returns a one-line report of latency, fill level and underruns
+		@return     report
+	*/
+	@Override
+	public String toString() {
+		return String.format("%.1f ms, %d/%d frames, %d underruns%s",
+			getLatency() / 1e6, getFill(), getBufferFrames(), underruns,
+			isCalibrated() ? "" : ", calibrating");
+	}
+
+
+	// helper methods
+
+	/** Re-anchors the estimated frame position to that of the line, keeping
+		the measured rate
+
+		@param      position
+					Frame position reported by the line
+	*/
+	private void anchor(long position) {
+		double r = rate;
+
+		if (r > 0 && position > 0) {
+			origin = System.nanoTime() - position / r;
+		}
+	}
+
+	/** Compares the estimated frame position with that of the line, and
+		re-anchors and recalibrates if they differ by more than a period */
+	private void check() {
+		long position = line.getLongFramePosition();
+		double r = rate;
+
+		if (r <= 0 || position <= 0) {
+			return;
+		}
+
+		if (Math.abs((System.nanoTime() - origin) * r - position) > period) {
+			anchor(position);
+			calibrate();
+		}
+	}
+
+	/** Records the frame position against the wall clock, and fits a line
+		through the records once there are enough */
+	private void sample() {
+		long position = line.getLongFramePosition();
+
+		// playback has not begun
+		if (position <= 0) {
+			return;
+		}
+		times[samples] = System.nanoTime();
+		positions[samples] = position;
+
+		if (++samples < CALIBRATION) {
+			return;
+		}
+		samples = 0;
+		calibrating = false;
+
+		// least squares, relative to the first record for precision
+		double t0 = times[0], p0 = positions[0];
+		double st = 0, sp = 0, stt = 0, stp = 0;
+
+		for (int i = 0; i < CALIBRATION; i++) {
+			double t = times[i] - t0, p = positions[i] - p0;
+			st += t;
+			sp += p;
+			stt += t * t;
+			stp += t * p;
+		}
+		double d = CALIBRATION * stt - st * st;
+
+		if (d <= 0) {
+			return;
+		}
+		double slope = (CALIBRATION * stp - st * sp) / d;
+
+		if (slope <= 0) {
+			return;
+		}
+		double intercept = (sp - slope * st) / CALIBRATION;
+		origin = t0 + (-p0 - intercept) / slope;
+		rate = slope;
+	}
+}
@@ -0,0 +1,306 @@
+package eden.common;
+
+import java.util.Arrays;
+
+/** The {@code GDMVoiceManager} class decides which voice of a
+	{@code GDMAudioMixer} plays a newly requested sound.
+	<br><br>
+	Each sample has a priority and a maximum number of instances. A sample at
+	its maximum steals one of its own voices. Otherwise a free voice is taken,
+	and once every voice is busy, a voice of equal or lower priority is stolen
+	according to the {@code Policy}. Requests which can not steal are dropped.
+	Dropped and stolen voices are counted.
+	<br><br>
+	Allocation is performed on the mixing thread, whereas priorities and limits
+	may be set from any thread before playback is requested.
+
+	@version    u0r0, 10/19/2026
+*/
+public class GDMVoiceManager {
+
+	// public constants
+
+	/** Default priority */
+	public static final int PRIORITY = 0;
+
+	/** Default maximum number of instances per sample, unlimited */
+	public static final int INSTANCES = Integer.MAX_VALUE;
+
+
+	// instance constants
+
+	/** Voice stealing policy */
+	private final Policy policy;
+
+	/** Priorities per sample */
+	private final int[] priorities;
+
+	/** Maximum number of instances per sample */
+	private final int[] instances;
+
+	/** Sample number per voice, -1 if free */
+	private final int[] voices;
+
+	/** Allocation order per voice */
+	private final long[] ages;
+
+	/** Audible level per voice, as reported by the mixer */
+	private final float[] levels;
+
+
+	// instance variables
+
+	/** Number of allocations made */
+	private long allocations;
+
+	/** Number of requests dropped */
+	private volatile long dropped;
+
+	/** Number of voices stolen */
+	private volatile long stolen;
+
+
+	// constructors
+
+	/** Constructs a new instance of this class
+
+		@param      voices
+					Number of voices to be managed
+
+		@param      policy
+					Policy by which a busy voice is chosen to be stolen
+
+		@throws     IllegalArgumentException
+					If {@code voices < 1}
+	*/
+	public GDMVoiceManager(int voices, Policy policy) {
+
+		if (voices < 1) {
+			throw new IllegalArgumentException("Bad voices: " + voices);
+		}
+		this.policy = policy;
+		this.priorities = new int[GDMAudioMixer.SAMPLES];
+		this.instances = new int[GDMAudioMixer.SAMPLES];
+		this.voices = new int[voices];
+		this.ages = new long[voices];
+		this.levels = new float[voices];
+		Arrays.fill(this.priorities, PRIORITY);
+		Arrays.fill(this.instances, INSTANCES);
+		Arrays.fill(this.voices, -1);
+	}
+
+
+	// methods
+
+	/** Chooses a voice for a sample. To be called from the mixing thread only
+
+		@param      sample
+					Sample number to be played
+
+		@param      level
+					Initial audible level of the new voice
+
+		@return     Voice number, which is to be ended first if busy;
+					-1 if the request is dropped
+	*/
+	public int allocate(int sample, float level) {
+		int own = 0, free = -1;
+
+		for (int i = 0; i < voices.length; i++) {
+
+			if (voices[i] == sample) {
+				own++;
+			} else if (voices[i] < 0 && free < 0) {
+				free = i;
+			}
+		}
+		int out;
+
+		if (own >= instances[sample]) {
+			out = choose(sample, Integer.MAX_VALUE);
+		} else if (free >= 0) {
+			out = free;
+		} else {
+			out = choose(-1, priorities[sample]);
+		}
+
+		if (out < 0) {
+			dropped++;
+			return -1;
+		}
+
+		if (voices[out] >= 0) {
+			stolen++;
+		}
+		voices[out] = sample;
+		ages[out] = allocations++;
+		levels[out] = level;
+		return out;
+	}
+
+	/** Marks a voice as free. To be called from the mixing thread only
+
+		@param      voice
+					Voice number
+	*/
+	public void release(int voice) {
+		voices[voice] = -1;
+	}
+
+	/** Reports the audible level of a voice, used by {@code Policy.QUIETEST}.
+		To be called from the mixing thread only
+
+		@param      voice
+					Voice number
+
+		@param      level
+					Audible level
+	*/
+	public void setLevel(int voice, float level) {
+		levels[voice] = level;
+	}
+
+	/** Returns the number of managed voices
+		@return     voice count
+	*/
+	public int getVoices() {
+		return voices.length;
+	}
+
+	/** Returns the voice stealing policy
+		@return     policy
+	*/
+	public Policy getPolicy() {
+		return policy;
+	}
+
+	/** Returns the priority of a sample
+
+		@param      sample
+					Sample number
+
+		@return     priority
+	*/
+	public int getPriority(int sample) {
+		return priorities[sample];
+	}
+
+	/** Sets the priority of a sample. Voices are only stolen by samples of
+		equal or higher priority
+
+		@param      sample
+					Sample number
+
+		@param      priority
+					New priority
+	*/
+	public void setPriority(int sample, int priority) {
+		priorities[sample] = priority;
+	}
+
+	/** Returns the maximum number of instances of a sample
+
+		@param      sample
+					Sample number
+
+		@return     maximum instance count
+	*/
+	public int getMaxInstances(int sample) {
+		return instances[sample];
+	}
+
+	/** Sets the maximum number of instances of a sample
+
+		@param      sample
+					Sample number
+
+		@param      instances
+					New maximum instance count
+
+		@throws     IllegalArgumentException
+					If {@code instances < 1}
+	*/
+	public void setMaxInstances(int sample, int instances) {
+
+		if (instances < 1) {
+			throw new IllegalArgumentException("Bad instances: " + instances);
+		}
+		this.instances[sample] = instances;
+	}
+
+	/** Resets the priority and maximum instances of a sample to defaults
+
+		@param      sample
+					Sample number
+	*/
+	public void clear(int sample) {
+		priorities[sample] = PRIORITY;
+		instances[sample] = INSTANCES;
+	}
+
+	/** Returns the number of requests dropped for lack of a voice
+		@return     dropped count
+	*/
+	public long getDropped() {
+		return dropped;
+	}
+
+	/** Returns the number of voices stolen by newer requests
+		@return     stolen count
+	*/
+	public long getStolen() {
+		return stolen;
+	}
+
+
+	// helper methods
+
+	/** Chooses a busy voice to be stolen
+
+		@param      sample
+					Sample number whose voices are candidates, or -1 for any
+
+		@param      priority
+					Highest priority of candidates
+
+		@return     Voice number, -1 if there are no candidates
+	*/
+	private int choose(int sample, int priority) {
+		int out = -1;
+
+		for (int i = 0; i < voices.length; i++) {
+			int s = voices[i];
+
+			if (s < 0 || (sample >= 0 ? s != sample
+				: priorities[s] > priority)) {
+				continue;
+			}
+
+			if (out < 0) {
+				out = i;
+			} else if (policy == Policy.QUIETEST) {
+
+				if (levels[i] < levels[out]
+					|| (levels[i] == levels[out] && ages[i] < ages[out])) {
+					out = i;
+				}
+			} else if (ages[i] < ages[out]) {
+				out = i;
+			}
+		}
+		return out;
+	}
+
+
+	// helper classes
+
+	/** Policies by which a busy voice is chosen to be stolen */
+	public enum Policy {
+
+		/** The voice playing for the longest time */
+		OLDEST,
+
+		/** The voice of the lowest audible level, then the oldest */
+		QUIETEST
+	}
+}
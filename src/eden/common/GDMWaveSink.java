@@ -0,0 +1,163 @@
+package eden.common;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+import javax.sound.sampled.AudioFormat;
+
+/** The {@code GDMWaveSink} class writes audio data to a PCM WAVE file, so
+	that mixing can be recorded, tested and benchmarked without a sound card.
+	<br><br>
+	Unpaced, it renders faster than real time. The sizes in the RIFF header
+	are filled in upon closing. In the event of an {@code IOException}, the
+	instance will be marked as {@code broken}, and further audio data is
+	discarded.
+
+	@version    u0r0, 10/19/2026
+*/
+public class GDMWaveSink extends GDMNullSink {
+
+	// class constants
+
+	/** Size of the RIFF header in bytes */
+	private static final int HEADER_SIZE = 44;
+
+
+	// instance constants
+
+	/** Channel to the file */
+	private final FileChannel channel;
+
+
+	// instance variables
+
+	/** Number of data bytes written */
+	private long size;
+
+	/** Whether an IOException has occured */
+	private volatile boolean broken;
+
+
+	// constructors
+
+	/** Constructs a new instance of this class, creating or truncating a file
+
+		@param      file
+					WAVE file to be written
+
+		@param      format
+					Audio format of the sink, 16-bit or wider signed PCM
+
+		@param      period
+					Period in frames
+
+		@param      paced
+					Whether writes are to be paced to real time
+
+		@throws     IOException
+					If an I/O exception occurs
+
+		@throws     IllegalArgumentException
+					If {@code period < 1} or the format is not little-endian
+					signed PCM of at least 16 bits
+	*/
+	public GDMWaveSink(File file, AudioFormat format, int period,
+		boolean paced) throws IOException {
+
+		super(format, period, paced);
+
+		if (format.getEncoding() != AudioFormat.Encoding.PCM_SIGNED
+			|| format.getSampleSizeInBits() < 16 || format.isBigEndian()) {
+			throw new IllegalArgumentException("Bad format: " + format);
+		}
+		this.channel = FileChannel.open(file.toPath(),
+			StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+			StandardOpenOption.TRUNCATE_EXISTING);
+		writeHeader();
+	}
+
+
+	// methods
+
+	/** Returns whether an IOException has occured
+		@return     {@code true} if the condition is true;
+					{@code false} otherwise
+	*/
+	public boolean isBroken() {
+		return broken;
+	}
+
+
+	// overridden methods
+
+	/** Fills in the header sizes and closes the file */
+	@Override
+	public synchronized void close() {
+
+		if (!channel.isOpen()) {
+			return;
+		}
+
+		try {
+			writeHeader();
+		} catch (IOException e) {
+			broken = true;
+		}
+
+		try {
+			channel.close();
+		} catch (IOException e) {
+			broken = true;
+		}
+	}
+
+	@Override
+	protected synchronized void consume(byte[] buffer, int offset,
+		int length) {
+
+		if (broken || !channel.isOpen()) {
+			return;
+		}
+		ByteBuffer data = ByteBuffer.wrap(buffer, offset, length);
+
+		try {
+			while (data.hasRemaining()) {
+				channel.write(data, HEADER_SIZE + size + data.position()
+					- offset);
+			}
+			size += length;
+		} catch (IOException e) {
+			broken = true;
+		}
+	}
+
+
+	// helper methods
+
+	/** Writes the RIFF header with the current data size */
+	private void writeHeader() throws IOException {
+		AudioFormat format = getFormat();
+		int frameSize = format.getFrameSize();
+		int rate = (int) format.getFrameRate();
+		long data = Math.min(size, 0xffffffffL - HEADER_SIZE);
+		ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE)
+			.order(ByteOrder.LITTLE_ENDIAN);
+
+		// "RIFF", "WAVE", "fmt ", "data"
+		header.putInt(0x46464952).putInt((int) (data + HEADER_SIZE - 8))
+			.putInt(0x45564157).putInt(0x20746d66).putInt(16)
+			.putShort((short) 1).putShort((short) format.getChannels())
+			.putInt(rate).putInt(rate * frameSize)
+			.putShort((short) frameSize)
+			.putShort((short) format.getSampleSizeInBits())
+			.putInt(0x61746164).putInt((int) data);
+		header.flip();
+
+		while (header.hasRemaining()) {
+			channel.write(header, header.position());
+		}
+	}
+}
@@ -0,0 +1,321 @@
+package eden.common;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+import javax.sound.sampled.UnsupportedAudioFileException;
+
+/** The {@code GDMWaveStream} class streams a PCM WAVE file from a read-only
+	memory mapping of its data chunk, so that a track of any length occupies
+	no heap and is not read in advance of playback.
+	<br><br>
+	The RIFF header is parsed by this class. Samples of 8, 16, 24 or 32 bits
+	and any number of channels are supported; channels past the second are
+	ignored. IMA ADPCM files are streamed by a {@code GDMAdpcmStream}, which
+	{@code open} chooses by the header.
+
+	@version    u0r2, 10/19/2026
+*/
+public class GDMWaveStream extends GDMAudioStream {
+
+	// class constants
+
+	/** WAVE format tag for integer PCM */
+	private static final int WAVE_FORMAT_PCM = 1;
+
+	/** WAVE format tag for extensible formats */
+	private static final int WAVE_FORMAT_EXTENSIBLE = 0xfffe;
+
+
+	// instance constants
+
+	/** Mapping of the data chunk */
+	private final MappedByteBuffer data;
+
+	/** Number of channels */
+	private final int channels;
+
+	/** Bytes per sample */
+	private final int size;
+
+	/** Bytes per frame */
+	private final int frameSize;
+
+	/** Number of frames */
+	private final long length;
+
+
+	// instance variables
+
+	/** Next frame to be decoded */
+	private long position;
+
+
+	// constructors
+
+	/** Constructs a new instance of this class with the default read-ahead
+
+		@param      file
+					WAVE file to be streamed
+
+		@throws     IOException
+					If an I/O exception occurs
+
+		@throws     UnsupportedAudioFileException
+					If the file is not a PCM WAVE file
+	*/
+	public GDMWaveStream(File file) throws
+		IOException,
+		UnsupportedAudioFileException
+	{
+		this(file, Header.read(file), READ_AHEAD);
+	}
+	/** Constructs a new instance of this class
+
+		@param      file
+					WAVE file to be streamed
+
+		@param      readAhead
+					Minimum read-ahead in frames
+
+		@throws     IOException
+					If an I/O exception occurs
+
+		@throws     UnsupportedAudioFileException
+					If the file is not a PCM WAVE file
+	*/
+	public GDMWaveStream(File file, int readAhead) throws
+		IOException,
+		UnsupportedAudioFileException
+	{
+		this(file, Header.read(file), readAhead);
+	}
+	// added in r1
+	/** Opens a WAVE file as a stream of its format with the default
+		read-ahead: a {@code GDMAdpcmStream} for IMA ADPCM, or an instance of
+		this class for PCM
+
+		@param      file
+					WAVE file to be streamed
+
+		@return     Stream of the file
+
+		@throws     IOException
+					If an I/O exception occurs
+
+		@throws     UnsupportedAudioFileException
+					If the file is neither a PCM nor an IMA ADPCM WAVE file
+	*/
+	public static GDMAudioStream open(File file) throws
+		IOException,
+		UnsupportedAudioFileException
+	{
+		Header header = Header.read(file);
+
+		if (header.format == GDMAdpcmStream.WAVE_FORMAT_IMA_ADPCM) {
+			return new GDMAdpcmStream(file, header, READ_AHEAD);
+		}
+		return new GDMWaveStream(file, header, READ_AHEAD);
+	}
+	/** Maps the data chunk described by a parsed header */
+	private GDMWaveStream(File file, Header header, int readAhead) throws
+		IOException,
+		UnsupportedAudioFileException
+	{
+		super(header.rate, readAhead);
+
+		if (header.format != WAVE_FORMAT_PCM) {
+			throw new UnsupportedAudioFileException(
+				"Bad format: " + header.format);
+		}
+
+		if (header.bits % 8 != 0 || header.bits < 8 || header.bits > 32) {
+			throw new UnsupportedAudioFileException(
+				"Bad sample size: " + header.bits);
+		}
+		this.channels = header.channels;
+		this.size = header.bits / 8;
+		this.frameSize = this.size * this.channels;
+		this.length = header.dataSize / this.frameSize;
+
+		try (FileChannel channel
+			= FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+			this.data = channel.map(FileChannel.MapMode.READ_ONLY,
+				header.dataOffset, this.length * this.frameSize);
+		}
+	}
+
+
+	// overridden methods
+
+	@Override
+	public long getLength() {
+		return length;
+	}
+
+	// added in r2
+	@Override
+	protected double getFrameBytes() {
+		return frameSize;
+	}
+
+	@Override
+	protected void seek(long frame) {
+		position = Math.max(0, Math.min(frame, length));
+	}
+
+	@Override
+	protected int decode(short[] left, short[] right, int frames) {
+		int out = (int) Math.min(frames, length - position);
+		int offset = (int) (position * frameSize);
+
+		for (int f = 0; f < out; f++) {
+			left[f] = sample(offset);
+			right[f] = channels > 1 ? sample(offset + size) : left[f];
+			offset += frameSize;
+		}
+		position += out;
+		return out;
+	}
+
+	@Override
+	protected void release() {
+		// the mapping is unmapped once collected
+	}
+
+
+	// helper methods
+
+	/** Reads a little-endian sample as its 16 most significant bits. 8-bit
+		samples are unsigned, wider ones signed */
+	private short sample(int offset) {
+
+		if (size == 1) {
+			return (short) (((data.get(offset) & 0xff) - 128) << 8);
+		}
+		return (short) ((data.get(offset + size - 1) << 8)
+			| (data.get(offset + size - 2) & 0xff));
+	}
+
+
+	// helper classes
+
+	/** A {@code Header} holds the fields of a WAVE file needed for streaming */
+	static class Header {
+
+		/** Format tag */
+		int format;
+
+		/** Number of channels */
+		int channels;
+
+		/** Sample rate in Hz */
+		float rate;
+
+		/** Bits per sample */
+		int bits;
+
+		// added in r1 {
+		/** Bytes per block */
+		int blockAlign;
+
+		/** Frames per block of a compressed format, 0 if not given */
+		int samplesPerBlock;
+
+		/** Number of frames given by the fact chunk, -1 if none */
+		long factLength = -1;
+		// } added in r1
+
+		/** File offset of the data chunk */
+		long dataOffset;
+
+		/** Size of the data chunk in bytes */
+		long dataSize;
+
+
+		/** Parses the chunks of a WAVE file up to its data chunk */
+		static Header read(File file) throws
+			IOException,
+			UnsupportedAudioFileException
+		{
+			Header out = new Header();
+			ByteBuffer buffer = ByteBuffer.allocate(40)
+				.order(ByteOrder.LITTLE_ENDIAN);
+
+			try (FileChannel channel
+				= FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+				long size = channel.size();
+				readFully(channel, buffer, 0, 12);
+
+				if (buffer.getInt(0) != 0x46464952
+					|| buffer.getInt(8) != 0x45564157) {
+					throw new UnsupportedAudioFileException("Not a WAVE file.");
+				}
+				boolean formatFound = false;
+
+				for (long offset = 12; offset + 8 <= size; ) {
+					readFully(channel, buffer, offset, 8);
+					int id = buffer.getInt(0);
+					long length = buffer.getInt(4) & 0xffffffffL;
+					offset += 8;
+
+					// "fmt "
+					if (id == 0x20746d66) {
+						readFully(channel, buffer, offset,
+							(int) Math.min(length, buffer.capacity()));
+						out.format = buffer.getShort(0) & 0xffff;
+						out.channels = buffer.getShort(2) & 0xffff;
+						out.rate = buffer.getInt(4);
+						out.blockAlign = buffer.getShort(12) & 0xffff;
+						out.bits = buffer.getShort(14) & 0xffff;
+
+						if (length >= 20) {
+							out.samplesPerBlock = buffer.getShort(18) & 0xffff;
+						}
+
+						if (out.format == WAVE_FORMAT_EXTENSIBLE
+							&& length >= 26) {
+							out.format = buffer.getShort(24) & 0xffff;
+						}
+						formatFound = true;
+
+					// "fact"
+					} else if (id == 0x74636166 && length >= 4) {
+						readFully(channel, buffer, offset, 4);
+						out.factLength = buffer.getInt(0) & 0xffffffffL;
+
+					// "data"
+					} else if (id == 0x61746164) {
+
+						if (!formatFound) {
+							break;
+						}
+						out.dataOffset = offset;
+						out.dataSize = Math.min(length, size - offset);
+						return out;
+					}
+					offset += length + (length & 1);
+				}
+			}
+			throw new UnsupportedAudioFileException("No data chunk.");
+		}
+
+		/** Reads a number of bytes at an offset into the start of a buffer */
+		private static void readFully(FileChannel channel, ByteBuffer buffer,
+			long offset, int bytes) throws IOException {
+
+			buffer.clear().limit(bytes);
+
+			while (buffer.hasRemaining()) {
+
+				if (channel.read(buffer, offset + buffer.position()) < 0) {
+					throw new IOException("Unexpected end of file.");
+				}
+			}
+		}
+	}
+}
@@ -0,0 +1,337 @@
+package eden.common.io;
+
+import java.io.PrintStream;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.locks.LockSupport;
+
+import static eden.common.shared.Constants.EOL;
+import static eden.common.shared.Constants.STDOUT;
+
+/**
+ * A {@code PrintStream} whose text is written to another {@code PrintStream}
+ * by a background thread, so that printing never waits on a console or a file.
+ * Meant to be given to a {@code Modal} printing from a real-time loop.
+ * <p>
+ * Printed text is passed through a bounded, lock-free ring. When the ring is
+ * full, the text is either dropped and counted, or the printing thread waits
+ * for room, as chosen by a {@link Policy}. Text is written in the order it was
+ * printed, and the target is flushed whenever the ring runs empty.
+ * <p>
+ * The {@code print} and {@code println} methods of {@code String},
+ * {@code Object}, and {@code char}, and the {@code write} methods, are
+ * asynchronous. Other methods write through to the target.
+ * <p>
+ * Upon JVM shutdown, or once closed, remaining text is written out, further
+ * text is written synchronously, and the number of dropped messages, if any,
+ * is reported to the target.
+ *
+ * @version u0r0, 10/19/2026.
+ */
+public class AsyncPrintStream extends PrintStream {
+
+//~~CLASS CONSTANTS~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~
+
+  /** Default number of messages held by the ring. */
+  public static final int CAPACITY = 1024;
+
+  /** Longest wait of the writer for text, in nanoseconds. */
+  private static final long IDLE_NANOS = 1_000_000;
+
+  /** Wait of a blocked printing thread for room, in nanoseconds. */
+  private static final long FULL_NANOS = 100_000;
+
+  /** Shared instance writing to {@code System.out}, made upon first use. */
+  private static AsyncPrintStream stdout;
+
+//~~OBJECT CONSTANTS~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~
+
+  /** PrintStream to which text is written. */
+  protected final PrintStream target;
+
+  /** Behavior when the ring is full. */
+  protected final Policy policy;
+
+  /** Slot index mask, capacity minus one. */
+  private final int mask;
+
+  /** Per-slot sequence numbers, telling the printers and the writer apart. */
+  private final AtomicLongArray sequences;
+
+  /** Text per slot. */
+  private final AtomicReferenceArray<String> messages;
+
+  /** Next position to be claimed by a printing thread. */
+  private final AtomicLong tail = new AtomicLong();
+
+  /** Number of messages dropped. */
+  private final AtomicLong dropped = new AtomicLong();
+
+  /** Writing thread. */
+  private final Thread writer;
+
+//~~OBJECT FIELDS~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~
+
+  /** Next position to be written. Advanced by the writer only. */
+  private volatile long head;
+
+  /** Whether the writer is waiting for text. */
+  private volatile boolean idle;
+
+  /** Whether text is written synchronously from now on. */
+  private volatile boolean closed;
+
+//~~CONSTRUCTORS~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~
+
+  /**
+   * Makes an {@code AsyncPrintStream} writing to the given {@code PrintStream}
+   * that drops messages when {@link #CAPACITY} are pending.
+   */
+  public AsyncPrintStream(PrintStream target) {
+    this(target, CAPACITY, Policy.DROP);
+  }
+
+  /**
+   * Makes an {@code AsyncPrintStream} writing to the given {@code PrintStream}
+   * with the given ring capacity and full ring policy, and starts its writer.
+   *
+   * @param capacity Minimum number of pending messages, rounded up to a power
+   * of two.
+   * @throws IllegalArgumentException if {@code capacity < 1}.
+   */
+  public AsyncPrintStream(PrintStream target, int capacity, Policy policy)
+      throws IllegalArgumentException {
+    super(target, false);
+    if (capacity < 1)
+      throw new IllegalArgumentException("capacity: " + capacity);
+    int size = Integer.highestOneBit(capacity);
+    if (size < capacity)
+      size <<= 1;
+    this.target = target;
+    this.policy = policy;
+    this.mask = size - 1;
+    this.sequences = new AtomicLongArray(size);
+    this.messages = new AtomicReferenceArray<>(size);
+    for (int i = 0; i < size; i++)
+      this.sequences.set(i, i);
+    this.writer = new Thread(this::drain, "AsyncPrintStream");
+    this.writer.setDaemon(true);
+    this.writer.start();
+    Runtime.getRuntime().addShutdownHook(new Thread(this::shutdown));
+  }
+
+//~~CLASS METHODS~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~
+
+  /**
+   * Returns the shared {@code AsyncPrintStream} writing to {@code System.out},
+   * which drops messages when full.
+   */
+  public static synchronized AsyncPrintStream getStdout() {
+    if (stdout == null)
+      stdout = new AsyncPrintStream(STDOUT);
+    return stdout;
+  }
+
+//~~OBJECT METHODS~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~
+
+  /** Returns the number of messages dropped as the ring was full. */
+  public long getDropped() {
+    return this.dropped.get();
+  }
+
+  /** Returns the approximate number of pending messages. */
+  public int getPending() {
+    return (int) Math.max(0, this.tail.get() - this.head);
+  }
+
+  /** Returns the behavior of this {@code AsyncPrintStream} when full. */
+  public Policy getPolicy() {
+    return this.policy;
+  }
+
+  /** Prints the given {@code String} asynchronously. */
+  @Override
+  public void print(String s) {
+    enqueue(String.valueOf(s));
+  }
+
+  /** Prints the given {@code Object} asynchronously. */
+  @Override
+  public void print(Object obj) {
+    enqueue(String.valueOf(obj));
+  }
+
+  /** Prints the given {@code char} asynchronously. */
+  @Override
+  public void print(char c) {
+    enqueue(String.valueOf(c));
+  }
+
+  /** Prints the line separator asynchronously. */
+  @Override
+  public void println() {
+    enqueue(EOL);
+  }
+
+  /**
+   * Prints the given {@code String} followed by the line separator
+   * asynchronously, as one message.
+   */
+  @Override
+  public void println(String s) {
+    enqueue(s + EOL);
+  }
+
+  /**
+   * Prints the given {@code Object} followed by the line separator
+   * asynchronously, as one message.
+   */
+  @Override
+  public void println(Object obj) {
+    enqueue(obj + EOL);
+  }
+
+  /**
+   * Prints the given {@code char} followed by the line separator
+   * asynchronously, as one message.
+   */
+  @Override
+  public void println(char c) {
+    enqueue(c + EOL);
+  }
+
+  /** Writes the given byte asynchronously, decoded on its own. */
+  @Override
+  public void write(int b) {
+    enqueue(String.valueOf((char) (b & 255)));
+  }
+
+  /**
+   * Writes the given bytes asynchronously, decoded with the default charset.
+   */
+  @Override
+  public void write(byte[] buf, int off, int len) {
+    enqueue(new String(buf, off, len));
+  }
+
+  /** Waits for pending messages to be written, then flushes the target. */
+  @Override
+  public void flush() {
+    long end = this.tail.get();
+    while (this.head < end && this.writer.isAlive()) {
+      LockSupport.unpark(this.writer);
+      LockSupport.parkNanos(FULL_NANOS);
+    }
+    this.target.flush();
+  }
+
+  /** Returns the error state of the target after flushing. */
+  @Override
+  public boolean checkError() {
+    flush();
+    return this.target.checkError();
+  }
+
+  /**
+   * Writes pending messages, then closes the target unless it is either
+   * {@code System.out} or {@code System.err}. Further text is written
+   * synchronously.
+   */
+  @Override
+  public void close() {
+    shutdown();
+    if (this.target != System.out && this.target != System.err)
+      this.target.close();
+  }
+
+  /** Places a message in the ring, or writes it if closed. */
+  protected void enqueue(String message) {
+    if (this.closed) {
+      synchronized (this.target) {
+        this.target.print(message);
+      }
+      return;
+    }
+    while (!offer(message)) {
+      if (this.policy == Policy.DROP || this.closed) {
+        this.dropped.incrementAndGet();
+        return;
+      }
+      LockSupport.unpark(this.writer);
+      LockSupport.parkNanos(FULL_NANOS);
+    }
+    if (this.idle)
+      LockSupport.unpark(this.writer);
+  }
+
+  /** Claims a slot for a message, returning false if the ring is full. */
+  private boolean offer(String message) {
+    long position;
+    int slot;
+    while (true) {
+      position = this.tail.get();
+      slot = (int) (position & this.mask);
+      long difference = this.sequences.get(slot) - position;
+      if (difference == 0) {
+        if (this.tail.compareAndSet(position, position + 1))
+          break;
+      } else if (difference < 0)
+        return false;
+    }
+    this.messages.lazySet(slot, message);
+    this.sequences.lazySet(slot, position + 1);
+    return true;
+  }
+
+  /** Writes messages as they arrive. Run by the writer. */
+  private void drain() {
+    while (true) {
+      long h = this.head;
+      int slot = (int) (h & this.mask);
+      if (this.sequences.get(slot) != h + 1) {
+        this.target.flush();
+        this.idle = true;
+        // recheck, a message may have arrived before idle was seen
+        if (this.sequences.get(slot) != h + 1)
+          LockSupport.parkNanos(this, IDLE_NANOS);
+        this.idle = false;
+        continue;
+      }
+      String message = this.messages.get(slot);
+      this.messages.lazySet(slot, null);
+      this.sequences.lazySet(slot, h + this.mask + 1);
+      synchronized (this.target) {
+        this.target.print(message);
+      }
+      this.head = h + 1;
+    }
+  }
+
+  /** Writes pending messages and switches to synchronous writing. */
+  private void shutdown() {
+    if (this.closed)
+      return;
+    flush();
+    this.closed = true;
+    flush();
+    long count = this.dropped.get();
+    if (count > 0)
+      synchronized (this.target) {
+        this.target.println("[AsyncPrintStream] " + count + " dropped");
+        this.target.flush();
+      }
+  }
+
+//~~INNER CLASSES~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~
+
+  /** Behavior of an {@code AsyncPrintStream} whose ring is full. */
+  public enum Policy {
+
+    /** The message is dropped and counted; printing never waits. */
+    DROP,
+
+    /** The printing thread waits for room; no message is lost. */
+    BLOCK
+  }
+}
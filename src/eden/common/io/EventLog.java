@@ -0,0 +1,347 @@
+package eden.common.io;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static eden.common.shared.Constants.STDOUT;
+
+/**
+ * A binary log of events kept in a memory-mapped ring file, for post-mortem
+ * analysis. As the pages of the file are owned by the operating system, the
+ * log survives a crash of the JVM.
+ * <p>
+ * An event is a fixed-size record of a timestamp, a source, a {@code Modal}
+ * message mode, a format, and two numbers to be formatted with it. Sources and
+ * formats are registered once, in advance, with {@link #source(String)} and
+ * {@link #define(String)}, and referred to by number. Writing a record is a
+ * handful of stores into the mapping, without system calls, allocations, or
+ * string formatting. Once the ring is full, the oldest records are
+ * overwritten.
+ * <p>
+ * The log is printed back by {@link #decode(File, PrintStream)}, or from the
+ * command line, in the {@code [name/symbol]} format of {@code Modal}:
+ * <p>
+ * <code>java eden.common.io.EventLog events.bin</code>
+ * <p>
+ * The file starts with a header, followed by a table of source names, a table
+ * of formats, and the ring. Numbers are little-endian.
+ *
+ * @version u0r0, 10/19/2026.
+ */
+public class EventLog implements Closeable {
+
+//~~CLASS CONSTANTS~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~
+
+  /** Default number of records held by the ring. */
+  public static final int CAPACITY = 1 << 16;
+
+  /** Maximum number of sources. */
+  public static final int SOURCES = 256;
+
+  /** Maximum number of formats. */
+  public static final int FORMATS = 1024;
+
+  /** Magic number: "EVLG". */
+  private static final int MAGIC = 0x474c5645;
+
+  /** File format version. */
+  private static final int VERSION = 1;
+
+  /** Size of the header in bytes. */
+  private static final int HEADER = 64;
+
+  /** Size of a source name entry in bytes, including its length. */
+  private static final int SOURCE_SIZE = 32;
+
+  /** Size of a format entry in bytes, including its length. */
+  private static final int FORMAT_SIZE = 64;
+
+  /** Offset of the source name table. */
+  private static final int SOURCE_TABLE = HEADER;
+
+  /** Offset of the format table. */
+  private static final int FORMAT_TABLE = SOURCE_TABLE + SOURCES * SOURCE_SIZE;
+
+  /** Offset of the ring. */
+  private static final int RING = FORMAT_TABLE + FORMATS * FORMAT_SIZE;
+
+  /** Size of a record in bytes. */
+  private static final int RECORD = 32;
+
+  /** Registered source names, by number. */
+  private static final List<String> sourceNames = new ArrayList<>();
+
+  /** Registered formats, by number. */
+  private static final List<String> formats = new ArrayList<>();
+
+  /** Numbers of registered source names and formats. */
+  private static final Map<String, Integer> sourceNumbers = new HashMap<>(),
+      formatNumbers = new HashMap<>();
+
+//~~OBJECT CONSTANTS~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~
+
+  /** Channel to the file. */
+  private final FileChannel channel;
+
+  /** Mapping of the whole file. */
+  private final MappedByteBuffer buffer;
+
+  /** Record index mask, capacity minus one. */
+  private final int mask;
+
+  /** Wall clock and monotonic clock at which this log was opened. */
+  private final long originMillis, originNanos;
+
+  /** Next record to be claimed. */
+  private final AtomicLong next = new AtomicLong();
+
+  /** Whether each source name and format has been written to the file. */
+  private final boolean[] sourceWritten = new boolean[SOURCES],
+      formatWritten = new boolean[FORMATS];
+
+//~~CONSTRUCTORS~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~
+
+  /**
+   * Creates or truncates the given file as an {@code EventLog} holding
+   * {@link #CAPACITY} records.
+   */
+  public EventLog(File file) throws IOException {
+    this(file, CAPACITY);
+  }
+
+  /**
+   * Creates or truncates the given file as an {@code EventLog} holding the
+   * given number of records.
+   *
+   * @param capacity Minimum number of records, rounded up to a power of two.
+   * @throws IllegalArgumentException if {@code capacity} is not within
+   * [1, 2^24].
+   */
+  public EventLog(File file, int capacity)
+      throws IOException, IllegalArgumentException {
+    if (capacity < 1 || capacity > 1 << 24)
+      throw new IllegalArgumentException("capacity: " + capacity);
+    int size = Integer.highestOneBit(capacity);
+    if (size < capacity)
+      size <<= 1;
+    this.mask = size - 1;
+    this.channel = FileChannel.open(file.toPath(), StandardOpenOption.CREATE,
+        StandardOpenOption.READ, StandardOpenOption.WRITE,
+        StandardOpenOption.TRUNCATE_EXISTING);
+    this.buffer = this.channel.map(
+        FileChannel.MapMode.READ_WRITE, 0, RING + (long) size * RECORD);
+    this.buffer.order(ByteOrder.LITTLE_ENDIAN);
+    this.originMillis = System.currentTimeMillis();
+    this.originNanos = System.nanoTime();
+    this.buffer.putInt(0, MAGIC).putInt(4, VERSION).putInt(8, RECORD)
+        .putInt(12, size).putLong(16, this.originMillis);
+  }
+
+//~~CLASS METHODS~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~
+
+  /**
+   * Registers the given source name, returning its number. Registering a name
+   * twice returns the same number.
+   *
+   * @throws IllegalStateException if {@link #SOURCES} are registered.
+   */
+  public static synchronized int source(String name)
+      throws IllegalStateException {
+    return register(name, sourceNames, sourceNumbers, SOURCES);
+  }
+
+  /**
+   * Registers the given format, returning its number. The format is applied to
+   * the {@code int} and {@code long} numbers of a record, in that order, as by
+   * {@code String.format}. Registering a format twice returns the same number.
+   *
+   * @throws IllegalStateException if {@link #FORMATS} are registered.
+   */
+  public static synchronized int define(String format)
+      throws IllegalStateException {
+    return register(format, formats, formatNumbers, FORMATS);
+  }
+
+  /**
+   * Prints every record of the given {@code EventLog} file to the given
+   * {@code PrintStream}, oldest first, each as a {@code Modal} message of its
+   * source and mode, with its time since the log was opened in seconds.
+   * Records torn by a crash are skipped.
+   *
+   * @return Number of records printed.
+   * @throws IOException if the file is not an {@code EventLog}.
+   */
+  public static int decode(File file, PrintStream out) throws IOException {
+    ByteBuffer in;
+    try (FileChannel c = FileChannel.open(file.toPath())) {
+      in = c.map(FileChannel.MapMode.READ_ONLY, 0, c.size());
+    }
+    in.order(ByteOrder.LITTLE_ENDIAN);
+    if (in.limit() < RING || in.getInt(0) != MAGIC
+        || in.getInt(4) != VERSION || in.getInt(8) != RECORD)
+      throw new IOException("Not an event log: " + file);
+    int size = in.getInt(12);
+    if (size < 1 || in.limit() < RING + (long) size * RECORD)
+      throw new IOException("Truncated event log: " + file);
+    // the newest record has the highest sequence number
+    long newest = 0;
+    for (int i = 0; i < size; i++)
+      newest = Math.max(newest, in.getInt(RING + i * RECORD) & 0xffffffffL);
+    Modal[] modals = new Modal[SOURCES];
+    int count = 0;
+    for (long n = Math.max(1, newest - size + 1); n <= newest; n++) {
+      int offset = RING + (int) ((n - 1) & (size - 1)) * RECORD;
+      if ((in.getInt(offset) & 0xffffffffL) != n)
+        continue;
+      int source = in.getShort(offset + 4) & 0xffff;
+      int mode = in.get(offset + 6) & 255;
+      long nanos = in.getLong(offset + 8);
+      int format = in.getInt(offset + 16);
+      if (source >= SOURCES || format < 0 || format >= FORMATS)
+        continue;
+      if (modals[source] == null)
+        modals[source] = new Modal(
+            readString(in, SOURCE_TABLE + source * SOURCE_SIZE), out);
+      String message;
+      try {
+        message = String.format(Locale.ROOT,
+            readString(in, FORMAT_TABLE + format * FORMAT_SIZE),
+            in.getInt(offset + 20), in.getLong(offset + 24));
+      } catch (RuntimeException e) {
+        message = " BAD FORMAT " + format;
+      }
+      modals[source].println(String.format(Locale.ROOT, "%.6f", nanos / 1e9)
+          + message, mode == 0 ? Modal.INFO : mode);
+      count++;
+    }
+    out.flush();
+    return count;
+  }
+
+  /** Prints the {@code EventLog} files given as arguments. */
+  public static void main(String[] args) throws IOException {
+    if (args.length == 0)
+      STDOUT.println("Usage: java eden.common.io.EventLog FILE...");
+    for (String arg : args)
+      decode(new File(arg), STDOUT);
+  }
+
+//~~OBJECT METHODS~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~
+
+  /**
+   * Writes a record. Safe to be called from any thread, without locking or
+   * allocating.
+   *
+   * @param source Source number from {@link #source(String)}.
+   * @param mode {@code Modal} message mode.
+   * @param format Format number from {@link #define(String)}.
+   * @param a First number to be formatted.
+   * @param b Second number to be formatted.
+   * @throws IndexOutOfBoundsException if the source or format is invalid.
+   */
+  public void write(int source, int mode, int format, int a, long b) {
+    if (!this.sourceWritten[source])
+      writeString(SOURCE_TABLE + source * SOURCE_SIZE, SOURCE_SIZE,
+          sourceName(source), this.sourceWritten, source);
+    if (!this.formatWritten[format])
+      writeString(FORMAT_TABLE + format * FORMAT_SIZE, FORMAT_SIZE,
+          formatOf(format), this.formatWritten, format);
+    long n = this.next.getAndIncrement();
+    int offset = RING + (int) (n & this.mask) * RECORD;
+    // the sequence number is cleared first and written last, so that a torn
+    // record is told apart
+    this.buffer.putInt(offset, 0)
+        .putShort(offset + 4, (short) source)
+        .put(offset + 6, (byte) mode)
+        .putLong(offset + 8, System.nanoTime() - this.originNanos)
+        .putInt(offset + 16, format)
+        .putInt(offset + 20, a)
+        .putLong(offset + 24, b)
+        .putInt(offset, (int) (n + 1));
+  }
+
+  /** Returns the number of records written, including overwritten ones. */
+  public long getWritten() {
+    return this.next.get();
+  }
+
+  /** Returns the number of records held by the ring. */
+  public int getCapacity() {
+    return this.mask + 1;
+  }
+
+  /** Returns the wall clock time at which this log was opened. */
+  public long getOriginMillis() {
+    return this.originMillis;
+  }
+
+  /** Writes the mapping out to the file. */
+  public void force() {
+    this.buffer.force();
+  }
+
+  /** Writes the mapping out to the file and closes it. */
+  @Override
+  public void close() throws IOException {
+    if (this.channel.isOpen()) {
+      force();
+      this.channel.close();
+    }
+  }
+
+  /** Writes a string entry once, at most its size minus one in bytes. */
+  private void writeString(int offset, int size, String string,
+      boolean[] written, int index) {
+    byte[] bytes = string.getBytes(StandardCharsets.UTF_8);
+    int length = Math.min(bytes.length, size - 1);
+    for (int i = 0; i < length; i++)
+      this.buffer.put(offset + 1 + i, bytes[i]);
+    this.buffer.put(offset, (byte) length);
+    written[index] = true;
+  }
+
+  /** Returns the name of a registered source. */
+  private static synchronized String sourceName(int source) {
+    return sourceNames.get(source);
+  }
+
+  /** Returns a registered format. */
+  private static synchronized String formatOf(int format) {
+    return formats.get(format);
+  }
+
+  /** Registers a string into a table, returning its number. */
+  private static int register(String string, List<String> list,
+      Map<String, Integer> numbers, int max) {
+    Integer out = numbers.get(string);
+    if (out != null)
+      return out;
+    if (list.size() >= max)
+      throw new IllegalStateException("Full: " + max);
+    list.add(string);
+    numbers.put(string, list.size() - 1);
+    return list.size() - 1;
+  }
+
+  /** Reads a string entry. */
+  private static String readString(ByteBuffer in, int offset) {
+    byte[] bytes = new byte[in.get(offset) & 255];
+    for (int i = 0; i < bytes.length; i++)
+      bytes[i] = in.get(offset + 1 + i);
+    return new String(bytes, StandardCharsets.UTF_8);
+  }
+}
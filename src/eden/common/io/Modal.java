@@ -9,6 +9,7 @@ import java.io.IOException;
 import java.io.PrintStream;
 import java.util.Locale;
 import java.util.Objects;
+import java.util.function.Supplier;
 
 import static eden.common.shared.Constants.STDOUT;
 
@@ -39,9 +40,17 @@ import static eden.common.shared.Constants.STDOUT;
  * For transitional convenience, all but the {@code write} methods of this class
  * are symbolically compatible to the ones in Java's {@code PrintStream}, and
  * that their behaviors are about the same.
+ * <p>
+ * Messages costly to build may be deferred with a {@code Supplier} or a format,
+ * which are only evaluated if their mode passes the filter, as checked by
+ * {@link #isEnabled(int)}. Tags are built once per mode. To keep printing from
+ * waiting on a console, give an {@link AsyncPrintStream}.
+ * <p>
+ * Events may also be recorded, without formatting, into the {@link EventLog}
+ * shared by every {@code Modal}, as set with {@link #setEventLog(EventLog)}.
  *
  * @author Brendon
- * @version u0r6, 04/18/2020.
+ * @version u0r7, 10/19/2026.
  */
 public class Modal implements Appendable, Closeable, Dieable, Nullifiable {
 
@@ -65,6 +74,9 @@ public class Modal implements Appendable, Closeable, Dieable, Nullifiable {
   /** Message mode: debug. */
   public static final byte DEBUG = (byte) 0b10000000;
 
+  /** EventLog shared by every Modal, or null if none. */
+  private static volatile EventLog eventLog;
+
 //~~OBJECT CONSTANTS~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~
 
   /** PrintStream to which messages are to be printed. */
@@ -76,6 +88,12 @@ public class Modal implements Appendable, Closeable, Dieable, Nullifiable {
   /** Filter bit pattern. */
   protected final byte filter;
 
+  /** Tags per message mode, built upon first use. */
+  protected final String[] tags = new String[256];
+
+  /** Source number of this Modal in EventLogs, or -1 if not registered. */
+  protected int source = -1;
+
 //~~OBJECT FIELDS~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~
 
   /** Throwable defining the death of this Modal. */
@@ -122,6 +140,21 @@ public class Modal implements Appendable, Closeable, Dieable, Nullifiable {
     this.filter = (byte) (filter & 255);
   }
 
+//~~CLASS METHODS~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~
+
+  /**
+   * Sets the {@code EventLog} into which every {@code Modal} records events.
+   * Passing a {@code null} stops recording.
+   */
+  public static void setEventLog(EventLog log) {
+    eventLog = log;
+  }
+
+  /** Returns the {@code EventLog} shared by every {@code Modal}. */
+  public static EventLog getEventLog() {
+    return eventLog;
+  }
+
 //~~OBJECT METHODS~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~
 
   /**
@@ -225,20 +258,27 @@ public class Modal implements Appendable, Closeable, Dieable, Nullifiable {
 
   /** Prints the given message with the given mode. */
   public void print(String message, int mode) {
-    if (isObjectDead())
+    if (!isEnabled(mode))
       return;
     byte pattern = (byte) (mode & 255);
-    if ((getFilter() & pattern) == 0)
-      return;
-    char symbol = getSymbol(pattern);
+    String tag = getTag(pattern);
     this.inline = pattern == this.mode;
     if (!this.inline) {
-      getPrintStream().print("[" + getName() + "/" + symbol + "] " + message);
+      getPrintStream().print(tag + message);
       this.mode = pattern;
     } else
       getPrintStream().print(message);
   }
 
+  /**
+   * Prints the message of the given {@code Supplier} with the given mode. The
+   * {@code Supplier} is not called if the mode is filtered out.
+   */
+  public void print(int mode, Supplier<String> message) {
+    if (isEnabled(mode))
+      print(message.get(), mode);
+  }
+
   /** Alias to {@link #format(String, Object...)}. */
   public Modal printf(String format, Object... arguments) {
     return format(format, arguments);
@@ -313,20 +353,65 @@ public class Modal implements Appendable, Closeable, Dieable, Nullifiable {
    * Prints the given message as the given mode followed by the line separator.
    */
   public void println(String message, int mode) {
-    if (isObjectDead())
+    if (!isEnabled(mode))
       return;
     byte pattern = (byte) (mode & 255);
-    if ((getFilter() & pattern) == 0)
-      return;
-    char symbol = getSymbol(pattern);
+    String tag = getTag(pattern);
     if (pattern != this.mode)
-      getPrintStream().println("[" + getName() + "/" + symbol + "] " + message);
+      getPrintStream().println(tag + message);
     else
       getPrintStream().println(message);
     this.mode = 0;
     this.inline = false;
   }
 
+  /**
+   * Prints the message of the given {@code Supplier} as the given mode followed
+   * by the line separator. The {@code Supplier} is not called if the mode is
+   * filtered out.
+   */
+  public void println(int mode, Supplier<String> message) {
+    if (isEnabled(mode))
+      println(message.get(), mode);
+  }
+
+  /**
+   * Prints the given formatted {@code String} as the given mode followed by the
+   * line separator, using the default {@code Locale}. Nothing is formatted if
+   * the mode is filtered out.
+   */
+  public void formatln(int mode, String format, Object... arguments) {
+    if (isEnabled(mode))
+      println(String.format(format, arguments), mode);
+  }
+
+  /**
+   * Records an event of the given mode into the shared {@code EventLog}, with
+   * this {@code Modal} as its source. Nothing is formatted, and nothing is
+   * recorded if there is no {@code EventLog} or the mode is filtered out.
+   *
+   * @param format Format number from {@link EventLog#define(String)}.
+   * @param a First number to be formatted.
+   * @param b Second number to be formatted.
+   */
+  public void event(int mode, int format, int a, long b) {
+    EventLog log = eventLog;
+    if (log == null || !isEnabled(mode))
+      return;
+    if (this.source < 0)
+      this.source = EventLog.source(getName());
+    log.write(this.source, mode, format, a, b);
+  }
+
+  /**
+   * Returns whether a message of the given mode would be printed, which is
+   * when this {@code Modal} is not dead and the mode passes its filter. Meant
+   * to be checked before building a costly message.
+   */
+  public boolean isEnabled(int mode) {
+    return (getFilter() & mode & 255) != 0 && !isObjectDead();
+  }
+
   /** Returns the {@code PrintStream} of this {@code Modal}. */
   public PrintStream getPrintStream() {
     return this.stream;
@@ -420,6 +505,16 @@ public class Modal implements Appendable, Closeable, Dieable, Nullifiable {
     }
   }
 
+  /** Returns the tag of the given message mode, including a trailing space. */
+  protected String getTag(byte pattern) {
+    String out = this.tags[pattern & 255];
+    if (out == null) {
+      out = "[" + getName() + "/" + getSymbol(pattern) + "] ";
+      this.tags[pattern & 255] = out;
+    }
+    return out;
+  }
+
   protected char getSymbol(byte pattern) {
     if (isUnusedFilter(pattern))
       throw new IllegalArgumentException(
@@ -0,0 +1,273 @@
+package eden.cpeaii;
+
+import java.io.*;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.*;
+import javax.sound.sampled.LineUnavailableException;
+import javax.sound.sampled.UnsupportedAudioFileException;
+
+import eden.common.GDMAudioEngine;
+import eden.common.io.AsyncPrintStream;
+import eden.common.io.Modal;
+
+/** An AssetLoader loads and decodes the assets listed in a manifest in
+ * parallel on a background thread pool, so that the game can show progress
+ * and start as soon as its critical assets are ready.
+ * <br><br>
+ * Each manifest line names an asset, its location and optional flags:
+ * <pre>
+ * fire  /FIRE.WAV  critical instances=4
+ * music BGM.WAV    priority=1 stream
+ * </pre>
+ * Locations beginning with / are class path resources, others are files
+ * relative to the working directory. Blank lines and lines beginning with #
+ * are ignored. Streamed assets are WAVE files played from a memory mapping
+ * rather than decoded, as music must be. Failures are reported, and leave
+ * the asset without a channel; that of a critical asset fails awaitCritical().
+ */
+public class AssetLoader {
+
+  private static final Modal modal
+      = new Modal("AssetLoader", AsyncPrintStream.getStdout());
+
+  /** Class path resource of the default manifest */
+  public static final String MANIFEST = "/ASSETS.LST";
+
+  /** Audio subsystem into which assets are loaded */
+  private final GDMAudioEngine audio;
+
+  /** Assets by name, in manifest order */
+  private final Map<String, Asset> assets = new LinkedHashMap<>();
+
+  /** Completes once every critical asset is loaded or has failed,
+   * exceptionally if any failed
+   */
+  private volatile CompletableFuture<Void> critical
+      = CompletableFuture.completedFuture(null);
+
+  /** Number of assets loaded or failed */
+  private final AtomicInteger done = new AtomicInteger();
+
+  /** Number of assets failed */
+  private final AtomicInteger failed = new AtomicInteger();
+
+  /** Time at which loading began, in nanoseconds */
+  private long started;
+
+  /** Time to load critical and all assets, in nanoseconds */
+  private volatile long criticalNanos, allNanos;
+
+  public AssetLoader(GDMAudioEngine audio) {
+    this.audio = audio;
+  }
+
+  /** Reads a manifest and begins loading its assets in the background
+   *
+   * @param manifest class path resource of the manifest
+   * @throws IOException if the manifest can not be read
+   * @throws IllegalArgumentException if a manifest line is malformed
+   */
+  public void load(String manifest) throws IOException {
+    this.started = System.nanoTime();
+    InputStream stream = getClass().getResourceAsStream(manifest);
+    if (stream == null)
+      throw new FileNotFoundException(manifest);
+    try (BufferedReader in = new BufferedReader(
+        new InputStreamReader(stream, StandardCharsets.UTF_8))) {
+      String line;
+      while ((line = in.readLine()) != null) {
+        line = line.trim();
+        if (line.isEmpty() || line.startsWith("#"))
+          continue;
+        Asset asset = new Asset(line.split("\\s+"));
+        this.assets.put(asset.name, asset);
+      }
+    }
+    if (this.assets.isEmpty()) {
+      this.criticalNanos = this.allNanos = System.nanoTime() - this.started;
+      return;
+    }
+    ExecutorService pool = Executors.newFixedThreadPool(
+        Math.min(this.assets.size(),
+            Runtime.getRuntime().availableProcessors()),
+        r -> {
+          Thread t = new Thread(r, "AssetLoader");
+          t.setDaemon(true);
+          return t;
+        });
+    java.util.List<CompletableFuture<Integer>> criticals = new ArrayList<>();
+    for (Asset asset : this.assets.values()) {
+      pool.execute(() -> load(asset));
+      if (asset.critical)
+        criticals.add(asset.channel);
+    }
+    pool.shutdown();
+    this.critical = CompletableFuture.allOf(
+        criticals.toArray(new CompletableFuture<?>[0]));
+    this.critical.thenRun(
+        () -> this.criticalNanos = System.nanoTime() - this.started);
+  }
+
+  /** Returns the channel of a loaded asset without blocking
+   *
+   * @param name asset name
+   * @return channel number, or -1 if not loaded (yet)
+   */
+  public int getChannel(String name) {
+    Asset asset = this.assets.get(name);
+    return asset == null || asset.channel.isCompletedExceptionally() ? -1
+        : asset.channel.getNow(-1);
+  }
+
+  /** Awaits for an asset to be loaded or to fail
+   *
+   * @param name asset name
+   * @return channel number, or -1 if failed or not in the manifest
+   * @throws InterruptedException if interrupted while waiting
+   */
+  public int await(String name) throws InterruptedException {
+    Asset asset = this.assets.get(name);
+    if (asset == null)
+      return -1;
+    try {
+      return asset.channel.get();
+    } catch (ExecutionException e) {
+      return -1;
+    }
+  }
+
+  /** Awaits for every critical asset to be loaded or to fail
+   *
+   * @throws InterruptedException if interrupted while waiting
+   * @throws ExecutionException if a critical asset failed, caused by why
+   */
+  public void awaitCritical() throws InterruptedException, ExecutionException {
+    this.critical.get();
+  }
+
+  /** Returns whether every critical asset is loaded or has failed
+   *
+   * @return true if the condition is met; false otherwise
+   */
+  public boolean isCriticalReady() {
+    return this.critical.isDone();
+  }
+
+  /** Returns the fraction of assets loaded or failed
+   *
+   * @return progress from 0 to 1
+   */
+  public float getProgress() {
+    return this.assets.isEmpty() ? 1
+        : (float) this.done.get() / this.assets.size();
+  }
+
+  /** Returns the time taken to load every critical asset
+   *
+   * @return nanoseconds, or 0 if not yet ready
+   */
+  public long getCriticalNanos() {
+    return this.criticalNanos;
+  }
+
+  /** Returns the time taken to load every asset
+   *
+   * @return nanoseconds, or 0 if not yet done
+   */
+  public long getAllNanos() {
+    return this.allNanos;
+  }
+
+  /** Loads an asset on a pool thread */
+  private void load(Asset asset) {
+    long time = System.nanoTime();
+    int channel = -1;
+    boolean loaded = false;
+    Exception cause = null;
+    try {
+      if (asset.location.startsWith("/")) {
+        URL url = getClass().getResource(asset.location);
+        if (url == null)
+          throw new FileNotFoundException(asset.location);
+        channel = this.audio.load(url, asset.name);
+      } else if (asset.stream)
+        channel = this.audio.loadStream(asset.location, asset.name);
+      else
+        channel = this.audio.load(asset.location, asset.name);
+      if (asset.instances > 0)
+        this.audio.setMaxInstances(channel, asset.instances);
+      this.audio.setPriority(channel, asset.priority);
+      modal.formatln(Modal.INFO, " %s: %.1f ms", asset.name,
+          (System.nanoTime() - time) / 1e6);
+      loaded = true;
+    } catch (IOException | IllegalArgumentException | IllegalStateException
+        | LineUnavailableException | UnsupportedAudioFileException e) {
+      cause = e;
+      modal.println(" " + asset.name + ": " + e,
+          asset.critical ? Modal.ERROR : Modal.ALERT);
+    } finally {
+      // also upon unchecked exceptions, so that no one waits forever
+      if (!loaded)
+        this.failed.incrementAndGet();
+      if (this.done.incrementAndGet() == this.assets.size()) {
+        this.allNanos = System.nanoTime() - this.started;
+        modal.formatln(Modal.INFO, " LOADED %d assets, %d failed, in %.1f ms",
+            this.assets.size(), this.failed.get(), this.allNanos / 1e6);
+      }
+      if (loaded || !asset.critical)
+        asset.channel.complete(channel);
+      else
+        asset.channel.completeExceptionally(cause != null ? cause
+            : new IllegalStateException(asset.name + " not loaded"));
+    }
+  }
+
+  /** An Asset is a manifest entry */
+  private static class Asset {
+
+    final String name;
+
+    final String location;
+
+    /** Whether the game waits for this asset before starting */
+    final boolean critical;
+
+    /** Whether this asset is streamed, for files only */
+    final boolean stream;
+
+    /** Maximum simultaneous voices, or 0 for the default */
+    final int instances;
+
+    /** Voice priority */
+    final int priority;
+
+    /** Channel number once loaded, -1 if failed */
+    final CompletableFuture<Integer> channel = new CompletableFuture<>();
+
+    Asset(String[] fields) {
+      if (fields.length < 2)
+        throw new IllegalArgumentException(
+            "Bad manifest line: " + String.join(" ", fields));
+      this.name = fields[0];
+      this.location = fields[1];
+      boolean critical = false, stream = false;
+      int instances = 0, priority = 0;
+      for (int i = 2; i < fields.length; i++)
+        if (fields[i].equals("critical"))
+          critical = true;
+        else if (fields[i].equals("stream"))
+          stream = true;
+        else if (fields[i].startsWith("instances="))
+          instances = Integer.parseInt(fields[i].substring(10));
+        else if (fields[i].startsWith("priority="))
+          priority = Integer.parseInt(fields[i].substring(9));
+      this.critical = critical;
+      this.stream = stream;
+      this.instances = instances;
+      this.priority = priority;
+    }
+  }
+}
@@ -2,6 +2,7 @@ package eden.cpeaii;
 
 import java.awt.*;
 import java.awt.geom.*;
+import java.nio.ByteBuffer;
 
 public class AsteroidFactory {
 
@@ -27,9 +28,13 @@ public class AsteroidFactory {
   /** Effect upon intersection between an Asteroid and another Sprite */
   private Effect effect;
 
+  // randomness
+  /** Stream drawn from for the position and shape of an Asteroid */
+  private final Randomizer random;
+
   public AsteroidFactory(
       Rectangle2D makeBounds, Rectangle2D viewBounds, int radius, Effect effect,
-      Color fill) {
+      Color fill, Randomizer random) {
     // colors
     this.fill = fill;
     // boundaries
@@ -39,13 +44,44 @@ public class AsteroidFactory {
     this.radius = (byte) radius;
     // interaction
     this.effect = effect;
+    // randomness
+    this.random = random;
   }
 
   public Asteroid make(int dX, int dY, int speed) {
     return new AsteroidImpl(
-        (int) Randomizer.random(makeBounds.getMinX(), makeBounds.getMaxX()),
-        (int) Randomizer.random(makeBounds.getMinY(), makeBounds.getMaxY()),
-        this.radius, dX, dY, speed, true, this.fill);
+        (int) this.random.nextDouble(
+            this.makeBounds.getMinX(), this.makeBounds.getMaxX()),
+        (int) this.random.nextDouble(
+            this.makeBounds.getMinY(), this.makeBounds.getMaxY()),
+        this.radius, dX, dY, speed, true, this.fill, this.random);
+  }
+
+  /** Makes an Asteroid from the state written by its save(ByteBuffer)
+   *
+   * @param in buffer positioned at the state
+   * @return Asteroid read
+   */
+  public Asteroid make(ByteBuffer in) {
+    return new AsteroidImpl(in);
+  }
+
+  /** Writes the fill color and the Randomizer state of the AsteroidFactory
+   *
+   * @param out buffer to be written at its position
+   */
+  public void save(ByteBuffer out) {
+    out.putInt(this.fill.getRGB());
+    this.random.save(out);
+  }
+
+  /** Reads the state written by save(ByteBuffer) into the AsteroidFactory
+   *
+   * @param in buffer positioned at the state
+   */
+  public void restore(ByteBuffer in) {
+    this.fill = new Color(in.getInt(), true);
+    this.random.restore(in);
   }
 
   /** Returns the rectangular bounds within which an Asteroid will be made
@@ -101,6 +137,14 @@ public class AsteroidFactory {
       this.radius = (byte) radius;
   }
 
+  /** Returns the stream drawn from for the position and shape of an Asteroid
+   *
+   * @return Randomizer of the AsteroidFactory
+   */
+  public Randomizer getRandomizer() {
+    return this.random;
+  }
+
   /** Returns the Effect upon intersection between an Asteroid and another
    * Sprite
    *
@@ -126,23 +170,27 @@ public class AsteroidFactory {
 
     public AsteroidImpl(
         int x, int y, int radius, int dX, int dY, int speed, boolean visibility,
-        Color fill) {
+        Color fill, Randomizer random) {
       super(dX, dY, speed, visibility);
       // visual
       x -= radius / 2;
       y -= radius / 2;
       Polygon polygon = new Polygon();
-      for (byte b = 0; b < POINTS; b++) {
-        int random = Randomizer.random(radius / 2, (int) (radius * (5.0 / 3)));
+      int[] radii = new int[POINTS];
+      random.fill(radii, 0, POINTS, radius / 2, (int) (radius * (5.0 / 3)));
+      for (byte b = 0; b < POINTS; b++)
         polygon.addPoint(
-            (int) (random * +Math.cos((2 * Math.PI * b) / POINTS)),
-            (int) (random * -Math.sin((2 * Math.PI * b) / POINTS))
+            (int) (radii[b] * +Math.cos((2 * Math.PI * b) / POINTS)),
+            (int) (radii[b] * -Math.sin((2 * Math.PI * b) / POINTS))
         );
-      }
       polygon.translate(x, y);
       this.path2d = new Path2D.Double(polygon);
       this.outline = OUTLINE;
       this.fill = fill;
     }
+
+    AsteroidImpl(ByteBuffer in) {
+      super(in);
+    }
   }
 }
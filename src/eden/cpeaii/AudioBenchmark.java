@@ -0,0 +1,199 @@
+package eden.cpeaii;
+
+import java.io.*;
+import java.util.Locale;
+import java.util.zip.CRC32;
+
+import javax.sound.sampled.AudioInputStream;
+import javax.sound.sampled.AudioSystem;
+
+import eden.common.GDMAdpcmStream;
+import eden.common.GDMAudioCache;
+import eden.common.GDMAudioMixer;
+import eden.common.GDMAudioSink;
+import eden.common.GDMAudioStream;
+import eden.common.GDMEffect;
+import eden.common.GDMNullSink;
+import eden.common.GDMVoiceManager;
+import eden.common.GDMWaveSink;
+import eden.common.GDMWaveStream;
+import eden.common.io.Modal;
+
+/** An AudioBenchmark mixes a scripted stretch of gameplay sounds offline,
+ * without a sound card and faster than real time, and reports how much faster
+ * than real time the mixer runs.
+ * <br><br>
+ * Requests are queued between whole updates and the mixer is driven from the
+ * same thread, so the output is deterministic: its checksum only changes with
+ * the mixing path. Optionally, the output is written to a WAVE file. The
+ * metrics of the mixer are reported along.
+ * <br><br>
+ * In adpcm mode, a WAVE file such as the music pack is encoded to IMA ADPCM,
+ * then both files are streamed through the mixer to compare their size and
+ * decoding cost per second of audio.
+ * <br><br>
+ * In dsp mode, every voice plays at once through each combination of effect
+ * stages, and at a rate other than 1 through the resampler, and the cost
+ * per voice per second of audio is reported.
+ * <br><br>
+ * Usage: java eden.cpeaii.AudioBenchmark [seconds] [out.wav]
+ * <br>
+ * Usage: java eden.cpeaii.AudioBenchmark adpcm in.wav out.wav
+ * <br>
+ * Usage: java eden.cpeaii.AudioBenchmark dsp [seconds]
+ */
+public class AudioBenchmark {
+
+  private static final Modal modal = new Modal("AudioBenchmark");
+
+  /** Frames mixed per update */
+  public static final int TICK_FRAMES
+      = (int) GDMAudioMixer.FORMAT.getFrameRate() / GameComponent.RATE;
+
+  /** Updates between shots, as when holding the fire key */
+  public static final int SHOT_INTERVAL = 4;
+
+  /** Effect stage combinations measured in dsp mode */
+  public static final String[] EFFECTS = new String[]{
+    "none", "pan", "pan+lowpass", "pan+lowpass+delay", "resample"};
+
+  /** Rate of the voices of the resample combination, a semitone up */
+  public static final float RESAMPLE_RATE = 1.0595f;
+
+  public static void main(String[] args) throws Exception {
+    if (args.length > 2 && args[0].equals("adpcm")) {
+      encode(new File(args[1]), new File(args[2]));
+      return;
+    }
+    if (args.length > 0 && args[0].equals("dsp")) {
+      int seconds = args.length > 1 ? Integer.parseInt(args[1]) : 10;
+      // warm up, then measure
+      effects(Math.max(1, seconds / 4), false);
+      effects(seconds, true);
+      return;
+    }
+    int seconds = args.length > 0 ? Integer.parseInt(args[0]) : 60;
+    File file = args.length > 1 ? new File(args[1]) : null;
+    short[] fire = new GDMAudioCache(GDMAudioMixer.FORMAT.getSampleRate())
+        .get(AudioBenchmark.class.getResource("/FIRE.WAV"));
+    // warm up, then measure
+    run(fire, Math.max(1, seconds / 4), null);
+    run(fire, seconds, file);
+  }
+
+  /** Encodes a WAVE file to IMA ADPCM, and reports the sizes and decoding
+   * costs of both
+   */
+  private static void encode(File in, File out) throws Exception {
+    long time = System.nanoTime();
+    long frames;
+    try (AudioInputStream stream = AudioSystem.getAudioInputStream(in)) {
+      frames = GDMAdpcmStream.encode(stream, out);
+    }
+    modal.println(String.format(Locale.ROOT,
+        " %s: %d frames encoded in %.1f ms, %d to %d bytes, %.2fx smaller",
+        out, frames, (System.nanoTime() - time) / 1e6, in.length(),
+        out.length(), (double) in.length() / out.length()), Modal.INFO);
+    for (File file : new File[]{in, out, in, out})
+      stream(file);
+  }
+
+  /** Streams a WAVE file through an offline mixer to its end, and reports
+   * the decoding cost
+   */
+  private static void stream(File file) throws Exception {
+    GDMAudioStream stream = GDMWaveStream.open(file);
+    GDMAudioMixer mixer = new GDMAudioMixer(
+        new GDMVoiceManager(1, GDMVoiceManager.Policy.OLDEST),
+        new GDMNullSink(GDMAudioMixer.FORMAT, TICK_FRAMES, false));
+    int track = mixer.register(stream);
+    mixer.play(track, 1f);
+    do
+      mixer.render(TICK_FRAMES);
+    while (mixer.isPlaying(track));
+    modal.println(String.format(Locale.ROOT,
+        " %s: %s, %.3f ms per second of audio", file,
+        stream.getClass().getSimpleName(), stream.getDecodeCost() / 1e6),
+        Modal.INFO);
+    mixer.close();
+  }
+
+  /** Mixes every voice at once through each combination of effect stages,
+   * optionally reporting the cost per voice
+   */
+  private static void effects(int seconds, boolean report) {
+    int rate = (int) GDMAudioMixer.FORMAT.getFrameRate();
+    short[] tone = new short[rate * 2 * (seconds + 1)];
+    for (int i = 0; i < tone.length; i++)
+      tone[i] = (short) (8000 * Math.sin(i * 0.01));
+    for (int e = 0; e < EFFECTS.length; e++) {
+      GDMVoiceManager voices = new GDMVoiceManager(
+          GDMAudioMixer.VOICES, GDMVoiceManager.Policy.OLDEST);
+      GDMAudioMixer mixer = new GDMAudioMixer(voices,
+          new GDMNullSink(GDMAudioMixer.FORMAT, TICK_FRAMES, false));
+      int sample = mixer.register(tone);
+      if (e == 3)
+        mixer.setMasterEffect(
+            new GDMEffect.Delay(rate / 4, rate / 4, 0.5f, 0.35f));
+      for (int v = 0; v < GDMAudioMixer.VOICES; v++)
+        if (e == 4)
+          mixer.play(sample, 1f / GDMAudioMixer.VOICES, 0, 0, RESAMPLE_RATE);
+        else
+          mixer.play(sample, 1f / GDMAudioMixer.VOICES, e > 0 ? 0.5f : 0,
+              e > 1 ? GameComponent.EXPLOSION_CUTOFF : 0);
+      long time = System.nanoTime();
+      mixer.render((long) seconds * rate);
+      time = System.nanoTime() - time;
+      mixer.close();
+      if (report)
+        modal.println(String.format(Locale.ROOT,
+            " %-18s %d voices, %.1f us per voice per second of audio,"
+            + " %.3f%% of a core", EFFECTS[e], GDMAudioMixer.VOICES,
+            time / 1e3 / GDMAudioMixer.VOICES / seconds,
+            time / 1e7 / GDMAudioMixer.VOICES / seconds), Modal.INFO);
+    }
+  }
+
+  /** Mixes a number of seconds of autofire, and reports the mixing rate and
+   * the checksum of the output
+   */
+  private static void run(short[] fire, int seconds, File file)
+      throws IOException {
+    CRC32 crc = new CRC32();
+    GDMAudioSink sink = file == null
+        ? new GDMNullSink(GDMAudioMixer.FORMAT, TICK_FRAMES, false) {
+          @Override
+          protected void consume(byte[] buffer, int offset, int length) {
+            crc.update(buffer, offset, length);
+          }
+        }
+        : new GDMWaveSink(file, GDMAudioMixer.FORMAT, TICK_FRAMES, false) {
+          @Override
+          protected void consume(byte[] buffer, int offset, int length) {
+            super.consume(buffer, offset, length);
+            crc.update(buffer, offset, length);
+          }
+        };
+    GDMVoiceManager voices
+        = new GDMVoiceManager(16, GDMVoiceManager.Policy.OLDEST);
+    GDMAudioMixer mixer = new GDMAudioMixer(voices, sink);
+    int shot = mixer.register(fire);
+    voices.setMaxInstances(shot, 4);
+    int ticks = seconds * GameComponent.RATE;
+    long time = System.nanoTime();
+    for (int t = 0; t < ticks; t++) {
+      if (t % SHOT_INTERVAL == 0)
+        mixer.play(shot, 1f);
+      mixer.render(TICK_FRAMES);
+    }
+    time = System.nanoTime() - time;
+    mixer.close();
+    modal.println(String.format(Locale.ROOT,
+        " %d s in %.1f ms, %.0fx real time, %.1f ns/frame, %d stolen,"
+        + " crc %08x%s", seconds, time / 1e6, seconds * 1e9 / time,
+        (double) time / sink.getWritten(), voices.getStolen(),
+        crc.getValue(), file == null ? "" : ", written to " + file),
+        Modal.INFO);
+    modal.println(" " + mixer.getMetrics(), Modal.INFO);
+  }
+}
@@ -2,12 +2,15 @@ package eden.cpeaii;
 
 import java.awt.*;
 import java.awt.geom.*;
+import java.nio.ByteBuffer;
 
+import eden.common.io.AsyncPrintStream;
 import eden.common.io.Modal;
 
 public class BlasterFactory {
 
-  private static final Modal modal = new Modal("BlasterFactory");
+  private static final Modal modal
+      = new Modal("BlasterFactory", AsyncPrintStream.getStdout());
 
   // color
   /** Outline color of a Blaster to be drawn with */
@@ -63,6 +66,25 @@ public class BlasterFactory {
     this.counter = 0;
   }
 
+  /** Makes a BlasterFactory from the state written by save(ByteBuffer)
+   *
+   * @param in buffer positioned at the state
+   */
+  public BlasterFactory(ByteBuffer in) {
+    // boundaries
+    this.makeBounds = new Rectangle2D.Double(in.getDouble(), in.getDouble(),
+        in.getDouble(), in.getDouble());
+    // attributes
+    this.power = in.get() != 0;
+    this.level = in.get();
+    this.ready = in.get() != 0;
+    this.timeout = in.get();
+    // interaction
+    this.effect = Effect.values()[in.get()];
+    // automation
+    this.counter = in.get();
+  }
+
   public Blaster make(int dX, int dY) {
     if (isPowered() && isReady()) {
       this.ready = false;
@@ -74,6 +96,28 @@ public class BlasterFactory {
     return null;
   }
 
+  /** Makes a Blaster from the state written by its save(ByteBuffer)
+   *
+   * @param in buffer positioned at the state
+   * @return Blaster read
+   */
+  public Blaster make(ByteBuffer in) {
+    return new BlasterImpl(in);
+  }
+
+  /** Writes the state of the BlasterFactory
+   *
+   * @param out buffer to be written at its position
+   */
+  public void save(ByteBuffer out) {
+    out.putDouble(this.makeBounds.getX()).putDouble(this.makeBounds.getY())
+        .putDouble(this.makeBounds.getWidth())
+        .putDouble(this.makeBounds.getHeight())
+        .put((byte) (this.power ? 1 : 0)).put(this.level)
+        .put((byte) (this.ready ? 1 : 0)).put(this.timeout)
+        .put((byte) this.effect.ordinal()).put(this.counter);
+  }
+
   /** Updates the BlasterFactory. This method updates the ready state as
    * necessary.
    */
@@ -220,5 +264,9 @@ public class BlasterFactory {
       this.outline = OUTLINE;
       this.fill = FILL;
     }
+
+    BlasterImpl(ByteBuffer in) {
+      super(in);
+    }
   }
 }
@@ -0,0 +1,220 @@
+package eden.cpeaii;
+
+import java.awt.image.*;
+import java.io.*;
+import java.nio.*;
+import java.nio.channels.*;
+import java.nio.file.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.*;
+import javax.imageio.ImageIO;
+
+import eden.common.io.AsyncPrintStream;
+import eden.common.io.Modal;
+
+/** A FrameCapture records frames rendered off-screen into pooled
+ * BufferedImages. Encoding happens on a background thread pool, so the thread
+ * rendering frames never waits on it: when every pooled image is still being
+ * encoded, acquire() returns null and the frame is dropped instead.
+ * <br><br>
+ * Frames are written either as a PNG sequence, or as an uncompressed rgb24
+ * video stream in a single file, to which each frame is written at its own
+ * offset so that encoders may finish out of order. Dropped frames are left
+ * black in the stream, keeping it in time.
+ */
+public class FrameCapture implements Closeable {
+
+  private static final Modal modal
+      = new Modal("FrameCapture", AsyncPrintStream.getStdout());
+
+  public enum Format {
+    PNG,
+    RAW;
+  }
+
+  // attributes
+  /** Directory into which frames are written */
+  private final Path directory;
+
+  /** Output format */
+  private final Format format;
+
+  /** Frame dimensions */
+  private final int width, height;
+
+  // pooling
+  /** Images free to be rendered into */
+  private final BlockingQueue<BufferedImage> free;
+
+  /** Threads to encode frames on */
+  private final ExecutorService encoders;
+
+  /** Raw video stream, if the format is RAW */
+  private final FileChannel channel;
+
+  /** Per-encoder conversion buffer for RAW */
+  private final ThreadLocal<ByteBuffer> buffers;
+
+  // statistics
+  /** Number of the next frame to be submitted */
+  private long frame = 0;
+
+  /** Number of frames dropped for want of a free image */
+  private final AtomicLong dropped = new AtomicLong();
+
+  /** Number of frames written */
+  private final AtomicLong written = new AtomicLong();
+
+  /** Whether this FrameCapture is closed */
+  private volatile boolean closed = false;
+
+  public FrameCapture(
+      Path directory, Format format, int width, int height, int images,
+      int threads) throws IOException {
+    this.directory = Files.createDirectories(directory);
+    this.format = format;
+    this.width = width;
+    this.height = height;
+    this.free = new ArrayBlockingQueue<>(images);
+    for (int i = 0; i < images; i++)
+      this.free.add(new BufferedImage(width, height,
+          BufferedImage.TYPE_INT_RGB));
+    this.encoders = Executors.newFixedThreadPool(threads, r -> {
+      Thread t = new Thread(r, "FrameCapture");
+      t.setDaemon(true);
+      t.setPriority(Thread.MIN_PRIORITY);
+      return t;
+    });
+    if (format == Format.RAW) {
+      this.channel = FileChannel.open(
+          directory.resolve("capture-" + width + "x" + height + ".rgb24"),
+          StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+          StandardOpenOption.TRUNCATE_EXISTING);
+      this.buffers = ThreadLocal.withInitial(() -> ByteBuffer.allocateDirect(
+          width * height * 3));
+    } else {
+      this.channel = null;
+      this.buffers = null;
+    }
+  }
+
+  /** Makes a FrameCapture as configured by the system properties
+   * cpeaii.capture (png or raw), cpeaii.capture.dir, cpeaii.capture.images and
+   * cpeaii.capture.threads
+   *
+   * @return FrameCapture, or null if capture is not enabled
+   */
+  public static FrameCapture fromProperties(int width, int height)
+      throws IOException {
+    String format = System.getProperty("cpeaii.capture");
+    if (format == null)
+      return null;
+    int threads = Math.max(1,
+        Runtime.getRuntime().availableProcessors() - 1);
+    return new FrameCapture(
+        Paths.get(System.getProperty("cpeaii.capture.dir", "capture")),
+        Format.valueOf(format.toUpperCase()), width, height,
+        Integer.getInteger("cpeaii.capture.images", threads * 2 + 2),
+        Integer.getInteger("cpeaii.capture.threads", threads));
+  }
+
+  /** Returns a free image to render a frame into, without blocking
+   *
+   * @return image, or null if none is free, in which case the frame counts as
+   * dropped
+   */
+  public BufferedImage acquire() {
+    BufferedImage out = this.closed ? null : this.free.poll();
+    if (out == null) {
+      this.dropped.incrementAndGet();
+      this.frame++;
+    }
+    return out;
+  }
+
+  /** Hands a rendered image obtained from acquire() over to the encoders
+   *
+   * @param image rendered image
+   */
+  public void submit(BufferedImage image) {
+    final long number = this.frame++;
+    this.encoders.execute(() -> {
+      try {
+        if (this.format == Format.PNG)
+          writePng(image, number);
+        else
+          writeRaw(image, number);
+        this.written.incrementAndGet();
+      } catch (IOException e) {
+        modal.println(" " + number + ": " + e, Modal.ERROR);
+      } finally {
+        this.free.add(image);
+      }
+    });
+  }
+
+  /** Waits for pending frames to be encoded, then releases the encoders and
+   * the video stream
+   */
+  @Override
+  public synchronized void close() {
+    if (this.closed)
+      return;
+    this.closed = true;
+    this.encoders.shutdown();
+    try {
+      this.encoders.awaitTermination(1, TimeUnit.MINUTES);
+      if (this.channel != null)
+        this.channel.close();
+    } catch (InterruptedException | IOException e) {
+      modal.println(" CLOSE: " + e, Modal.ERROR);
+    }
+    modal.println(" " + this.written + " written, " + this.dropped
+        + " dropped to " + this.directory, Modal.INFO);
+  }
+
+  /** Returns the number of frames submitted or dropped
+   *
+   * @return frame count
+   */
+  public long getFrames() {
+    return this.frame;
+  }
+
+  /** Returns the number of frames dropped for want of a free image
+   *
+   * @return dropped frame count
+   */
+  public long getDropped() {
+    return this.dropped.get();
+  }
+
+  /** Returns the number of frames written
+   *
+   * @return written frame count
+   */
+  public long getWritten() {
+    return this.written.get();
+  }
+
+  private void writePng(BufferedImage image, long number) throws IOException {
+    Path path = this.directory.resolve(String.format("%08d.png", number));
+    try (FileChannel out = FileChannel.open(path, StandardOpenOption.CREATE,
+        StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+      ImageIO.write(image, "png", Channels.newOutputStream(out));
+    }
+  }
+
+  private void writeRaw(BufferedImage image, long number) throws IOException {
+    int[] pixels
+        = ((DataBufferInt) image.getRaster().getDataBuffer()).getData();
+    ByteBuffer buffer = this.buffers.get();
+    buffer.clear();
+    for (int p : pixels)
+      buffer.put((byte) (p >> 16)).put((byte) (p >> 8)).put((byte) p);
+    buffer.flip();
+    long position = number * this.width * this.height * 3;
+    while (buffer.hasRemaining())
+      position += this.channel.write(buffer, position);
+  }
+}
@@ -2,22 +2,51 @@ package eden.cpeaii;
 
 import java.awt.*;
 import java.awt.event.*;
+import java.awt.geom.AffineTransform;
 import java.awt.geom.Rectangle2D;
+import java.awt.image.BufferedImage;
 import java.util.*;
 import javax.swing.JComponent;
 import javax.swing.Timer;
 
 import eden.common.GDMAudioEngine;
+import eden.common.GDMAudioMetrics;
+import eden.common.GDMAudioMixer;
+import eden.common.GDMAudioSink;
+import eden.common.GDMEffect;
+import eden.common.GDMNullSink;
+import eden.common.GDMOutputLine;
+import eden.common.GDMWaveSink;
+import eden.common.GDMMusicPlayer;
+import eden.common.GDMVoiceManager;
+import eden.common.io.AsyncPrintStream;
+import eden.common.io.EventLog;
+import eden.common.io.Modal;
+import java.io.File;
 import java.io.IOException;
-import java.net.URL;
-import javax.sound.sampled.LineUnavailableException;
-import javax.sound.sampled.UnsupportedAudioFileException;
+import java.nio.BufferOverflowException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.file.Paths;
+import java.util.concurrent.ExecutionException;
+import java.lang.management.ManagementFactory;
 
 public class GameComponent extends JComponent {
 
+  private static final Modal modal
+      = new Modal("GameComponent", AsyncPrintStream.getStdout());
+
+  /** Event formats */
+  private static final int
+      GAME_OVER = EventLog.define(" GAME OVER, score %d at tick %d"),
+      FIELD = EventLog.define(" FIELD %d at tick %d");
+
   /** Updates per second */
   public static final byte RATE = 60;
 
+  /** Logical resolution, independent of the window size */
+  public static final int WIDTH = 640, HEIGHT = 480;
+
   /** Text font */
   public static final Font FONT = new Font(Font.MONOSPACED, Font.BOLD, 16);
 
@@ -45,20 +74,43 @@ public class GameComponent extends JComponent {
     STARDUST_COLOR_DEFAULT
   };
   public static final int[] STARDUST_LENGTHS = new int[]{2, 4, 0};
+  public static final int[] STARDUST_DENSITIES = new int[]{16, 24, 32};
+
+  /** Times into the music in seconds at which each field begins, and after
+   * which no more Asteroids are generated
+   */
+  public static final double[] FIELD_TIMES = new double[]{0, 165, 275};
+  public static final double FIELD_END = 310;
+
+  /** Stereo position of sounds at the edges of the field, from 0 to 1 */
+  public static final float PAN_WIDTH = 0.6f;
+
+  /** Low-pass cutoffs in Hz of the shot sound played as explosions */
+  public static final float EXPLOSION_CUTOFF = 900, SHIP_EXPLOSION_CUTOFF = 300;
+
+  /** Largest pitch variation of repeated sounds, in hundredths of the rate */
+  public static final int PITCH_VARIATION = 6;
+
+  /** Rate at which sounds play once the game is over, music excepted */
+  public static final float SLOW_MOTION = 0.6f;
+
+  /** Ticks recorded after the game is over, before a Replay ends */
+  public static final int REPLAY_TAIL = 3 * RATE;
 
   /** Audio subsystem */
   public static int[] sounds;
-  public static final GDMAudioEngine audio = new GDMAudioEngine(3);
+  public static final GDMAudioEngine audio = new GDMAudioEngine(3,
+      new GDMVoiceManager(Integer.getInteger("cpeaii.voices", 16),
+          "quietest".equalsIgnoreCase(
+              System.getProperty("cpeaii.voices.policy"))
+              ? GDMVoiceManager.Policy.QUIETEST
+              : GDMVoiceManager.Policy.OLDEST));
 
-  {
-    try {
-      URL fire = getClass().getResource("/FIRE.WAV");
-      sounds = new int[]{audio.load(fire), audio.load(fire)};
-      audio.load("BGM.WAV", "music");
-    } catch (IOException | IllegalStateException | LineUnavailableException
-        | UnsupportedAudioFileException e) {
-    }
-  }
+  /** Loads the assets listed in AssetLoader.MANIFEST in the background */
+  private final AssetLoader loader = new AssetLoader(audio);
+
+  /** Time at which the GameComponent was constructed, in nanoseconds */
+  private final long constructed = System.nanoTime();
 
   /** Main timer */
   private final Timer timer;
@@ -70,16 +122,103 @@ public class GameComponent extends JComponent {
   /** FocusListener responding to window focus changes */
   private final FocusListener focusListener;
 
+  /** KeyListener saving and restoring snapshots, and rewinding, kept after
+   * the game is over
+   */
+  private final KeyListener keyListenerSnapshot;
+
   /** A slightly enlarged Rectangle2D of the bounds defining the GameComponent.
    * This determines the region in which a Sprite is visible. If done correctly,
    * it should allow off-screen drawing of a Sprite whose viewBounds--not
    * makeBounds--is assigned to this.
    */
-  private Rectangle2D extendedBounds;
+  private final Rectangle2D extendedBounds = new Rectangle2D.Double(
+      -16.0, -16.0, WIDTH + 32.0, HEIGHT + 32.0);
+
+  /** Rectangle2D of the logical bounds of the GameComponent */
+  private final Rectangle2D bounds
+      = new Rectangle2D.Double(0, 0, WIDTH, HEIGHT);
 
   /** Used for time-based behaviors */
   private int counter = 0;
 
+  /** Channel of the music, or -1 if there is none */
+  private volatile int music = -1;
+
+  /** Position in seconds which fields follow: the music as heard, or the
+   * counter if there is no music
+   */
+  private double clock = 0;
+
+  /** Number of music loops heard */
+  private int loops = 0;
+
+  /** Whether Asteroids are generated, until the clock reaches FIELD_END */
+  private boolean generating = true;
+
+  /** Counter at which the game was over */
+  private int gameOverTick;
+
+  // quality
+  /** Steps rendering quality to hold the update rate */
+  private final QualityGovernor governor = new QualityGovernor(RATE, RATE);
+
+  /** Time spent updating since the last paint in nanoseconds */
+  private long updateNanos = 0;
+
+  /** Number of StarDustTiles to be drawn and updated */
+  private int starDustLayers;
+
+  /** Optional renderer bypassing Java2D, enabled with the system property
+   * cpeaii.renderer=software
+   */
+  private SoftwareRenderer renderer;
+
+  // presentation
+  /** Back buffer at the device resolution of the viewport, or at the
+   * logical resolution with integer scaling. Rebuilt by layoutViewport.
+   */
+  private BufferedImage frame;
+
+  /** GraphicsConfiguration for which the back buffer was made */
+  private GraphicsConfiguration frameConfiguration;
+
+  /** Whether to scale by whole multiples only, without filtering. Enabled
+   * with the system property cpeaii.scaling=integer
+   */
+  private final boolean integerScaling
+      = "integer".equalsIgnoreCase(System.getProperty("cpeaii.scaling"));
+
+  /** Whether to show audio latency, buffer fill level, mix time and
+   * underruns. Enabled with the system property cpeaii.audio.stats=true
+   */
+  private final boolean audioStats = Boolean.getBoolean("cpeaii.audio.stats");
+
+  /** Measures the latency from a key to the frame showing its result,
+   * reported on exit. Shown with the system property cpeaii.latency.stats=true
+   */
+  private final LatencyProbe latency = new LatencyProbe();
+
+  /** Whether to show input latencies */
+  private final boolean latencyStats
+      = Boolean.getBoolean("cpeaii.latency.stats");
+
+  /** Device pixel size for which the viewport was laid out */
+  private int deviceWidth, deviceHeight;
+
+  /** Region in device pixels onto which frames are scaled */
+  private final Rectangle viewport = new Rectangle();
+
+  /** Regions in device pixels around the viewport */
+  private Rectangle[] letterbox = new Rectangle[0];
+
+  /** Optional off-screen frame recorder, see FrameCapture.fromProperties */
+  private FrameCapture capture;
+
+  /** Number of frames after which to stop capturing and exit, or 0 */
+  private final int captureFrames
+      = Integer.getInteger("cpeaii.capture.frames", 0);
+
   // Sprites
   private Ship ship;
   private Set<Asteroid> asteroids;
@@ -92,11 +231,11 @@ public class GameComponent extends JComponent {
   private StarDustTile[] starDustTiles;
 
   // interrupt buffers
-  /** Input buffer to be used by the KeyListener */
-  private Set<Integer> inputBuffer;
+  /** Key events from the KeyListener, applied once per tick */
+  private final InputQueue input = new InputQueue();
 
-  /** Game state */
-  private GameMode mode = GameMode.PLAY;
+  /** Game state, WAIT until the critical assets are loaded */
+  private GameMode mode = GameMode.WAIT;
 
   /** Game score */
   private int score = 0;
@@ -107,108 +246,598 @@ public class GameComponent extends JComponent {
   /** Game theme */
   private byte theme = 0;
 
+  // randomness
+  /** Seed of the session, from the system property cpeaii.seed if set, from
+   * which every stream is split
+   */
+  private long seed = Long.getLong("cpeaii.seed", Randomizer.newSeed());
+
+  /** Stream of the Asteroids, which decide the game and are hence kept apart
+   * from the streams of the LineParticles and StarDustTiles, whose numbers
+   * drawn follow the quality level
+   */
+  private Randomizer asteroidRandom;
+
+  // replays
+  /** Session played back, from the system property cpeaii.replay=FILE */
+  private Replay.Reader replay;
+
+  /** Session recorded, into the system property cpeaii.record=FILE */
+  private Replay.Writer recorder;
+
+  /** Speed of a playback relative to real time, 0 for as fast as possible
+   * without rendering. Set with the system property cpeaii.replay.speed
+   */
+  private final float replaySpeed = Float.parseFloat(
+      System.getProperty("cpeaii.replay.speed", "1"));
+
+  /** Whether a playback diverged from its recording */
+  private boolean diverged;
+
+  // snapshots
+  /** Snapshot saved with F5 and restored with F9 */
+  private final Snapshot snapshot = new Snapshot();
+
+  /** File into which snapshots are also written, and from which one is read
+   * if none was saved, from the system property cpeaii.snapshot=FILE
+   */
+  private final String snapshotFile = System.getProperty("cpeaii.snapshot");
+
+  /** Key of the snapshot to be saved or restored on the next tick, or 0 */
+  private volatile int snapshotKey;
+
+  // rewind
+  /** Last seconds of the game, held for as long as the system property
+   * cpeaii.rewind.seconds, 10 by default, 0 for none
+   */
+  private Rewind rewind;
+
+  /** Whether the rewind key, backspace, is held */
+  private volatile boolean rewinding;
+
   public GameComponent() {
-    this.timer = new Timer(1000 / RATE, (ActionEvent actionEvent) -> {
-      if (this.mode != GameMode.HOLD) {
-        if (this.counter < 18600) {
-          if (this.counter == 9900 || this.counter == 16500)
-            fieldChange();
-          // Asteroid generation
-          if ((counter % ASTEROID_INTERVALS[this.field]) == 0) {
-            Asteroid newAsteroids = this.asteroidFactory.make(
-                Randomizer.random(-7, -3) * 10,
-                Randomizer.random(-3, 3) * 10,
-                Randomizer.random(
-                    ASTEROID_SPEEDS_MIN[this.field],
-                    ASTEROID_SPEEDS_MAX[this.field],
-                    false));
-            newAsteroids.setViewBounds(getBounds());
-            this.asteroids.add(newAsteroids);
-          }
-        }
-        update();
-        repaint();
-      }
-      this.counter++;
-    });
+    this.timer = new Timer(1000 / RATE, (ActionEvent actionEvent) -> tick());
     // event listeners
     this.keyListenerShip = new KeyListenerShip();
     this.focusListener = new FocusListenerImpl();
+    this.keyListenerSnapshot = new KeyListenerSnapshot();
     addKeyListener(keyListenerShip);
     addFocusListener(focusListener);
+    addKeyListener(keyListenerSnapshot);
     setDoubleBuffered(true);
+    setPreferredSize(new Dimension(WIDTH, HEIGHT));
+    if ("software".equalsIgnoreCase(System.getProperty("cpeaii.renderer")))
+      this.renderer = new SoftwareRenderer(WIDTH, HEIGHT);
   }
 
   @Override
   public void paintComponent(Graphics g) {
-    Graphics2D g2 = (Graphics2D) g;
-    g2.setRenderingHint(
-        RenderingHints.KEY_ANTIALIASING, RenderingHints.VALUE_ANTIALIAS_ON);
-    paintComponent(g2);
+    long time = System.nanoTime();
+    present((Graphics2D) g);
+    this.latency.present();
+    if (this.mode == GameMode.PLAY || this.mode == GameMode.GMOV)
+      if (this.governor.sample(
+          this.updateNanos + System.nanoTime() - time))
+        applyQuality();
+    this.updateNanos = 0;
+  }
+
+  /** Renders a frame into the back buffer, the vector graphics scaled from
+   * the logical resolution to that of the back buffer
+   *
+   * @return back buffer, or the SoftwareRenderer framebuffer
+   */
+  private Image renderFrame() {
+    if (this.renderer != null)
+      return renderSoftware();
+    Graphics2D g = this.frame.createGraphics();
+    g.scale((double) this.frame.getWidth() / WIDTH,
+        (double) this.frame.getHeight() / HEIGHT);
+    render(g);
+    g.dispose();
+    return this.frame;
+  }
+
+  /** Renders a frame and places it onto the component. The placement is in
+   * device pixels, so that HiDPI transforms do not resample the frame, and is
+   * only recomputed when the component size, the device scale or the screen
+   * changes. The back buffer is drawn as is; only the framebuffer of the
+   * SoftwareRenderer, and the back buffer with integer scaling, are scaled.
+   */
+  private void present(Graphics2D g) {
+    AffineTransform transform = g.getTransform();
+    int deviceWidth = (int) Math.ceil(getWidth() * transform.getScaleX());
+    int deviceHeight = (int) Math.ceil(getHeight() * transform.getScaleY());
+    if (deviceWidth != this.deviceWidth || deviceHeight != this.deviceHeight
+        || getGraphicsConfiguration() != this.frameConfiguration)
+      layoutViewport(deviceWidth, deviceHeight);
+    Image image = renderFrame();
+    g.setTransform(AffineTransform.getTranslateInstance(
+        transform.getTranslateX(), transform.getTranslateY()));
+    g.setColor(Color.BLACK);
+    for (Rectangle r : this.letterbox)
+      g.fillRect(r.x, r.y, r.width, r.height);
+    g.setRenderingHint(RenderingHints.KEY_INTERPOLATION, this.integerScaling
+        ? RenderingHints.VALUE_INTERPOLATION_NEAREST_NEIGHBOR
+        : RenderingHints.VALUE_INTERPOLATION_BILINEAR);
+    g.drawImage(image, this.viewport.x, this.viewport.y,
+        this.viewport.width, this.viewport.height, null);
+    g.setTransform(transform);
+  }
+
+  /** Fits the logical resolution into the device pixels of the component,
+   * leaving black bars around it, and rebuilds the back buffer if its size or
+   * GraphicsConfiguration changed
+   */
+  private void layoutViewport(int deviceWidth, int deviceHeight) {
+    this.deviceWidth = deviceWidth;
+    this.deviceHeight = deviceHeight;
+    double scale = Math.min(
+        (double) deviceWidth / WIDTH, (double) deviceHeight / HEIGHT);
+    if (this.integerScaling)
+      scale = Math.max(1, Math.floor(scale));
+    int width = (int) Math.round(WIDTH * scale);
+    int height = (int) Math.round(HEIGHT * scale);
+    this.viewport.setBounds((deviceWidth - width) / 2,
+        (deviceHeight - height) / 2, width, height);
+    this.letterbox = new Rectangle[]{
+      new Rectangle(0, 0, deviceWidth, this.viewport.y),
+      new Rectangle(0, this.viewport.y + height, deviceWidth,
+      deviceHeight - this.viewport.y - height),
+      new Rectangle(0, this.viewport.y, this.viewport.x, height),
+      new Rectangle(this.viewport.x + width, this.viewport.y,
+      deviceWidth - this.viewport.x - width, height)
+    };
+    if (this.renderer != null)
+      return;
+    // whole multiples are scaled up from the logical resolution
+    int frameWidth = this.integerScaling ? WIDTH : Math.max(width, 1);
+    int frameHeight = this.integerScaling ? HEIGHT : Math.max(height, 1);
+    GraphicsConfiguration configuration = getGraphicsConfiguration();
+    if (this.frame != null && this.frame.getWidth() == frameWidth
+        && this.frame.getHeight() == frameHeight
+        && configuration == this.frameConfiguration)
+      return;
+    if (this.frame != null)
+      this.frame.flush();
+    this.frame = configuration == null
+        ? new BufferedImage(frameWidth, frameHeight, BufferedImage.TYPE_INT_RGB)
+        : configuration.createCompatibleImage(frameWidth, frameHeight);
+    this.frameConfiguration = configuration;
+  }
+
+  /** Renders a frame at the logical resolution with the current quality level
+   * and renderer
+   */
+  private void render(Graphics2D g) {
+    if (this.renderer != null) {
+      g.drawImage(renderSoftware(), 0, 0, null);
+      return;
+    }
+    g.setRenderingHint(
+        RenderingHints.KEY_ANTIALIASING, this.governor.isAntialiased()
+        ? RenderingHints.VALUE_ANTIALIAS_ON
+        : RenderingHints.VALUE_ANTIALIAS_OFF);
+    paintComponent(g);
+  }
+
+  /** Renders a frame off-screen for the FrameCapture. The frame is dropped if
+   * no image is free.
+   */
+  private void captureFrame() {
+    BufferedImage image = this.capture.acquire();
+    if (image != null) {
+      Graphics2D g = image.createGraphics();
+      render(g);
+      g.dispose();
+      this.capture.submit(image);
+    }
+    if (this.captureFrames > 0
+        && this.capture.getFrames() >= this.captureFrames)
+      exit(0);
   }
 
   private void paintComponent(Graphics2D g) {
     g.setFont(FONT);
     // backgrounds
     g.setColor(Color.BLACK);
-    g.fillRect(0, 0, getWidth(), getHeight());
-    Arrays.stream(this.starDustTiles).forEach(s -> s.draw(g));
+    g.fillRect(0, 0, WIDTH, HEIGHT);
+    // not started yet
+    if (this.ship == null) {
+      paintHud(g);
+      return;
+    }
+    for (int i = 0; i < this.starDustLayers; i++)
+      this.starDustTiles[i].draw(g);
     // sprites
     this.asteroids.forEach(a -> a.draw(g));
     this.ship.draw(g);
     this.ship.getBlasters().forEach(b -> b.draw(g));
     this.lineParticles.forEach(l -> l.draw(g));
+    paintHud(g);
+  }
+
+  /** Renders a frame through the SoftwareRenderer
+   *
+   * @return framebuffer of the SoftwareRenderer
+   */
+  private BufferedImage renderSoftware() {
+    // backgrounds
+    this.renderer.begin(Color.BLACK);
+    if (this.ship != null) {
+      for (int i = 0; i < this.starDustLayers; i++)
+        this.starDustTiles[i].getStarDusts().forEach(this.renderer::add);
+      // sprites
+      this.asteroids.forEach(this.renderer::add);
+      this.renderer.add(this.ship);
+      this.ship.getBlasters().forEach(this.renderer::add);
+      this.lineParticles.forEach(this.renderer::add);
+    }
+    this.renderer.finish();
+    Graphics2D g = this.renderer.getImage().createGraphics();
+    g.setRenderingHint(
+        RenderingHints.KEY_TEXT_ANTIALIASING, this.governor.isAntialiased()
+        ? RenderingHints.VALUE_TEXT_ANTIALIAS_ON
+        : RenderingHints.VALUE_TEXT_ANTIALIAS_OFF);
+    g.setFont(FONT);
+    paintHud(g);
+    g.dispose();
+    return this.renderer.getImage();
+  }
+
+  private void paintHud(Graphics2D g) {
     g.setColor(Color.WHITE);
+    if (this.mode == GameMode.WAIT) {
+      // progress screen
+      int width = WIDTH / 2;
+      g.drawString("LOADING", (WIDTH - width) / 2, HEIGHT / 2 - 16);
+      g.drawRect((WIDTH - width) / 2, HEIGHT / 2, width, 8);
+      g.fillRect((WIDTH - width) / 2, HEIGHT / 2,
+          (int) (width * this.loader.getProgress()), 8);
+      return;
+    }
     if (this.mode == GameMode.GMOV)
       g.drawString("GAME OVER", 16, 16);
-    g.drawString("SC: " + this.score, getWidth() / 2, 16);
-    g.drawString(
-        "Development C, 11/11/2020.", getWidth() - 272, getHeight() - 16);
+    if (this.rewinding && this.rewind != null)
+      g.drawString("REWIND " + this.rewind.getTicks() / RATE + "s", 16,
+          HEIGHT - 16);
+    g.drawString("SC: " + this.score, WIDTH / 2, 16);
+    g.drawString("Development C, 11/11/2020.", WIDTH - 272, HEIGHT - 16);
+    if (this.audioStats && audio.getSink() != null)
+      g.drawString("AU: " + audio.getSink(), 16, 32);
+    GDMAudioMetrics metrics = audio.getMetrics();
+    if (this.audioStats && metrics != null)
+      g.drawString(String.format(Locale.ROOT,
+          "MX: %s us, %.1f%%, %d underruns, %d dropped",
+          metrics.getMixTime().toString(1000), metrics.getLoad() * 100,
+          metrics.getUnderruns() + metrics.getStreamUnderruns(),
+          metrics.getDropped()), 16, 48);
+    if (this.latencyStats)
+      g.drawString("IN: " + this.latency, 16, 64);
+  }
+
+  /** Recomputes the view and movement bounds of every Sprite, SpriteFactory
+   * and StarDustTile from the logical resolution in one pass. Sprites share
+   * the same Rectangle2D instances, which are updated in place.
+   */
+  private void layoutBounds() {
+    this.bounds.setRect(0, 0, WIDTH, HEIGHT);
+    this.extendedBounds.setRect(-16.0, -16.0, WIDTH + 32.0, HEIGHT + 32.0);
+    this.ship.setViewBounds(this.extendedBounds);
+    this.ship.setMovementBounds(this.bounds);
+    this.ship.getBlasters().forEach(
+        b -> b.setViewBounds(this.extendedBounds));
+    this.asteroids.forEach(a -> a.setViewBounds(this.bounds));
+    this.asteroidFactory.setMakeBounds(
+        new Rectangle2D.Double(WIDTH + 32, 0, 0, HEIGHT));
+    this.asteroidFactory.setViewBounds(this.extendedBounds);
+    for (StarDustTile s : this.starDustTiles) {
+      s.setMakeBounds(this.bounds);
+      s.setViewBounds(this.extendedBounds);
+    }
   }
 
   public void start() throws InterruptedException {
-    this.extendedBounds = new Rectangle2D.Double(
-        -16.0, -16.0, getWidth() + 32.0, getHeight() + 32.0);
     // protagonists
-    this.ship = new VicViper(16, getHeight() / 2, 2, true);
-    this.ship.setViewBounds(this.extendedBounds);
-    this.ship.setMovementBounds(getBounds());
+    this.ship = new VicViper(16, HEIGHT / 2, 2, true);
     // anatagonists
-    this.asteroids = new HashSet<>();
-    this.lineParticles = new HashSet<>();
+    // ordered, so that collisions are checked in the same order every run
+    this.asteroids = new LinkedHashSet<>();
+    this.lineParticles = new LinkedHashSet<>();
+    // a playback brings its own seed
+    openReplay(System.getProperty("cpeaii.replay"),
+        System.getProperty("cpeaii.record"));
+    // a playback follows its recording, hence is not rewound
+    int rewind = Integer.getInteger("cpeaii.rewind.seconds", 10);
+    if (this.replay == null && rewind > 0)
+      this.rewind = new Rewind(rewind * RATE);
+    // random streams, split in a fixed order
+    Randomizer random = new Randomizer(this.seed);
+    this.asteroidRandom = random.split();
     // factories
     this.asteroidFactory = new AsteroidFactory(
-        new Rectangle2D.Double(getWidth() + 32, 0, 0, getHeight()),
-        this.extendedBounds, 24, Effect.DAMAGE, ASTEROID_COLOR_DEFAULT);
-    this.lineParticleFactory = new LineParticleFactory(0, Effect.DAMAGE);
+        new Rectangle2D.Double(WIDTH + 32, 0, 0, HEIGHT),
+        this.extendedBounds, 24, Effect.DAMAGE, ASTEROID_COLOR_DEFAULT,
+        this.asteroidRandom);
+    this.lineParticleFactory
+        = new LineParticleFactory(0, Effect.DAMAGE, random.split());
     // sprite tiles
     this.starDustTiles = new StarDustTile[]{
       new StarDustTile(
-      getBounds(), this.extendedBounds, 2, 16, -25, 0, 3, STARDUST_COLOR_DEFAULT),
+      this.bounds, this.extendedBounds, 2, STARDUST_DENSITIES[0], -25, 0, 3,
+      STARDUST_COLOR_DEFAULT, random.split()),
       new StarDustTile(
-      getBounds(), this.extendedBounds, 1, 24, -25, 0, 2, STARDUST_COLOR_DEFAULT),
+      this.bounds, this.extendedBounds, 1, STARDUST_DENSITIES[1], -25, 0, 2,
+      STARDUST_COLOR_DEFAULT, random.split()),
       new StarDustTile(
-      getBounds(), this.extendedBounds, 1, 32, -25, 0, 1, STARDUST_COLOR_DEFAULT)
+      this.bounds, this.extendedBounds, 1, STARDUST_DENSITIES[2], -25, 0, 1,
+      STARDUST_COLOR_DEFAULT, random.split())
     };
-    // event buffers
-    this.inputBuffer = new HashSet<>(10);
+    layoutBounds();
+    applyQuality();
+    // capture
+    try {
+      this.capture = FrameCapture.fromProperties(WIDTH, HEIGHT);
+      if (this.capture != null)
+        Runtime.getRuntime().addShutdownHook(new Thread(this.capture::close));
+    } catch (IOException e) {
+      modal.println(" capture: " + e, Modal.ERROR);
+    }
+    // assets, smaller line sizes trade processing for shot responsiveness
+    audio.setLineSizes(Integer.getInteger("cpeaii.audio.period", 0),
+        Integer.getInteger("cpeaii.audio.buffer", 0));
+    setAudioOutput(System.getProperty("cpeaii.audio.out"));
+    openEventLog(System.getProperty("cpeaii.events"));
+    // stutter and lag are diagnosed from the report on exit
+    Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+      GDMAudioMetrics metrics = audio.getMetrics();
+      if (metrics != null)
+        modal.println(" AUDIO " + metrics, Modal.INFO);
+      if (this.latency.getToTick().getCount() > 0)
+        modal.println(" LATENCY " + this.latency, Modal.INFO);
+    }));
+    if (Boolean.getBoolean("cpeaii.audio.echo")) {
+      // 150 ms echoes at half level
+      int delay = (int) (GDMAudioMixer.FORMAT.getFrameRate() * 0.15f);
+      audio.setMasterEffect(new GDMEffect.Delay(delay, delay, 0.5f, 0.35f));
+    }
+    try {
+      this.loader.load(AssetLoader.MANIFEST);
+    } catch (IOException | IllegalArgumentException e) {
+      modal.println(" " + AssetLoader.MANIFEST + ": " + e, Modal.ERROR);
+    }
     requestFocusInWindow();
+    if (this.replay != null && this.replaySpeed <= 0) {
+      playFlatOut();
+      return;
+    }
+    if (this.replay != null)
+      this.timer.setDelay(
+          Math.max(1, Math.round(1000 / RATE / this.replaySpeed)));
     this.timer.start();
-    while (true) {
-      this.counter = 0;
-      try {
-        audio.playAndAwait("music");
-      } catch (IllegalArgumentException e) {
+    awaitAssets();
+    int music = this.loader.await("music");
+    if (music < 0)
+      // no music, fields change on the counter alone
+      return;
+    try {
+      // looped gaplessly, the themes advance on loops
+      if (audio.playMusic(music, 0))
+        this.music = music;
+    } catch (IllegalArgumentException | IllegalStateException e) {
+      modal.println(" music: " + e, Modal.ALERT);
+    }
+  }
+
+  /** Returns the stereo position of a Sprite from its x-coordinate
+   *
+   * @param sprite emitting Sprite
+   * @return position from -PAN_WIDTH (left) to PAN_WIDTH (right)
+   */
+  public static float pan(Sprite sprite) {
+    double x = sprite.getPath2d().getBounds2D().getCenterX();
+    return PAN_WIDTH * (float) Math.max(-1, Math.min(1, x / WIDTH * 2 - 1));
+  }
+
+  /** Returns a playback rate varied at random around 1, so that repeated
+   * sounds are not identical
+   *
+   * @return rate within PITCH_VARIATION hundredths of 1
+   */
+  public static float pitch() {
+    return 1f + Randomizer.random(-PITCH_VARIATION, PITCH_VARIATION + 1)
+        / 100f;
+  }
+
+  /** Plays the shot sound low-passed as an explosion at a Sprite */
+  private static void explode(Sprite sprite, float cutoff) {
+    if (sounds != null)
+      audio.play(sounds[0], 1f, pan(sprite), cutoff, pitch());
+  }
+
+  /** Records Modal and audio events into a binary log, which survives a
+   * crash and is printed with "java eden.common.io.EventLog FILE"
+   *
+   * @param path file of the log, or null for none
+   */
+  private void openEventLog(String path) {
+    if (path == null)
+      return;
+    try {
+      EventLog log = new EventLog(new File(path));
+      Modal.setEventLog(log);
+      audio.setEventLog(log);
+      Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+        // detached first, so that nothing records into a closed log
+        Modal.setEventLog(null);
+        audio.setEventLog(null);
+        try {
+          log.close();
+        } catch (IOException e) {
+          modal.println(" EVENT LOG " + e, Modal.ERROR);
+        }
+      }));
+    } catch (IOException e) {
+      modal.println(" " + path + ": " + e, Modal.ERROR);
+    }
+  }
+
+  /** Opens a session to be played back, or else one to be recorded
+   *
+   * @param in file of the session to be played back, or null for none
+   * @param out file of the session to be recorded, or null for none
+   */
+  private void openReplay(String in, String out) {
+    try {
+      if (in != null) {
+        Replay.Reader replay = new Replay.Reader(Paths.get(in));
+        if (replay.getRate() != RATE)
+          throw new IOException("BAD rate: " + replay.getRate());
+        this.replay = replay;
+        this.seed = replay.getSeed();
+      } else if (out != null) {
+        Replay.Writer recorder = new Replay.Writer(Paths.get(out), this.seed);
+        this.recorder = recorder;
+        Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+          try {
+            recorder.close();
+          } catch (IOException e) {
+            modal.println(" " + out + ": " + e, Modal.ERROR);
+          }
+        }));
       }
+    } catch (IOException e) {
+      modal.println(" " + (in != null ? in : out) + ": " + e, Modal.ERROR);
+    }
+  }
+
+  /** Awaits for the critical assets, exiting if any failed to load, as the
+   * game can not go on without them
+   */
+  private void awaitAssets() throws InterruptedException {
+    try {
+      this.loader.awaitCritical();
+    } catch (ExecutionException e) {
+      modal.println(" CRITICAL ASSET " + e.getCause(), Modal.ERROR);
+      System.exit(1);
+    }
+  }
+
+  /** Plays the session back as fast as possible, without rendering or sound,
+   * then exits with status 1 if it diverged
+   */
+  private void playFlatOut() throws InterruptedException {
+    awaitAssets();
+    ready();
+    // sounds would only pile up faster than real time
+    sounds = null;
+    long time = System.nanoTime();
+    int ticks = 0;
+    while (this.replay != null) {
+      step();
+      ticks++;
+    }
+    time = System.nanoTime() - time;
+    modal.println(String.format(Locale.ROOT,
+        " REPLAY %d ticks in %.1f ms, %.0fx real time", ticks, time / 1e6,
+        ticks * 1e9 / RATE / time), Modal.INFO);
+    exit(this.diverged ? 1 : 0);
+  }
+
+  /** Sets where audio goes instead of the sound card: "null" discards it,
+   * and a path records it into a WAVE file, both at real time
+   *
+   * @param out output, or null for the sound card
+   */
+  private void setAudioOutput(String out) {
+    if (out == null)
+      return;
+    int period = Integer.getInteger("cpeaii.audio.period", 0);
+    if (period < 1)
+      period = GDMOutputLine.PERIOD;
+    if (out.equalsIgnoreCase("null")) {
+      audio.setSink(new GDMNullSink(GDMAudioMixer.FORMAT, period, true));
+      return;
+    }
+    try {
+      GDMAudioSink sink = new GDMWaveSink(
+          new File(out), GDMAudioMixer.FORMAT, period, true);
+      audio.setSink(sink);
+      // fills in the WAVE header
+      Runtime.getRuntime().addShutdownHook(new Thread(audio::unloadAll));
+    } catch (IOException e) {
+      modal.println(" " + out + ": " + e, Modal.ERROR);
+    }
+  }
+
+  /** Leaves the progress screen once the critical assets are loaded, and
+   * reports the cold startup time
+   */
+  private void ready() {
+    int fire = this.loader.getChannel("fire");
+    sounds = fire < 0 ? null : new int[]{fire};
+    this.mode = GraphicsEnvironment.isHeadless() || isFocusOwner()
+        ? GameMode.PLAY : GameMode.HOLD;
+    this.counter = 0;
+    this.governor.reset();
+    if (audio.getSink() != null && audio.getOutputLine() == null)
+      modal.println(" AUDIO not played, to "
+          + audio.getSink().getClass().getSimpleName(), Modal.ALERT);
+    modal.println(String.format(
+        " READY in %.1f ms, assets in %.1f ms, %d ms after JVM start, seed %d",
+        (System.nanoTime() - this.constructed) / 1e6,
+        this.loader.getCriticalNanos() / 1e6,
+        System.currentTimeMillis()
+            - ManagementFactory.getRuntimeMXBean().getStartTime(), this.seed),
+        Modal.INFO);
+  }
+
+  /** Follows the clock: a new music loop advances the theme, and the field
+   * changes until it is the one of the clock
+   */
+  private void syncField() {
+    int loops = 0;
+    if (this.music >= 0) {
+      GDMMusicPlayer player = audio.getMusicPlayer();
+      this.clock = player.getPosition();
+      loops = player.getLoops();
+    } else
+      this.clock = (double) this.counter / RATE;
+    if (loops != this.loops) {
+      this.loops = loops;
       this.theme = (byte) (this.theme == ASTEROID_COLORS.length - 1 ? 0
           : this.theme + 1);
-      fieldChange();
     }
+    int field = 0;
+    while (field < FIELD_TIMES.length - 1
+        && this.clock >= FIELD_TIMES[field + 1])
+      field++;
+    while (this.field != field)
+      fieldChange();
+    this.generating = this.clock < FIELD_END;
+  }
+
+  /** Follows the field, theme and Asteroid generation of the replay */
+  private void syncReplay() {
+    applySync(Replay.sync(this.replay.getField(), this.replay.getTheme(),
+        this.replay.isGenerating()));
+  }
+
+  /** Follows a field, theme and Asteroid generation
+   *
+   * @param sync value returned by Replay.sync()
+   */
+  private void applySync(int sync) {
+    this.theme = (byte) (sync >>> 3);
+    while (this.field != (sync & 3))
+      fieldChange();
+    this.generating = (sync & 4) == 0;
   }
 
   private void fieldChange() {
     this.field = (byte) (this.field == ASTEROID_INTERVALS.length - 1 ? 0
         : this.field + 1);
+    modal.event(Modal.INFO, FIELD, this.field, this.counter);
     this.starDustTiles[0].setLength(STARDUST_LENGTHS[this.field]);
     if (this.field > 0) {
       if (this.field == 1)
@@ -226,10 +855,359 @@ public class GameComponent extends JComponent {
     }
   }
 
+  /** Applies the levers of the current quality level */
+  private void applyQuality() {
+    VectorSprite.setFilled(this.governor.isFilled());
+    this.starDustLayers = this.governor.getStarLayers(
+        this.starDustTiles.length);
+    for (int i = 0; i < this.starDustTiles.length; i++)
+      this.starDustTiles[i].setDensity(
+          this.governor.getStarDensity(STARDUST_DENSITIES[i]));
+    this.lineParticleFactory.setSegments(
+        this.governor.getParticleSegments());
+  }
+
+  /** Adds LineParticles from a disassembly within the particle budget */
+  private void addLineParticles(Set<LineParticle> newParticles) {
+    int room = this.governor.getParticleBudget() - this.lineParticles.size();
+    Iterator<LineParticle> i = newParticles.iterator();
+    while (room-- > 0 && i.hasNext())
+      this.lineParticles.add(i.next());
+  }
+
+  /** Runs one update of the timer: the game is stepped, then presented */
+  private void tick() {
+    if (this.mode == GameMode.WAIT) {
+      if (this.loader.isCriticalReady())
+        ready();
+      repaint();
+      return;
+    }
+    if (this.snapshotKey != 0)
+      serveSnapshot();
+    if (this.rewinding && this.rewind != null && this.replay == null) {
+      rewindStep();
+      repaint();
+      if (this.capture != null)
+        captureFrame();
+      return;
+    }
+    GameMode mode = this.mode;
+    step();
+    if (mode != GameMode.HOLD) {
+      repaint();
+      if (this.capture != null)
+        captureFrame();
+    }
+  }
+
+  /** Advances the simulation by one tick. The buttons are read once, from the
+   * keyboard or the replay, and every input which the simulation does not
+   * decide on its own is either recorded or played back, hence the same
+   * inputs give the same game.
+   */
+  private void step() {
+    int buttons = 0;
+    try {
+      if (this.replay != null) {
+        this.replay.advance(this.counter);
+        buttons = this.replay.getButtons();
+        if (this.mode != GameMode.GMOV)
+          this.mode = (buttons & Replay.HOLD) != 0
+              ? GameMode.HOLD : GameMode.PLAY;
+        if (this.mode == GameMode.PLAY)
+          applyInput(buttons);
+      } else if (this.mode == GameMode.PLAY) {
+        buttons = this.input.poll();
+        applyInput(buttons);
+        this.latency.tick(this.input.getOldestNanos());
+      } else if (this.mode == GameMode.HOLD)
+        buttons = Replay.HOLD;
+      if (this.recorder != null && this.mode != GameMode.GMOV)
+        this.recorder.input(this.counter, buttons);
+      if (this.mode != GameMode.HOLD) {
+        if (this.replay != null)
+          syncReplay();
+        else
+          syncField();
+        int sync = Replay.sync(this.field, this.theme, this.generating);
+        if (this.recorder != null)
+          this.recorder.sync(this.counter, sync);
+        if (this.rewind != null)
+          this.rewind.record(this, this.counter, buttons, sync);
+        long time = System.nanoTime();
+        simulate();
+        this.updateNanos += System.nanoTime() - time;
+      }
+      if (this.recorder != null && this.mode == GameMode.GMOV
+          && this.counter - this.gameOverTick == REPLAY_TAIL) {
+        this.recorder.end(this.counter, this.score, checksum());
+        modal.println(" RECORDED to tick " + this.counter, Modal.INFO);
+        this.recorder = null;
+      }
+      if (this.replay != null && this.replay.getEndTick() == this.counter)
+        endReplay();
+    } catch (IOException e) {
+      modal.println(" REPLAY " + e, Modal.ERROR);
+      this.replay = null;
+      this.recorder = null;
+    }
+    this.counter++;
+  }
+
+  /** Generates Asteroids, then updates every Sprite, for one tick */
+  private void simulate() {
+    if (this.generating) {
+      // Asteroid generation
+      if ((counter % ASTEROID_INTERVALS[this.field]) == 0) {
+        Asteroid newAsteroids = this.asteroidFactory.make(
+            this.asteroidRandom.nextInt(-7, -3) * 10,
+            this.asteroidRandom.nextInt(-3, 3) * 10,
+            this.asteroidRandom.nextInt(
+                ASTEROID_SPEEDS_MIN[this.field],
+                ASTEROID_SPEEDS_MAX[this.field],
+                false));
+        newAsteroids.setViewBounds(this.bounds);
+        this.asteroids.add(newAsteroids);
+      }
+    }
+    update();
+  }
+
+  /** Simulates a tick again from the inputs recorded by the Rewind, without
+   * recording it
+   *
+   * @param counter counter of the tick
+   * @param buttons button bits applied to the Ship
+   * @param sync value returned by Replay.sync()
+   */
+  void resimulate(int counter, int buttons, int sync) {
+    this.counter = counter;
+    if (this.mode == GameMode.PLAY)
+      applyInput(buttons);
+    applySync(sync);
+    simulate();
+    this.counter++;
+  }
+
+  /** Steps the game back by one tick while the rewind key is held. The ticks
+   * simulated again are not heard, and keys are still folded, so that none
+   * is missed once time goes on.
+   */
+  private void rewindStep() {
+    this.input.poll();
+    int[] sounds = GameComponent.sounds;
+    GameComponent.sounds = null;
+    try {
+      stopRecording();
+      this.rewind.back(this);
+    } catch (IOException e) {
+      modal.println(" REWIND " + e, Modal.ERROR);
+    } finally {
+      GameComponent.sounds = sounds;
+    }
+  }
+
+  /** Ends the recording unverified, as the session no longer follows it */
+  private void stopRecording() throws IOException {
+    if (this.recorder == null)
+      return;
+    this.recorder.close();
+    modal.println(" RECORDED to tick " + this.counter + ", UNVERIFIED",
+        Modal.ALERT);
+    this.recorder = null;
+  }
+
+  /** Compares the state at the end of the replay with the recording, then
+   * leaves the replay
+   */
+  private void endReplay() {
+    int checksum = checksum();
+    this.diverged = this.replay.isVerified()
+        && (checksum != this.replay.getEndChecksum()
+        || this.score != this.replay.getEndScore());
+    modal.println(String.format(
+        " REPLAY %s at tick %d, score %d, checksum %08x",
+        !this.replay.isVerified() ? "UNVERIFIED"
+            : this.diverged ? "DIVERGED" : "MATCHED",
+        this.counter, this.score, checksum),
+        this.diverged ? Modal.ERROR : Modal.INFO);
+    this.replay = null;
+    this.timer.stop();
+    // nothing more to be seen without a window
+    if (GraphicsEnvironment.isHeadless() && this.replaySpeed > 0)
+      exit(this.diverged ? 1 : 0);
+  }
+
+  /** Stops the game, then closes the capture and exits on a thread of its
+   * own, so that a slow close does not hold up the tick
+   *
+   * @param status exit status
+   */
+  private void exit(int status) {
+    this.timer.stop();
+    FrameCapture capture = this.capture;
+    new Thread(() -> {
+      if (capture != null)
+        capture.close();
+      System.exit(status);
+    }, "GameComponent exit").start();
+  }
+
+  /** Returns a checksum of the state of the simulation, which a replay
+   * compares with its recording
+   */
+  private int checksum() {
+    int out = 31 * (31 * this.counter + this.score) + this.field;
+    for (Asteroid a : this.asteroids)
+      out = 31 * out + a.getPath2d().getBounds2D().hashCode();
+    out = 31 * out + this.ship.getPath2d().getBounds2D().hashCode();
+    for (Blaster b : this.ship.getBlasters())
+      out = 31 * out + b.getPath2d().getBounds2D().hashCode();
+    return out;
+  }
+
+  /** Saves the whole state of the simulation, to be restored by
+   * restore(ByteBuffer): the counters, field and mode, every Sprite with its
+   * Path2D, and every Randomizer. Invoked between ticks, once ready.
+   *
+   * @param out buffer to be written at its position
+   * @throws BufferOverflowException if the buffer is too small
+   */
+  public void save(ByteBuffer out) {
+    out.putLong(this.seed).putInt(this.counter).putInt(this.score)
+        .put(this.field).put(this.theme).put((byte) this.mode.ordinal())
+        .putDouble(this.clock).putInt(this.loops)
+        .put((byte) (this.generating ? 1 : 0)).putInt(this.gameOverTick);
+    this.asteroidFactory.save(out);
+    this.lineParticleFactory.save(out);
+    for (StarDustTile s : this.starDustTiles)
+      s.save(out);
+    this.ship.save(out);
+    out.putInt(this.asteroids.size());
+    for (Asteroid a : this.asteroids)
+      a.save(out);
+    out.putInt(this.lineParticles.size());
+    for (LineParticle l : this.lineParticles)
+      l.save(out);
+  }
+
+  /** Restores the state saved by save(ByteBuffer), from which the simulation
+   * goes on exactly as it did. The music and the keyboard are left as they
+   * are, hence the field follows the music again from the next tick.
+   * Invoked between ticks, once ready. The scalars are read and checked
+   * before any is set; a state which fails afterwards leaves the game partly
+   * restored, hence Snapshot.restore(GameComponent) puts the game back.
+   *
+   * @param in buffer positioned at the state
+   * @throws BufferUnderflowException if the state is short
+   * @throws IllegalArgumentException if the mode is unknown
+   */
+  public void restore(ByteBuffer in) {
+    long seed = in.getLong();
+    int counter = in.getInt();
+    int score = in.getInt();
+    byte field = in.get();
+    byte theme = in.get();
+    byte ordinal = in.get();
+    double clock = in.getDouble();
+    int loops = in.getInt();
+    boolean generating = in.get() != 0;
+    int gameOverTick = in.getInt();
+    if (ordinal < 0 || ordinal >= GameMode.values().length)
+      throw new IllegalArgumentException("BAD mode: " + ordinal);
+    GameMode mode = GameMode.values()[ordinal];
+    this.seed = seed;
+    this.counter = counter;
+    this.score = score;
+    this.field = field;
+    this.theme = theme;
+    this.clock = clock;
+    this.loops = loops;
+    this.generating = generating;
+    this.gameOverTick = gameOverTick;
+    this.asteroidFactory.restore(in);
+    this.lineParticleFactory.restore(in);
+    for (StarDustTile s : this.starDustTiles)
+      s.restore(in);
+    this.ship = new VicViper(in);
+    this.asteroids.clear();
+    for (int i = in.getInt(); i > 0; i--)
+      this.asteroids.add(this.asteroidFactory.make(in));
+    this.lineParticles.clear();
+    for (int i = in.getInt(); i > 0; i--)
+      this.lineParticles.add(this.lineParticleFactory.make(in));
+    layoutBounds();
+    applyQuality();
+    // the Ship is steered again unless the game was over
+    removeKeyListener(this.keyListenerShip);
+    if (mode == GameMode.GMOV)
+      this.mode = mode;
+    else if (GraphicsEnvironment.isHeadless() || isFocusOwner()) {
+      this.mode = GameMode.PLAY;
+      addKeyListener(this.keyListenerShip);
+    } else
+      this.mode = GameMode.HOLD;
+    audio.setRate(this.mode == GameMode.GMOV ? SLOW_MOTION : 1f);
+  }
+
+  /** Saves the snapshot on F5, or restores it on F9, into or from memory and
+   * the snapshot file if set. A recording stops at a restore, as the session
+   * no longer follows it, and a playback ignores both.
+   */
+  private void serveSnapshot() {
+    int key = this.snapshotKey;
+    this.snapshotKey = 0;
+    if (this.replay != null)
+      return;
+    try {
+      if (key == KeyEvent.VK_F5) {
+        long time = System.nanoTime();
+        this.snapshot.take(this);
+        time = System.nanoTime() - time;
+        int length = this.snapshotFile == null ? this.snapshot.getLength()
+            : this.snapshot.write(Paths.get(this.snapshotFile));
+        modal.println(String.format(Locale.ROOT,
+            " SAVED tick %d in %.0f us, %d bytes", this.counter, time / 1e3,
+            length), Modal.INFO);
+        return;
+      }
+      if (!this.snapshot.isTaken() && this.snapshotFile != null)
+        this.snapshot.read(Paths.get(this.snapshotFile));
+      if (!this.snapshot.isTaken())
+        return;
+      stopRecording();
+      long time = System.nanoTime();
+      this.snapshot.restore(this);
+      time = System.nanoTime() - time;
+      // the ticks held led elsewhere
+      if (this.rewind != null)
+        this.rewind.clear();
+      modal.println(String.format(Locale.ROOT,
+          " RESTORED tick %d in %.0f us", this.counter, time / 1e3),
+          Modal.INFO);
+    } catch (IOException | BufferOverflowException e) {
+      modal.println(" SNAPSHOT " + e, Modal.ERROR);
+    } catch (RuntimeException e) {
+      // the state of another layout, or damaged
+      modal.println(" SNAPSHOT BAD " + e, Modal.ERROR);
+    }
+  }
+
+  /** Steers the Ship and powers its BlasterFactory from the buttons of a tick
+   *
+   * @param buttons button bits of the InputQueue
+   */
+  private void applyInput(int buttons) {
+    this.ship.setDirection(InputQueue.direction(buttons));
+    this.ship.getBlasterFactory().setPower((buttons & InputQueue.FIRE) != 0);
+  }
+
   // FIXME: refactor for unification
   private void update() {
     if (mode != GameMode.HOLD) {
-      Arrays.stream(starDustTiles).forEach(s -> s.update());
+      for (int i = 0; i < this.starDustLayers; i++)
+        this.starDustTiles[i].update();
       updateAsteroids();
       if (mode != GameMode.GMOV)
         updateShip();
@@ -238,11 +1216,15 @@ public class GameComponent extends JComponent {
       if (mode != GameMode.GMOV)
         if (checkCollisions()) {
           mode = GameMode.GMOV;
-          lineParticles.addAll(lineParticleFactory.disassemble(ship));
+          this.gameOverTick = this.counter;
+          modal.event(Modal.INFO, GAME_OVER, this.score, this.counter);
+          audio.setRate(SLOW_MOTION);
+          explode(ship, SHIP_EXPLOSION_CUTOFF);
+          addLineParticles(lineParticleFactory.disassemble(ship));
           ship.setVisibility(false);
           updateShip();
           removeKeyListener(keyListenerShip);
-          inputBuffer.clear();
+          input.clear();
         }
     }
   }
@@ -274,7 +1256,8 @@ public class GameComponent extends JComponent {
       Iterator<Blaster> iB = ship.getBlasters().iterator();
       while (iB.hasNext())
         if (a.intersects(iB.next())) {
-          lineParticles.addAll(lineParticleFactory.disassemble(a));
+          explode(a, EXPLOSION_CUTOFF);
+          addLineParticles(lineParticleFactory.disassemble(a));
           iA.remove();
           iB.remove();
           a = null;
@@ -291,52 +1274,32 @@ public class GameComponent extends JComponent {
 
   public class KeyListenerShip extends KeyAdapter {
 
-    // ack: https://stackoverflow.com/a/22581039
     @Override
     public void keyPressed(KeyEvent keyEvent) {
-      inputBuffer.add(keyEvent.getKeyCode());
-      keyCheck();
+      input.offer(keyEvent.getKeyCode(), true);
     }
 
     @Override
     public void keyReleased(KeyEvent keyEvent) {
-      inputBuffer.remove(keyEvent.getKeyCode());
-      keyCheck();
-    }
-
-    public void keyCheck() {
-      if (inputBuffer.contains(KeyEvent.VK_UP) || inputBuffer.contains(
-          KeyEvent.VK_KP_UP))
-        if (inputBuffer.contains(KeyEvent.VK_LEFT) || inputBuffer.contains(
-            KeyEvent.VK_KP_LEFT))
-          ship.setDirection(Sprite.Direction.UL);
-        else if (inputBuffer.contains(KeyEvent.VK_RIGHT) || inputBuffer.
-            contains(KeyEvent.VK_KP_RIGHT))
-          ship.setDirection(Sprite.Direction.UR);
-        else
-          ship.setDirection(Sprite.Direction.UU);
-      else if (inputBuffer.contains(KeyEvent.VK_DOWN) || inputBuffer.contains(
-          KeyEvent.VK_KP_DOWN))
-        if (inputBuffer.contains(KeyEvent.VK_LEFT) || inputBuffer.contains(
-            KeyEvent.VK_KP_LEFT))
-          ship.setDirection(Sprite.Direction.DL);
-        else if (inputBuffer.contains(KeyEvent.VK_RIGHT) || inputBuffer.
-            contains(KeyEvent.VK_KP_RIGHT))
-          ship.setDirection(Sprite.Direction.DR);
-        else
-          ship.setDirection(Sprite.Direction.DD);
-      else if (inputBuffer.contains(KeyEvent.VK_LEFT) || inputBuffer.contains(
-          KeyEvent.VK_KP_LEFT))
-        ship.setDirection(Sprite.Direction.LL);
-      else if (inputBuffer.contains(KeyEvent.VK_RIGHT) || inputBuffer.contains(
-          KeyEvent.VK_KP_RIGHT))
-        ship.setDirection(Sprite.Direction.RR);
-      else
-        ship.setDirection(Sprite.Direction.NO);
-      if (inputBuffer.contains(KeyEvent.VK_X))
-        ship.getBlasterFactory().setPower(true);
-      else
-        ship.getBlasterFactory().setPower(false);
+      input.offer(keyEvent.getKeyCode(), false);
+    }
+  }
+
+  public class KeyListenerSnapshot extends KeyAdapter {
+
+    @Override
+    public void keyPressed(KeyEvent keyEvent) {
+      if (keyEvent.getKeyCode() == KeyEvent.VK_F5
+          || keyEvent.getKeyCode() == KeyEvent.VK_F9)
+        snapshotKey = keyEvent.getKeyCode();
+      else if (keyEvent.getKeyCode() == KeyEvent.VK_BACK_SPACE)
+        rewinding = true;
+    }
+
+    @Override
+    public void keyReleased(KeyEvent keyEvent) {
+      if (keyEvent.getKeyCode() == KeyEvent.VK_BACK_SPACE)
+        rewinding = false;
     }
   }
 
@@ -344,16 +1307,18 @@ public class GameComponent extends JComponent {
 
     @Override
     public void focusLost(FocusEvent focusEvent) {
-      if (mode != GameMode.GMOV)
+      if (mode != GameMode.GMOV && mode != GameMode.WAIT)
         mode = GameMode.HOLD;
       removeKeyListener(keyListenerShip);
-      inputBuffer.clear();
+      input.clear();
+      rewinding = false;
     }
 
     @Override
     public void focusGained(FocusEvent focusEvent) {
-      if (mode != GameMode.GMOV)
+      if (mode != GameMode.GMOV && mode != GameMode.WAIT)
         mode = GameMode.PLAY;
+      governor.reset();
       addKeyListener(keyListenerShip);
     }
   }
@@ -1,26 +1,37 @@
 package eden.cpeaii;
 
+import java.awt.GraphicsEnvironment;
 import javax.swing.JFrame;
 
 public class GameFrame extends JFrame {
 
-  private final static int WIDTH = 640;
-  public final static int HEIGHT = 480;
-
   private final GameComponent component;
 
   public GameFrame() {
     setDefaultCloseOperation(JFrame.EXIT_ON_CLOSE);
-    setResizable(false);
-    setSize(WIDTH, HEIGHT);
     setTitle("C Pea II");
     this.component = new GameComponent();
     add(this.component);
+    pack();
+    setMinimumSize(getSize());
+    setLocationRelativeTo(null);
     setVisible(true);
   }
 
   public static void main(String[] args) throws InterruptedException {
-    System.setProperty("sun.java2d.opengl", "True");
+    if (GraphicsEnvironment.isHeadless()) {
+      // no window, frames can only be seen through a FrameCapture
+      GameComponent component = new GameComponent();
+      component.setSize(component.getPreferredSize());
+      component.start();
+      // without music start() returns, keep running on the timer
+      Thread.currentThread().join();
+      return;
+    }
+    // prefer the pipeline measured fastest by PipelineBenchmark
+    if (!PipelineBenchmark.applyPipeline()
+        && System.getProperty("sun.java2d.opengl") == null)
+      System.setProperty("sun.java2d.opengl", "True");
     new GameFrame().component.start();
   }
 }
@@ -0,0 +1,211 @@
+package eden.cpeaii;
+
+import java.awt.event.KeyEvent;
+
+/** An InputQueue carries key events from the thread receiving them to the
+ * simulation, which folds them into a key state once per tick. Events are
+ * timestamped and placed in a lock-free ring without allocating, so keys may
+ * be pressed on the event dispatch thread while the simulation runs on any
+ * other.
+ * <br><br>
+ * The state is a bitset of key codes, from which the buttons of the game are
+ * derived. A button pressed and released between two ticks still counts as
+ * pressed for the first of them, so that short taps are not lost. Since the
+ * buttons only change on ticks, the same buttons give the same game.
+ * <br><br>
+ * One thread may offer events, and one thread may poll them.
+ */
+public class InputQueue {
+
+  // buttons
+  /** Button bits of the key state */
+  public static final int UP = 1, DOWN = 2, LEFT = 4, RIGHT = 8, FIRE = 16;
+
+  /** Number of events held between two ticks, a power of two */
+  public static final int CAPACITY = 256;
+
+  /** Number of key codes in the key state, higher codes are ignored */
+  public static final int KEYS = 256;
+
+  /** Event code clearing the key state */
+  private static final int CLEAR = -1;
+
+  /** Flag of an event code for a press */
+  private static final int PRESS = 1 << 16;
+
+  /** Directions by vertical, then horizontal, button */
+  private static final Sprite.Direction[][] DIRECTIONS
+      = new Sprite.Direction[][]{
+        new Sprite.Direction[]{
+          Sprite.Direction.UL, Sprite.Direction.UU, Sprite.Direction.UR},
+        new Sprite.Direction[]{
+          Sprite.Direction.LL, Sprite.Direction.NO, Sprite.Direction.RR},
+        new Sprite.Direction[]{
+          Sprite.Direction.DL, Sprite.Direction.DD, Sprite.Direction.DR}};
+
+  // ring
+  /** Event codes: key code, optionally flagged PRESS, or CLEAR */
+  private final int[] codes = new int[CAPACITY];
+
+  /** Event times in nanoseconds */
+  private final long[] times = new long[CAPACITY];
+
+  /** Number of events offered. Advanced by the offering thread only */
+  private volatile long tail;
+
+  /** Number of events polled. Advanced by the polling thread only */
+  private volatile long head;
+
+  /** Number of events dropped as the ring was full */
+  private volatile long dropped;
+
+  // state, polling thread only
+  /** Bitset of the key codes held */
+  private final long[] keys = new long[KEYS / 64];
+
+  /** Buttons pressed since the last poll */
+  private int pressed;
+
+  /** Buttons of the last poll */
+  private int buttons;
+
+  /** Time of the oldest event of the last poll which changed a button in
+   * nanoseconds, or 0
+   */
+  private long oldest;
+
+  /** Queues a key press or release timed now
+   *
+   * @param keyCode key code of the KeyEvent
+   * @param press true if pressed; false if released
+   */
+  public void offer(int keyCode, boolean press) {
+    if (keyCode >= 0 && keyCode < KEYS)
+      offer(press ? keyCode | PRESS : keyCode, System.nanoTime());
+  }
+
+  /** Queues the release of every key, as when focus is lost */
+  public void clear() {
+    offer(CLEAR, System.nanoTime());
+  }
+
+  /** Places an event in the ring, or drops it if full */
+  private void offer(int code, long nanos) {
+    long t = this.tail;
+    if (t - this.head == CAPACITY) {
+      this.dropped++;
+      return;
+    }
+    int slot = (int) (t & (CAPACITY - 1));
+    this.codes[slot] = code;
+    this.times[slot] = nanos;
+    // publishes the slot
+    this.tail = t + 1;
+  }
+
+  /** Folds the events queued since the last poll into the key state. Called
+   * once per tick.
+   *
+   * @return buttons held, or pressed since the last poll
+   */
+  public int poll() {
+    long h = this.head, t = this.tail;
+    this.oldest = 0;
+    for (; h < t; h++) {
+      int slot = (int) (h & (CAPACITY - 1));
+      int code = this.codes[slot];
+      if (code == CLEAR) {
+        java.util.Arrays.fill(this.keys, 0);
+        this.pressed = 0;
+        continue;
+      }
+      int key = code & (PRESS - 1);
+      // repeated presses and unbound keys change nothing on screen
+      if (this.oldest == 0 && button(key) != 0
+          && isHeld(key) != ((code & PRESS) != 0))
+        this.oldest = this.times[slot];
+      if ((code & PRESS) != 0) {
+        this.keys[key >> 6] |= 1L << key;
+        this.pressed |= button(key);
+      } else
+        this.keys[key >> 6] &= ~(1L << key);
+    }
+    // frees the slots
+    this.head = t;
+    this.buttons = held() | this.pressed;
+    this.pressed = 0;
+    return this.buttons;
+  }
+
+  /** Returns the buttons of the last poll */
+  public int getButtons() {
+    return this.buttons;
+  }
+
+  /** Returns the time of the oldest event folded by the last poll which
+   * pressed or released a key bound to a button
+   *
+   * @return System.nanoTime() of the event, or 0 if there was none
+   */
+  public long getOldestNanos() {
+    return this.oldest;
+  }
+
+  /** Returns the number of events dropped as the ring was full */
+  public long getDropped() {
+    return this.dropped;
+  }
+
+  /** Returns whether a key is held in the key state
+   *
+   * @param keyCode key code of the KeyEvent
+   * @return true if held; false otherwise
+   */
+  public boolean isHeld(int keyCode) {
+    return keyCode >= 0 && keyCode < KEYS
+        && (this.keys[keyCode >> 6] & 1L << keyCode) != 0;
+  }
+
+  /** Returns the buttons of the keys held */
+  private int held() {
+    int out = 0;
+    for (int key = 0; key < KEYS; key += 64)
+      for (long bits = this.keys[key >> 6]; bits != 0; bits &= bits - 1)
+        out |= button(key + Long.numberOfTrailingZeros(bits));
+    return out;
+  }
+
+  /** Returns the button bound to a key code, or 0 if none */
+  public static int button(int keyCode) {
+    switch (keyCode) {
+      case KeyEvent.VK_UP:
+      case KeyEvent.VK_KP_UP:
+        return UP;
+      case KeyEvent.VK_DOWN:
+      case KeyEvent.VK_KP_DOWN:
+        return DOWN;
+      case KeyEvent.VK_LEFT:
+      case KeyEvent.VK_KP_LEFT:
+        return LEFT;
+      case KeyEvent.VK_RIGHT:
+      case KeyEvent.VK_KP_RIGHT:
+        return RIGHT;
+      case KeyEvent.VK_X:
+        return FIRE;
+      default:
+        return 0;
+    }
+  }
+
+  /** Returns the direction of the buttons. Up wins over down, and left over
+   * right, as on a keyboard where both may be held.
+   *
+   * @param buttons button bits
+   * @return direction of movement
+   */
+  public static Sprite.Direction direction(int buttons) {
+    int y = (buttons & UP) != 0 ? 0 : (buttons & DOWN) != 0 ? 2 : 1;
+    int x = (buttons & LEFT) != 0 ? 0 : (buttons & RIGHT) != 0 ? 2 : 1;
+    return DIRECTIONS[y][x];
+  }
+}
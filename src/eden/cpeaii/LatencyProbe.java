@@ -0,0 +1,87 @@
+package eden.cpeaii;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+import eden.common.GDMAudioMetrics.Histogram;
+
+/** A LatencyProbe measures how long the player waits to see the result of a
+ * key. Each key event is stamped with System.nanoTime() as it arrives; the
+ * stamp is carried through the tick which applies it to the Ship, then
+ * through the first frame presented after that tick.
+ * <br><br>
+ * Two histograms are kept: input to tick, which follows the update rate and
+ * the timer, and input to present, which adds rendering and buffering. A
+ * frame is presented when it has been handed to the window system, hence the
+ * time taken by the display itself is not included.
+ * <br><br>
+ * Only the oldest stamp waiting for a frame is kept, so that every frame
+ * counts the longest wait of the inputs it shows. Recording never allocates
+ * or locks.
+ */
+public class LatencyProbe {
+
+  /** Latencies from input to tick and from input to present in nanoseconds */
+  private final Histogram toTick = new Histogram(),
+      toPresent = new Histogram();
+
+  /** Oldest stamp applied but not yet presented, or 0 */
+  private final AtomicLong pending = new AtomicLong();
+
+  /** Records the stamp of the oldest input applied by a tick
+   *
+   * @param stamp System.nanoTime() at which the input arrived, or 0 if none
+   */
+  public void tick(long stamp) {
+    if (stamp == 0)
+      return;
+    this.toTick.record(System.nanoTime() - stamp);
+    this.pending.compareAndSet(0, stamp);
+  }
+
+  /** Records the presentation of a frame, which shows every input applied
+   * since the previous one
+   */
+  public void present() {
+    long stamp = this.pending.getAndSet(0);
+    if (stamp != 0)
+      this.toPresent.record(System.nanoTime() - stamp);
+  }
+
+  /** Returns the histogram of latencies from input to tick in nanoseconds */
+  public Histogram getToTick() {
+    return this.toTick;
+  }
+
+  /** Returns the histogram of latencies from input to present in
+   * nanoseconds
+   */
+  public Histogram getToPresent() {
+    return this.toPresent;
+  }
+
+  /** Clears both histograms */
+  public void reset() {
+    this.toTick.reset();
+    this.toPresent.reset();
+    this.pending.set(0);
+  }
+
+  /** Returns the median, 99th percentile and maximum latencies in
+   * milliseconds, with the number of inputs measured
+   */
+  @Override
+  public String toString() {
+    return String.format(java.util.Locale.ROOT,
+        "input to tick %s ms, to present %s ms, %d inputs",
+        ms(this.toTick), ms(this.toPresent), this.toPresent.getCount());
+  }
+
+  /** Returns "median/p99/max" of a histogram of nanoseconds in
+   * milliseconds
+   */
+  private static String ms(Histogram h) {
+    return String.format(java.util.Locale.ROOT, "%.1f/%.1f/%.1f",
+        h.getPercentile(0.5) / 1e6, h.getPercentile(0.99) / 1e6,
+        h.getMax() / 1e6);
+  }
+}
@@ -2,6 +2,7 @@ package eden.cpeaii;
 
 import java.awt.*;
 import java.awt.geom.*;
+import java.nio.ByteBuffer;
 import java.util.*;
 
 public class LineParticleFactory {
@@ -19,15 +20,25 @@ public class LineParticleFactory {
    */
   private final int resolution;
 
+  /** Maximum number of LineParticles to be made per disassembly */
+  private int segments;
+
   // interaction
   /** Effect upon intersection between a LineParticle and another Sprite */
   private Effect effect;
 
-  public LineParticleFactory(int resolution, Effect effect) {
+  // randomness
+  /** Stream drawn from for the direction of a LineParticle */
+  private final Randomizer random;
+
+  public LineParticleFactory(int resolution, Effect effect, Randomizer random) {
     // attributes
     this.resolution = resolution;
+    this.segments = Integer.MAX_VALUE;
     // interaction
     this.effect = effect;
+    // randomness
+    this.random = random;
   }
 
   /** Disassembles a Sprite into LineParticles. This method only reads the
@@ -62,7 +73,7 @@ public class LineParticleFactory {
     coordinates[0][1] = (int) segment[1];
     coordinates[1] = Arrays.copyOf(coordinates[0], 2);
     i.next();
-    for (byte b = 1; !i.isDone(); b *= -1) {
+    for (byte b = 1; !i.isDone() && out.size() < this.segments; b *= -1) {
       // can be done nicer if one can cast between array types and lengths
       i.currentSegment(segment);
       coordinates[b + 1][0] = (int) segment[0];
@@ -78,8 +89,8 @@ public class LineParticleFactory {
             coordinates[+b + 1][1],
             coordinates[-b + 1][0],
             coordinates[-b + 1][1],
-            Randomizer.random(-2, 2, false) * 100,
-            Randomizer.random(-2, 2, false) * 100,
+            this.random.nextInt(-2, 2, false) * 100,
+            this.random.nextInt(-2, 2, false) * 100,
             true
         ));
       else
@@ -88,8 +99,8 @@ public class LineParticleFactory {
             coordinates[b + 1][1],
             coordinates[1][0],
             coordinates[1][1],
-            Randomizer.random(-2, 2, false) * 100,
-            Randomizer.random(-2, 2, false) * 100,
+            this.random.nextInt(-2, 2, false) * 100,
+            this.random.nextInt(-2, 2, false) * 100,
             true
         ));
       i.next();
@@ -98,6 +109,56 @@ public class LineParticleFactory {
     return out;
   }
 
+  /** Makes a LineParticle from the state written by its save(ByteBuffer)
+   *
+   * @param in buffer positioned at the state
+   * @return LineParticle read
+   */
+  public LineParticle make(ByteBuffer in) {
+    return new LineParticleImpl(in);
+  }
+
+  /** Writes the Randomizer state of the LineParticleFactory
+   *
+   * @param out buffer to be written at its position
+   */
+  public void save(ByteBuffer out) {
+    this.random.save(out);
+  }
+
+  /** Reads the state written by save(ByteBuffer) into the
+   * LineParticleFactory
+   *
+   * @param in buffer positioned at the state
+   */
+  public void restore(ByteBuffer in) {
+    this.random.restore(in);
+  }
+
+  /** Returns the maximum number of LineParticles to be made per disassembly
+   *
+   * @return segments of the LineParticleFactory
+   */
+  public int getSegments() {
+    return this.segments;
+  }
+
+  /** Sets the maximum number of LineParticles to be made per disassembly
+   *
+   * @param segments new segments of the LineParticleFactory
+   */
+  public void setSegments(int segments) {
+    this.segments = Math.max(segments, 0);
+  }
+
+  /** Returns the stream drawn from for the direction of a LineParticle
+   *
+   * @return Randomizer of the LineParticleFactory
+   */
+  public Randomizer getRandomizer() {
+    return this.random;
+  }
+
   /** Returns the Effect upon intersection between an Asteroid and another
    * Sprite
    *
@@ -131,5 +192,20 @@ public class LineParticleFactory {
       this.outline = OUTLINE;
       this.fill = FILL;
     }
+
+    /** Reads its own view bounds as well, which are not shared */
+    LineParticleImpl(ByteBuffer in) {
+      super(in);
+      this.viewBounds = new Rectangle2D.Double(in.getDouble(), in.getDouble(),
+          in.getDouble(), in.getDouble());
+    }
+
+    @Override
+    public void save(ByteBuffer out) {
+      super.save(out);
+      out.putDouble(this.viewBounds.getX()).putDouble(this.viewBounds.getY())
+          .putDouble(this.viewBounds.getWidth())
+          .putDouble(this.viewBounds.getHeight());
+    }
   }
 }
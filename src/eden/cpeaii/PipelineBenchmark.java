@@ -0,0 +1,326 @@
+package eden.cpeaii;
+
+import java.awt.*;
+import java.awt.geom.*;
+import java.awt.image.*;
+import java.io.*;
+import java.nio.file.*;
+import java.util.*;
+
+import eden.common.io.Modal;
+
+/** A PipelineBenchmark renders scripted frames off-screen under each Java2D
+ * pipeline and rendering hint combination, and reports frames per second and
+ * cost per primitive.
+ * <br><br>
+ * Java2D picks its pipeline once per JVM, so every pipeline is measured in a
+ * child JVM of its own. As Java2D silently falls back to its default loops
+ * when a pipeline cannot start, the child first confirms from its
+ * GraphicsConfiguration that the pipeline is active, or reports it
+ * UNAVAILABLE. The confirmed pipeline with the highest frame rate on the
+ * combined scene, with the hints the game starts with, is written to
+ * PIPELINE_FILE, which GameFrame reads at startup. Headless runs render
+ * through the same loops under every pipeline, hence never write the file.
+ * <br><br>
+ * Usage: java eden.cpeaii.PipelineBenchmark [frames]
+ */
+public class PipelineBenchmark {
+
+  private static final Modal modal = new Modal("PipelineBenchmark");
+
+  /** File into which the fastest pipeline is written */
+  public static final String PIPELINE_FILE = "pipeline.properties";
+
+  /** Pipelines as system properties to start a child JVM with */
+  public static final String[][] PIPELINES = new String[][]{
+    new String[]{"software",
+      "-Dsun.java2d.opengl=false", "-Dsun.java2d.xrender=false",
+      "-Dsun.java2d.d3d=false"},
+    new String[]{"xrender", "-Dsun.java2d.xrender=True"},
+    new String[]{"opengl", "-Dsun.java2d.opengl=True"},
+    new String[]{"d3d", "-Dsun.java2d.d3d=True"}
+  };
+
+  /** Scene names */
+  public static final String[] SCENES = new String[]{
+    "asteroids", "particles", "stars", "hud", "all"};
+
+  /** Frame dimensions */
+  public static final int WIDTH = 640, HEIGHT = 480;
+
+  /** Seed of the scenes, the same for every pipeline */
+  public static final long SEED = 0x0C9EA11L;
+
+  /** Prefix of the result lines printed by a child JVM */
+  private static final String RESULT = "RESULT";
+
+  /** Prefix of the line printed by a child JVM whose pipeline is active */
+  private static final String ACTIVE = "ACTIVE";
+
+  /** Prefix of the line printed by a child JVM whose pipeline is not */
+  private static final String UNAVAILABLE = "UNAVAILABLE";
+
+  public static void main(String[] args) throws Exception {
+    int frames = args.length > 0 ? Integer.parseInt(args[0]) : 300;
+    if (args.length > 2 && args[1].equals("child")) {
+      String active = activePipeline();
+      if (!active.equals(args[2])) {
+        System.out.println(UNAVAILABLE + " " + active);
+        return;
+      }
+      System.out.println(ACTIVE + " " + active);
+      runChild(frames);
+      return;
+    }
+    String best = null;
+    double bestRate = 0;
+    String[] bestProperties = null;
+    for (String[] pipeline : PIPELINES) {
+      java.util.List<String> command = new ArrayList<>();
+      command.add(Paths.get(System.getProperty("java.home"), "bin", "java")
+          .toString());
+      command.add("-cp");
+      command.add(System.getProperty("java.class.path"));
+      command.add("-Djava.awt.headless="
+          + GraphicsEnvironment.isHeadless());
+      command.addAll(Arrays.asList(pipeline).subList(1, pipeline.length));
+      command.add(PipelineBenchmark.class.getName());
+      command.add(Integer.toString(frames));
+      command.add("child");
+      command.add(pipeline[0]);
+      Process process = new ProcessBuilder(command).redirectErrorStream(true)
+          .start();
+      double rate = 0;
+      // pipeline which the child found active, and whether it was confirmed
+      String active = null;
+      boolean confirmed = false;
+      try (BufferedReader in = new BufferedReader(
+          new InputStreamReader(process.getInputStream()))) {
+        String line;
+        while ((line = in.readLine()) != null) {
+          if (line.startsWith(ACTIVE + " ")
+              || line.startsWith(UNAVAILABLE + " ")) {
+            active = line.substring(line.indexOf(' ') + 1);
+            confirmed = line.startsWith(ACTIVE) && active.equals(pipeline[0]);
+          }
+          if (!line.startsWith(RESULT))
+            continue;
+          // RESULT target scene hints fps ns/primitive
+          String[] fields = line.split(" ");
+          modal.println(String.format(" %-8s %-9s %-10s %-12s %9s fps %9s ns",
+              pipeline[0], fields[1], fields[2], fields[3], fields[4],
+              fields[5]), Modal.INFO);
+          if (fields[2].equals("all") && fields[3].equals("aa")
+              && !fields[1].equals("soft"))
+            rate = Double.parseDouble(fields[4]);
+        }
+      }
+      if (process.waitFor() != 0 || !confirmed)
+        modal.println(" " + pipeline[0] + " UNAVAILABLE"
+            + (active == null ? "" : ", " + active + " active"), Modal.ALERT);
+      else if (rate > bestRate) {
+        best = pipeline[0];
+        bestRate = rate;
+        bestProperties = pipeline;
+      }
+    }
+    if (best == null) {
+      modal.println(" NO PIPELINE", Modal.ERROR);
+      return;
+    }
+    if (GraphicsEnvironment.isHeadless()) {
+      modal.println(" HEADLESS, " + PIPELINE_FILE + " not written",
+          Modal.ALERT);
+      return;
+    }
+    Properties properties = new Properties();
+    for (int i = 1; i < bestProperties.length; i++) {
+      String[] pair = bestProperties[i].substring(2).split("=", 2);
+      properties.setProperty(pair[0], pair[1]);
+    }
+    try (Writer out = Files.newBufferedWriter(Paths.get(PIPELINE_FILE))) {
+      properties.store(out, "fastest: " + best + ", "
+          + String.format("%.1f", bestRate) + " fps");
+    }
+    modal.println(" FASTEST " + best + ", written to " + PIPELINE_FILE,
+        Modal.INFO);
+  }
+
+  /** Applies the pipeline chosen by a previous benchmark run. Properties set
+   * on the command line take precedence.
+   *
+   * @return true if a pipeline file was found; false otherwise
+   */
+  public static boolean applyPipeline() {
+    Path path = Paths.get(PIPELINE_FILE);
+    if (!Files.isReadable(path))
+      return false;
+    Properties properties = new Properties();
+    try (Reader in = Files.newBufferedReader(path)) {
+      properties.load(in);
+    } catch (IOException e) {
+      modal.println(" " + PIPELINE_FILE + ": " + e, Modal.ERROR);
+      return false;
+    }
+    for (String key : properties.stringPropertyNames())
+      if (System.getProperty(key) == null)
+        System.setProperty(key, properties.getProperty(key));
+    return true;
+  }
+
+  /** Returns the pipeline which Java2D actually uses in this JVM, as named in
+   * PIPELINES, from the class of the default GraphicsConfiguration
+   *
+   * @return name of the active pipeline, "software" if headless
+   */
+  private static String activePipeline() {
+    if (GraphicsEnvironment.isHeadless())
+      return "software";
+    String config = GraphicsEnvironment.getLocalGraphicsEnvironment()
+        .getDefaultScreenDevice().getDefaultConfiguration().getClass()
+        .getName();
+    if (config.startsWith("sun.java2d.xr."))
+      return "xrender";
+    if (config.startsWith("sun.java2d.opengl."))
+      return "opengl";
+    if (config.startsWith("sun.java2d.d3d."))
+      return "d3d";
+    if (config.startsWith("sun.java2d.metal."))
+      return "metal";
+    return "software";
+  }
+
+  /** Renders every scene under every hint combination in this JVM */
+  private static void runChild(int frames) {
+    Scene[] scenes = new Scene[SCENES.length];
+    for (int i = 0; i < scenes.length; i++)
+      scenes[i] = new Scene(SCENES[i]);
+    Image target;
+    String name;
+    if (GraphicsEnvironment.isHeadless()) {
+      target = new BufferedImage(WIDTH, HEIGHT, BufferedImage.TYPE_INT_RGB);
+      name = "buffered";
+    } else {
+      // accelerated surfaces are where pipelines differ
+      target = GraphicsEnvironment.getLocalGraphicsEnvironment()
+          .getDefaultScreenDevice().getDefaultConfiguration()
+          .createCompatibleVolatileImage(WIDTH, HEIGHT);
+      name = "volatile";
+    }
+    Object[][] hints = new Object[][]{
+      new Object[]{"aa", RenderingHints.VALUE_ANTIALIAS_ON,
+        RenderingHints.VALUE_RENDER_DEFAULT},
+      new Object[]{"aa-quality", RenderingHints.VALUE_ANTIALIAS_ON,
+        RenderingHints.VALUE_RENDER_QUALITY},
+      new Object[]{"plain", RenderingHints.VALUE_ANTIALIAS_OFF,
+        RenderingHints.VALUE_RENDER_DEFAULT},
+      new Object[]{"plain-speed", RenderingHints.VALUE_ANTIALIAS_OFF,
+        RenderingHints.VALUE_RENDER_SPEED}
+    };
+    for (Scene scene : scenes)
+      for (Object[] hint : hints) {
+        // warm up, then measure
+        render(target, scene, hint, frames / 4);
+        long time = render(target, scene, hint, frames);
+        report(name, scene, (String) hint[0], frames, time);
+      }
+    SoftwareRenderer renderer = new SoftwareRenderer(WIDTH, HEIGHT);
+    for (Scene scene : scenes) {
+      renderSoftware(renderer, scene, frames / 4);
+      long time = renderSoftware(renderer, scene, frames);
+      report("soft", scene, "-", frames, time);
+    }
+  }
+
+  private static long render(
+      Image target, Scene scene, Object[] hint, int frames) {
+    long time = System.nanoTime();
+    for (int f = 0; f < frames; f++) {
+      Graphics2D g = (Graphics2D) target.getGraphics();
+      g.setRenderingHint(RenderingHints.KEY_ANTIALIASING, hint[1]);
+      g.setRenderingHint(RenderingHints.KEY_RENDERING, hint[2]);
+      g.setColor(Color.BLACK);
+      g.fillRect(0, 0, WIDTH, HEIGHT);
+      scene.sprites.forEach(s -> s.draw(g));
+      if (scene.hud)
+        drawHud(g, f);
+      g.dispose();
+      if (target instanceof VolatileImage)
+        // force completion of queued operations
+        ((VolatileImage) target).getSnapshot().getRGB(0, 0);
+    }
+    return System.nanoTime() - time;
+  }
+
+  private static long renderSoftware(
+      SoftwareRenderer renderer, Scene scene, int frames) {
+    long time = System.nanoTime();
+    for (int f = 0; f < frames; f++) {
+      renderer.begin(Color.BLACK);
+      scene.sprites.forEach(renderer::add);
+      renderer.finish();
+      if (scene.hud) {
+        Graphics2D g = renderer.getImage().createGraphics();
+        drawHud(g, f);
+        g.dispose();
+      }
+    }
+    return System.nanoTime() - time;
+  }
+
+  private static void drawHud(Graphics2D g, int frame) {
+    g.setFont(GameComponent.FONT);
+    g.setColor(Color.WHITE);
+    for (int i = 0; i < Scene.HUD_LINES; i++)
+      g.drawString("SC: " + (frame + i), 16, 16 + i * 18);
+  }
+
+  private static void report(
+      String target, Scene scene, String hint, int frames, long time) {
+    System.out.println(String.format(Locale.ROOT, "%s %s %s %s %.1f %.0f",
+        RESULT, target, scene.name, hint, frames * 1e9 / time,
+        (double) time / frames / Math.max(1, scene.primitives())));
+  }
+
+  /** A Scene is a fixed set of Sprites representative of gameplay */
+  private static class Scene {
+
+    /** Lines of text drawn by the hud scene */
+    static final int HUD_LINES = 8;
+
+    final String name;
+
+    final java.util.List<Sprite> sprites = new ArrayList<>();
+
+    final boolean hud;
+
+    Scene(String name) {
+      this.name = name;
+      boolean all = name.equals("all");
+      this.hud = all || name.equals("hud");
+      Rectangle2D bounds = new Rectangle2D.Double(0, 0, WIDTH, HEIGHT);
+      Randomizer random = new Randomizer(SEED);
+      if (all || name.equals("stars"))
+        for (int i = 0; i < 3; i++)
+          this.sprites.addAll(new StarDustTile(bounds, bounds, 2 - i / 2,
+              GameComponent.STARDUST_DENSITIES[i] * 3, -25, 0, 3 - i,
+              Color.WHITE, random.split()).getStarDusts());
+      AsteroidFactory asteroids = new AsteroidFactory(bounds, bounds, 24,
+          Effect.DAMAGE, GameComponent.ASTEROID_COLORS[0][1], random.split());
+      LineParticleFactory particles
+          = new LineParticleFactory(0, Effect.DAMAGE, random.split());
+      if (all || name.equals("asteroids"))
+        for (int i = 0; i < 100; i++)
+          this.sprites.add(asteroids.make(0, 0, 0));
+      if (all || name.equals("particles"))
+        for (int i = 0; i < 60; i++)
+          this.sprites.addAll(particles.disassemble(asteroids.make(0, 0, 0)));
+      if (all)
+        this.sprites.add(new VicViper(16, HEIGHT / 2, 0, true));
+    }
+
+    int primitives() {
+      return this.sprites.size() + (this.hud ? HUD_LINES : 0);
+    }
+  }
+}
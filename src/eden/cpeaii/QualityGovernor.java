@@ -0,0 +1,198 @@
+package eden.cpeaii;
+
+import eden.common.io.AsyncPrintStream;
+import eden.common.io.EventLog;
+import eden.common.io.Modal;
+
+/** A QualityGovernor watches rolling frame times and steps the rendering
+ * quality down when frames miss their budget, or up when they comfortably beat
+ * it. Changes are subject to hysteresis: a level is held for at least a full
+ * window of frames before it may change again, and stepping up requires twice
+ * as long a streak of cheap frames as stepping down requires expensive ones.
+ */
+public class QualityGovernor {
+
+  private static final Modal modal
+      = new Modal("QualityGovernor", AsyncPrintStream.getStdout());
+
+  /** Event format of a level change */
+  private static final int LEVEL = EventLog.define(" LVL %d > %d");
+
+  // levels
+  /** Lowest quality level */
+  public static final byte LEVEL_MIN = 0;
+
+  /** Highest quality level */
+  public static final byte LEVEL_MAX = 3;
+
+  // thresholds
+  /** Fraction of the budget above which a frame counts as a miss */
+  public static final double HIGH_WATERMARK = 0.9;
+
+  /** Fraction of the budget below which a frame counts as comfortable */
+  public static final double LOW_WATERMARK = 0.5;
+
+  // attributes
+  /** Frame time budget in nanoseconds */
+  private final long budget;
+
+  /** Rolling window of frame times in nanoseconds */
+  private final long[] samples;
+
+  /** Sum of the frame times in the window */
+  private long sum;
+
+  /** Index of the next sample to be replaced */
+  private int index;
+
+  /** Number of samples in the window */
+  private int count;
+
+  /** Number of frames since the last level change */
+  private int held;
+
+  /** Consecutive frames whose rolling average beat the low watermark */
+  private int streak;
+
+  /** Current quality level */
+  private byte level;
+
+  public QualityGovernor(int rate, int window) {
+    this.budget = 1000000000L / rate;
+    this.samples = new long[window];
+    this.level = LEVEL_MAX;
+  }
+
+  /** Records the time taken by a frame and adjusts the quality level as
+   * necessary
+   *
+   * @param nanos time taken by the frame in nanoseconds
+   * @return true if the quality level changed; false otherwise
+   */
+  public boolean sample(long nanos) {
+    if (this.count == this.samples.length)
+      this.sum -= this.samples[this.index];
+    else
+      this.count++;
+    this.samples[this.index] = nanos;
+    this.sum += nanos;
+    this.index = (this.index + 1) % this.samples.length;
+    if (++this.held < this.samples.length)
+      return false;
+    long average = getAverage();
+    if (average > this.budget * HIGH_WATERMARK) {
+      this.streak = 0;
+      return setLevel(this.level - 1);
+    } else if (average < this.budget * LOW_WATERMARK) {
+      if (++this.streak >= this.samples.length * 2) {
+        this.streak = 0;
+        return setLevel(this.level + 1);
+      }
+    } else
+      this.streak = 0;
+    return false;
+  }
+
+  /** Discards the rolling window. Used after pauses, whose frames say nothing
+   * about the cost of rendering.
+   */
+  public void reset() {
+    this.sum = 0;
+    this.index = 0;
+    this.count = 0;
+    this.held = 0;
+    this.streak = 0;
+  }
+
+  /** Returns the rolling average frame time
+   *
+   * @return average frame time in nanoseconds
+   */
+  public long getAverage() {
+    return this.count == 0 ? 0 : this.sum / this.count;
+  }
+
+  /** Returns the frame time budget
+   *
+   * @return budget in nanoseconds
+   */
+  public long getBudget() {
+    return this.budget;
+  }
+
+  /** Returns the current quality level
+   *
+   * @return level in [LEVEL_MIN, LEVEL_MAX]
+   */
+  public byte getLevel() {
+    return this.level;
+  }
+
+  /** Sets the quality level, restarting the hysteresis window
+   *
+   * @param level new quality level
+   * @return true if the quality level changed; false otherwise
+   */
+  public boolean setLevel(int level) {
+    byte clamped = (byte) Math.max(LEVEL_MIN, Math.min(LEVEL_MAX, level));
+    this.held = 0;
+    if (clamped == this.level)
+      return false;
+    byte from = this.level;
+    modal.println(Modal.INFO, () -> " LVL " + from + " > " + clamped);
+    modal.event(Modal.INFO, LEVEL, from, clamped);
+    this.level = clamped;
+    return true;
+  }
+
+  // levers
+  /** Returns whether antialiasing should be on
+   *
+   * @return true if the condition is met; false otherwise
+   */
+  public boolean isAntialiased() {
+    return this.level >= 3;
+  }
+
+  /** Returns whether VectorSprites should be filled, or only outlined
+   *
+   * @return true if the condition is met; false otherwise
+   */
+  public boolean isFilled() {
+    return this.level >= 1;
+  }
+
+  /** Returns the number of StarDustTile layers to be drawn and updated
+   *
+   * @param layers number of available layers
+   * @return number of active layers
+   */
+  public int getStarLayers(int layers) {
+    return this.level >= 2 ? layers : Math.max(1, layers - 2 + this.level);
+  }
+
+  /** Returns the StarDustTile density to be used
+   *
+   * @param density density at the highest quality level
+   * @return scaled density
+   */
+  public int getStarDensity(int density) {
+    return this.level >= 3 ? density : density * (this.level + 1) / 4 + 1;
+  }
+
+  /** Returns the maximum number of LineParticles alive at once
+   *
+   * @return particle budget
+   */
+  public int getParticleBudget() {
+    return 128 << this.level;
+  }
+
+  /** Returns the maximum number of LineParticles per disassembly
+   *
+   * @return segment count
+   */
+  public int getParticleSegments() {
+    return 4 << this.level;
+  }
+}
@@ -1,14 +1,241 @@
 package eden.cpeaii;
 
+import java.nio.ByteBuffer;
 import java.util.concurrent.ThreadLocalRandom;
 
+/** A Randomizer is a seedable and splittable stream of pseudorandom numbers,
+ * after the SplitMix64 algorithm of java.util.SplittableRandom. The same seed
+ * gives the same numbers on every run and platform, and a split stream is
+ * independent of its parent, so that subsystems drawing from their own
+ * streams do not shift each other. A Randomizer is not thread-safe; it is
+ * meant to be owned by one subsystem of a session and used from its thread.
+ * <br><br>
+ * Bounds follow ThreadLocalRandom: a minimum is inclusive, a maximum is
+ * exclusive, and equal bounds give the bound itself. The static methods draw
+ * from the ThreadLocalRandom of the calling thread, for numbers which need
+ * not be reproduced.
+ */
 public class Randomizer {
 
-  /** "A random number generator isolated to the current thread" */
-  private final static ThreadLocalRandom RANDOM = ThreadLocalRandom.current();
+  /** Gamma of a seeded Randomizer, the odd integer closest to 2^64 divided
+   * by the golden ratio
+   */
+  private static final long GOLDEN_GAMMA = 0x9e3779b97f4a7c15L;
+
+  /** Unit of a double drawn from 53 random bits */
+  private static final double DOUBLE_UNIT = 0x1.0p-53;
+
+  /** State, advanced by gamma on every number */
+  private long seed;
+
+  /** Odd increment of the state, distinct per split stream */
+  private long gamma;
+
+  public Randomizer(long seed) {
+    this(seed, GOLDEN_GAMMA);
+  }
+
+  private Randomizer(long seed, long gamma) {
+    this.seed = seed;
+    this.gamma = gamma;
+  }
+
+  /** Returns a seed for a new session, different on every call */
+  public static long newSeed() {
+    return ThreadLocalRandom.current().nextLong();
+  }
+
+  /** Returns a new Randomizer independent of this one, advancing this one
+   * by two numbers
+   *
+   * @return split Randomizer
+   */
+  public Randomizer split() {
+    return new Randomizer(nextLong(), mixGamma(nextSeed()));
+  }
+
+  /** Writes the state of the Randomizer
+   *
+   * @param out buffer to be written at its position
+   */
+  public void save(ByteBuffer out) {
+    out.putLong(this.seed).putLong(this.gamma);
+  }
+
+  /** Reads the state written by save(ByteBuffer) into the Randomizer, which
+   * then draws the same numbers as the one saved
+   *
+   * @param in buffer positioned at the state
+   */
+  public void restore(ByteBuffer in) {
+    this.seed = in.getLong();
+    this.gamma = in.getLong() | 1L;
+  }
+
+  /** Returns a random long */
+  public long nextLong() {
+    return mix64(nextSeed());
+  }
+
+  /** Returns a random int */
+  public int nextInt() {
+    return mix32(nextSeed());
+  }
+
+  /** Returns a random int from min, inclusive, to max, exclusive
+   *
+   * @throws IllegalArgumentException if min > max
+   */
+  public int nextInt(int min, int max) {
+    if (min == max)
+      return min;
+    if (min > max)
+      throw new IllegalArgumentException("BAD bounds: " + min + ", " + max);
+    int r = mix32(nextSeed());
+    int n = max - min, m = n - 1;
+    if ((n & m) == 0)
+      return (r & m) + min;
+    if (n > 0) {
+      for (int u = r >>> 1; u + m - (r = u % n) < 0;
+          u = mix32(nextSeed()) >>> 1);
+      return r + min;
+    }
+    // the range overflows an int
+    while (r < min || r >= max)
+      r = mix32(nextSeed());
+    return r;
+  }
+
+  /** Returns a random int from min, inclusive, to max, exclusive, which is
+   * not 0 unless allowed
+   */
+  public int nextInt(int min, int max, boolean allowZero) {
+    int out = nextInt(min, max);
+    while (!allowZero && out == 0 && min != max)
+      out = nextInt(min, max);
+    return out;
+  }
+
+  /** Returns a random long from min, inclusive, to max, exclusive
+   *
+   * @throws IllegalArgumentException if min > max
+   */
+  public long nextLong(long min, long max) {
+    if (min == max)
+      return min;
+    if (min > max)
+      throw new IllegalArgumentException("BAD bounds: " + min + ", " + max);
+    long r = mix64(nextSeed());
+    long n = max - min, m = n - 1;
+    if ((n & m) == 0L)
+      return (r & m) + min;
+    if (n > 0L) {
+      for (long u = r >>> 1; u + m - (r = u % n) < 0L;
+          u = mix64(nextSeed()) >>> 1);
+      return r + min;
+    }
+    // the range overflows a long
+    while (r < min || r >= max)
+      r = mix64(nextSeed());
+    return r;
+  }
+
+  /** Returns a random long from min, inclusive, to max, exclusive, which is
+   * not 0 unless allowed
+   */
+  public long nextLong(long min, long max, boolean allowZero) {
+    long out = nextLong(min, max);
+    while (!allowZero && out == 0 && min != max)
+      out = nextLong(min, max);
+    return out;
+  }
+
+  /** Returns a random double from 0, inclusive, to 1, exclusive */
+  public double nextDouble() {
+    return (mix64(nextSeed()) >>> 11) * DOUBLE_UNIT;
+  }
+
+  /** Returns a random double from min, inclusive, to max, exclusive
+   *
+   * @throws IllegalArgumentException if min > max
+   */
+  public double nextDouble(double min, double max) {
+    if (min == max)
+      return min;
+    if (!(min < max))
+      throw new IllegalArgumentException("BAD bounds: " + min + ", " + max);
+    double r = nextDouble() * (max - min) + min;
+    return r < max ? r : Math.nextDown(max);
+  }
+
+  /** Returns a random double from min, inclusive, to max, exclusive, which
+   * is not 0 unless allowed
+   */
+  public double nextDouble(double min, double max, boolean allowZero) {
+    double out = nextDouble(min, max);
+    while (!allowZero && out == 0.0 && min != max)
+      out = nextDouble(min, max);
+    return out;
+  }
+
+  /** Fills a range of an array with random ints from min, inclusive, to max,
+   * exclusive
+   *
+   * @param out array to be filled
+   * @param offset index of the first int
+   * @param length number of ints
+   */
+  public void fill(int[] out, int offset, int length, int min, int max) {
+    for (int i = offset; i < offset + length; i++)
+      out[i] = nextInt(min, max);
+  }
+
+  /** Fills a range of an array with random longs */
+  public void fill(long[] out, int offset, int length) {
+    long s = this.seed, g = this.gamma;
+    for (int i = offset; i < offset + length; i++)
+      out[i] = mix64(s += g);
+    this.seed = s;
+  }
+
+  /** Fills a range of an array with random doubles from min, inclusive, to
+   * max, exclusive
+   */
+  public void fill(
+      double[] out, int offset, int length, double min, double max) {
+    for (int i = offset; i < offset + length; i++)
+      out[i] = nextDouble(min, max);
+  }
+
+  /** Advances the state */
+  private long nextSeed() {
+    return this.seed += this.gamma;
+  }
+
+  /** Returns the 64-bit mix of a state, variant 13 of Stafford */
+  private static long mix64(long z) {
+    z = (z ^ (z >>> 30)) * 0xbf58476d1ce4e5b9L;
+    z = (z ^ (z >>> 27)) * 0x94d049bb133111ebL;
+    return z ^ (z >>> 31);
+  }
+
+  /** Returns the 32 high bits of a variant 4 mix of a state */
+  private static int mix32(long z) {
+    z = (z ^ (z >>> 33)) * 0x62a9d9ed799705f5L;
+    return (int) (((z ^ (z >>> 28)) * 0xcb24d0a5c88c35b3L) >>> 32);
+  }
+
+  /** Returns an odd gamma with enough bit transitions from a state */
+  private static long mixGamma(long z) {
+    z = (z ^ (z >>> 33)) * 0xff51afd7ed558ccdL;
+    z = (z ^ (z >>> 33)) * 0xc4ceb9fe1a85ec53L;
+    z = (z ^ (z >>> 33)) | 1L;
+    int n = Long.bitCount(z ^ (z >>> 1));
+    return n < 24 ? z ^ 0xaaaaaaaaaaaaaaaaL : z;
+  }
 
   public static int random(int min, int max) {
-    return min == max ? min : RANDOM.nextInt(min, max);
+    return min == max ? min : ThreadLocalRandom.current().nextInt(min, max);
   }
 
   public static int random(int min, int max, boolean allowZero) {
@@ -16,17 +243,17 @@ public class Randomizer {
       if (!allowZero) {
         int out;
         do
-          out = RANDOM.nextInt(min, max);
+          out = ThreadLocalRandom.current().nextInt(min, max);
         while (out == 0);
         return out;
       }
-      return RANDOM.nextInt(min, max);
+      return ThreadLocalRandom.current().nextInt(min, max);
     }
     return min;
   }
 
   public static long random(long min, long max) {
-    return min == max ? min : RANDOM.nextLong(min, max);
+    return min == max ? min : ThreadLocalRandom.current().nextLong(min, max);
   }
 
   public static long random(long min, long max, boolean allowZero) {
@@ -34,17 +261,18 @@ public class Randomizer {
       if (!allowZero) {
         long out;
         do
-          out = RANDOM.nextLong(min, max);
+          out = ThreadLocalRandom.current().nextLong(min, max);
         while (out == 0);
         return out;
       }
-      return RANDOM.nextLong(min, max);
+      return ThreadLocalRandom.current().nextLong(min, max);
     }
     return min;
   }
 
   public static double random(double min, double max) {
-    return min == max ? min : RANDOM.nextDouble(min, max);
+    return min == max ? min
+        : ThreadLocalRandom.current().nextDouble(min, max);
   }
 
   public static double random(double min, double max, boolean allowZero) {
@@ -52,11 +280,11 @@ public class Randomizer {
       if (!allowZero) {
         double out;
         do
-          out = RANDOM.nextDouble(min, max);
+          out = ThreadLocalRandom.current().nextDouble(min, max);
         while (out == 0.0);
         return out;
       }
-      return RANDOM.nextDouble(min, max);
+      return ThreadLocalRandom.current().nextDouble(min, max);
     }
     return min;
   }
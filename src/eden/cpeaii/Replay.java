@@ -0,0 +1,327 @@
+package eden.cpeaii;
+
+import java.io.*;
+import java.nio.*;
+import java.nio.channels.*;
+import java.nio.file.*;
+
+/** A Replay is a recorded session: the seed of its Randomizer streams, and
+ * every input which the simulation does not decide on its own, as changes on
+ * the ticks at which they happen. Played back from the same seed, the same
+ * changes give the same game, bit for bit, at any speed.
+ * <br><br>
+ * Two inputs are recorded: the buttons of the InputQueue, with a HOLD bit
+ * while the game is paused for want of focus, and the sync of the field,
+ * theme and Asteroid generation to the music. An end record closes the
+ * session with its score and a checksum of its state, so that a playback can
+ * tell whether it diverged. A session quit before its end is closed by an
+ * unverified end record instead, and a file cut short ends at its last
+ * record.
+ * <br><br>
+ * The file begins with a header of MAGIC, VERSION, the update rate and the
+ * seed. Each record follows as two unsigned LEB128 varints: the number of
+ * ticks since the previous record, and a value whose low two bits are its
+ * type. Buttons are stored as the bits changed since the previous record, so
+ * that most records take two bytes and an hour of play takes kilobytes.
+ */
+public class Replay {
+
+  /** File signature, "CPRP" */
+  public static final int MAGIC = 0x43505250;
+
+  /** File format version */
+  public static final byte VERSION = 1;
+
+  /** Button bit of a tick during which the game is held */
+  public static final int HOLD = 1 << 5;
+
+  // record types
+  /** Record of the buttons changed, XOR the previous buttons */
+  private static final int INPUT = 0;
+
+  /** Record of the field sync, see sync() */
+  private static final int SYNC = 1;
+
+  /** Record of the end, with the score and whether it is verified, followed
+   * by the checksum
+   */
+  private static final int END = 3;
+
+  /** Size of the header in bytes */
+  private static final int HEADER = 4 + 1 + 1 + 8;
+
+  /** Returns the sync value of a field, theme and Asteroid generation
+   *
+   * @param field game field
+   * @param theme game theme
+   * @param generating whether Asteroids are generated
+   * @return value to be recorded
+   */
+  public static int sync(int field, int theme, boolean generating) {
+    return theme << 3 | (generating ? 0 : 4) | field;
+  }
+
+  /** A Writer streams the records of a session into a file through a buffer,
+   * which is written out whenever full, hence recording does not allocate and
+   * seldom touches the file
+   */
+  public static class Writer implements Closeable {
+
+    /** File being written */
+    private final FileChannel channel;
+
+    /** Records pending a write */
+    private final ByteBuffer buffer = ByteBuffer.allocateDirect(4096);
+
+    /** Tick of the previous record */
+    private int tick;
+
+    /** Last tick seen */
+    private int last;
+
+    /** Buttons and sync value of the previous records */
+    private int buttons, sync = -1;
+
+    /** Whether the end was written */
+    private boolean closed;
+
+    public Writer(Path path, long seed) throws IOException {
+      this.channel = FileChannel.open(path, StandardOpenOption.CREATE,
+          StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING);
+      this.buffer.putInt(MAGIC).put(VERSION).put(GameComponent.RATE)
+          .putLong(seed);
+    }
+
+    /** Records the buttons of a tick if they changed
+     *
+     * @param tick counter of the tick
+     * @param buttons button bits, with HOLD if held
+     */
+    public synchronized void input(int tick, int buttons)
+        throws IOException {
+      this.last = tick;
+      if (buttons != this.buttons && !this.closed) {
+        record(tick, (buttons ^ this.buttons) << 2 | INPUT);
+        this.buttons = buttons;
+      }
+    }
+
+    /** Records the sync of a tick if it changed
+     *
+     * @param tick counter of the tick
+     * @param sync value returned by Replay.sync()
+     */
+    public synchronized void sync(int tick, int sync) throws IOException {
+      if (sync != this.sync && !this.closed) {
+        record(tick, sync << 2 | SYNC);
+        this.sync = sync;
+      }
+    }
+
+    /** Records the end of the session, and closes the file
+     *
+     * @param tick counter of the last tick
+     * @param score final score
+     * @param checksum checksum of the final state
+     */
+    public synchronized void end(int tick, int score, int checksum)
+        throws IOException {
+      if (this.closed)
+        return;
+      record(tick, (score << 1 | 1) << 2 | END);
+      putVarint(checksum);
+      this.closed = true;
+      write();
+      this.channel.close();
+    }
+
+    /** Records an unverified end at the last tick seen if no end was
+     * recorded, and closes the file
+     */
+    @Override
+    public synchronized void close() throws IOException {
+      if (this.closed)
+        return;
+      record(Math.max(this.last, this.tick), END);
+      putVarint(0);
+      this.closed = true;
+      write();
+      this.channel.close();
+    }
+
+    /** Appends a record */
+    private void record(int tick, int value) throws IOException {
+      putVarint(tick - this.tick);
+      putVarint(value);
+      this.tick = tick;
+    }
+
+    /** Appends an unsigned varint, writing the buffer out if nearly full */
+    private void putVarint(int value) throws IOException {
+      if (this.buffer.remaining() < 5)
+        write();
+      while ((value & ~0x7f) != 0) {
+        this.buffer.put((byte) (value & 0x7f | 0x80));
+        value >>>= 7;
+      }
+      this.buffer.put((byte) value);
+    }
+
+    /** Writes the buffer out */
+    private void write() throws IOException {
+      this.buffer.flip();
+      while (this.buffer.hasRemaining())
+        this.channel.write(this.buffer);
+      this.buffer.clear();
+    }
+  }
+
+  /** A Reader plays a recorded session back tick by tick. The file is read
+   * whole upon construction
+   */
+  public static class Reader {
+
+    /** Records */
+    private final ByteBuffer buffer;
+
+    /** Seed of the session */
+    private final long seed;
+
+    /** Update rate of the session */
+    private final byte rate;
+
+    /** Tick of the next record, or -1 if none */
+    private int next;
+
+    /** Tick of the previous record */
+    private int last;
+
+    /** Current buttons and sync value, -1 before the first sync */
+    private int buttons, sync = -1;
+
+    /** Tick, score and checksum of the end, tick -1 if not reached */
+    private int endTick = -1, endScore, endChecksum;
+
+    /** Whether the end has a score and checksum to be compared */
+    private boolean verified;
+
+    public Reader(Path path) throws IOException {
+      try (FileChannel channel = FileChannel.open(path)) {
+        if (channel.size() < HEADER || channel.size() > Integer.MAX_VALUE)
+          throw new IOException("BAD size: " + channel.size());
+        this.buffer = ByteBuffer.allocate((int) channel.size());
+        while (this.buffer.hasRemaining())
+          if (channel.read(this.buffer) < 0)
+            throw new EOFException();
+        this.buffer.flip();
+      }
+      if (this.buffer.getInt() != MAGIC)
+        throw new IOException("BAD magic");
+      byte version = this.buffer.get();
+      if (version != VERSION)
+        throw new IOException("BAD version: " + version);
+      this.rate = this.buffer.get();
+      this.seed = this.buffer.getLong();
+      this.next = this.buffer.hasRemaining() ? getVarint() : -1;
+    }
+
+    /** Applies the records up to a tick
+     *
+     * @param tick counter of the tick
+     * @return true if the session goes on; false if it ended before the tick
+     */
+    public boolean advance(int tick) throws IOException {
+      while (this.next >= 0 && this.next <= tick) {
+        this.last = this.next;
+        int value = getVarint();
+        switch (value & 3) {
+          case INPUT:
+            this.buttons ^= value >>> 2;
+            break;
+          case SYNC:
+            this.sync = value >>> 2;
+            break;
+          case END:
+            this.endTick = this.next;
+            this.endScore = value >>> 3;
+            this.verified = (value & 4) != 0;
+            this.endChecksum = getVarint();
+            this.next = -1;
+            return tick <= this.endTick;
+          default:
+            throw new IOException("BAD record: " + value);
+        }
+        this.next = this.buffer.hasRemaining()
+            ? this.next + getVarint() : -1;
+      }
+      // cut short, the session ends at its last record
+      if (this.next < 0 && this.endTick < 0)
+        this.endTick = this.last;
+      return tick <= this.endTick || this.next >= 0;
+    }
+
+    /** Returns the seed of the session */
+    public long getSeed() {
+      return this.seed;
+    }
+
+    /** Returns the update rate of the session */
+    public byte getRate() {
+      return this.rate;
+    }
+
+    /** Returns the buttons of the current tick, with HOLD if held */
+    public int getButtons() {
+      return this.buttons;
+    }
+
+    /** Returns the field of the current tick */
+    public byte getField() {
+      return (byte) (Math.max(this.sync, 0) & 3);
+    }
+
+    /** Returns the theme of the current tick */
+    public byte getTheme() {
+      return (byte) (Math.max(this.sync, 0) >>> 3);
+    }
+
+    /** Returns whether Asteroids are generated on the current tick */
+    public boolean isGenerating() {
+      return (this.sync & 4) == 0;
+    }
+
+    /** Returns whether the end was recorded with a score and checksum */
+    public boolean isVerified() {
+      return this.verified;
+    }
+
+    /** Returns the tick of the end, or -1 if not reached */
+    public int getEndTick() {
+      return this.endTick;
+    }
+
+    /** Returns the score recorded at the end */
+    public int getEndScore() {
+      return this.endScore;
+    }
+
+    /** Returns the checksum recorded at the end */
+    public int getEndChecksum() {
+      return this.endChecksum;
+    }
+
+    /** Reads an unsigned varint */
+    private int getVarint() throws IOException {
+      int value = 0;
+      for (int shift = 0; shift < 35; shift += 7) {
+        if (!this.buffer.hasRemaining())
+          throw new EOFException();
+        byte b = this.buffer.get();
+        value |= (b & 0x7f) << shift;
+        if (b >= 0)
+          return value;
+      }
+      throw new IOException("BAD varint");
+    }
+  }
+}
@@ -0,0 +1,177 @@
+package eden.cpeaii;
+
+import java.nio.*;
+
+import eden.common.io.AsyncPrintStream;
+import eden.common.io.Modal;
+
+/** A Rewind keeps the last seconds of a game in a fixed ring, so that time
+ * can be stepped back one tick at a time. Every KEYFRAME ticks, the whole
+ * state is saved by GameComponent.save(ByteBuffer) into a slot of its own;
+ * in between, only the inputs of each tick are kept: its counter, buttons and
+ * sync. As the simulation is deterministic, the state of any tick is that of
+ * the keyframe before it, simulated again with the inputs since.
+ * <br><br>
+ * Every buffer is allocated upon construction, hence memory stays fixed at
+ * about SLOT bytes per KEYFRAME ticks held, unless a keyframe does not fit
+ * its slot: the slot is then grown to the largest slot, or to twice its own
+ * size, up to Snapshot.CAPACITY. Recording stores three numbers per
+ * tick and a keyframe every KEYFRAME ticks, which takes tens of microseconds.
+ * Stepping back restores a keyframe and simulates at most KEYFRAME - 1 ticks,
+ * a few milliseconds, hence time runs backwards at the update rate.
+ * <br><br>
+ * Ticks held for want of focus are not recorded. A keyframe which does not
+ * fit even a grown slot drops the ticks before it.
+ */
+public class Rewind {
+
+  /** Modal for logging */
+  private static final Modal modal
+      = new Modal("Rewind", AsyncPrintStream.getStdout());
+
+  /** Ticks between keyframes */
+  public static final int KEYFRAME = GameComponent.RATE / 4;
+
+  /** Bytes of a keyframe slot, several times the state of a busy game */
+  public static final int SLOT = 1 << 16;
+
+  /** Number of ticks which can be stepped back, a multiple of KEYFRAME */
+  private final int capacity;
+
+  /** States before the ticks of the keyframes */
+  private final ByteBuffer[] keyframes;
+
+  /** Bytes of the largest slot */
+  private int slotCapacity = SLOT;
+
+  // ticks, indexed by sequence modulo their length
+  /** Counters */
+  private final int[] counters;
+
+  /** Buttons, as applied to the Ship */
+  private final byte[] buttons;
+
+  /** Sync values, see Replay.sync() */
+  private final byte[] syncs;
+
+  /** Sequence of the oldest tick held, that of a keyframe, or -1 if none */
+  private long first = -1;
+
+  /** Sequence of the next tick to be recorded */
+  private long next;
+
+  /** Makes a Rewind holding at least a number of ticks
+   *
+   * @param ticks number of ticks which can be stepped back
+   */
+  public Rewind(int ticks) {
+    this.capacity = (Math.max(ticks, 1) + KEYFRAME - 1) / KEYFRAME * KEYFRAME;
+    // one more, so that the oldest tick always has its keyframe
+    this.keyframes = new ByteBuffer[this.capacity / KEYFRAME + 1];
+    for (int i = 0; i < this.keyframes.length; i++)
+      this.keyframes[i] = ByteBuffer.allocate(SLOT);
+    this.counters = new int[this.keyframes.length * KEYFRAME];
+    this.buttons = new byte[this.counters.length];
+    this.syncs = new byte[this.counters.length];
+  }
+
+  /** Records a tick, before it is simulated, and its inputs as applied
+   *
+   * @param game GameComponent of the tick, saved if a keyframe is due
+   * @param counter counter of the tick
+   * @param buttons button bits applied to the Ship
+   * @param sync value returned by Replay.sync()
+   */
+  public void record(GameComponent game, int counter, int buttons, int sync) {
+    if (this.next % KEYFRAME == 0) {
+      if (save(game, slot(this.next)))
+        this.first = this.first < 0 ? this.next
+            : Math.max(this.first, this.next - this.capacity);
+      else
+        this.first = -1;
+    }
+    int i = (int) (this.next % this.counters.length);
+    this.counters[i] = counter;
+    this.buttons[i] = (byte) buttons;
+    this.syncs[i] = (byte) sync;
+    this.next++;
+  }
+
+  /** Steps a game back by one recorded tick, which is then forgotten. Sounds
+   * are to be muted by the caller, as the ticks since the keyframe are
+   * simulated again.
+   *
+   * @param game GameComponent to be stepped back
+   * @return true if stepped back; false if no tick is held
+   */
+  public boolean back(GameComponent game) {
+    if (this.first < 0 || this.next <= this.first)
+      return false;
+    long target = this.next - 1;
+    long key = target - target % KEYFRAME;
+    ByteBuffer slot = this.keyframes[slot(key)];
+    slot.rewind();
+    game.restore(slot);
+    for (long s = key; s < target; s++) {
+      int i = (int) (s % this.counters.length);
+      game.resimulate(this.counters[i], this.buttons[i], this.syncs[i]);
+    }
+    this.next = target;
+    return true;
+  }
+
+  /** Forgets every tick, as when the game is restored from elsewhere */
+  public void clear() {
+    this.first = -1;
+    this.next = 0;
+  }
+
+  /** Returns the number of ticks which can be stepped back */
+  public int getTicks() {
+    return this.first < 0 ? 0 : (int) (this.next - this.first);
+  }
+
+  /** Returns the number of bytes allocated */
+  public long getFootprint() {
+    long footprint = this.counters.length * 6L;
+    for (ByteBuffer keyframe : this.keyframes)
+      footprint += keyframe.capacity();
+    return footprint;
+  }
+
+  /** Saves a game into a keyframe slot, growing the slot while the state
+   * does not fit
+   *
+   * @return true if saved; false if the state exceeds Snapshot.CAPACITY
+   */
+  private boolean save(GameComponent game, int i) {
+    for (;;) {
+      ByteBuffer slot = this.keyframes[i];
+      slot.clear();
+      try {
+        game.save(slot);
+        slot.flip();
+        return true;
+      } catch (BufferOverflowException e) {
+        if (slot.capacity() >= Snapshot.CAPACITY) {
+          modal.println(" keyframe over " + slot.capacity()
+              + " bytes, dropped " + getTicks() + " ticks", Modal.ERROR);
+          return false;
+        }
+      }
+      int capacity = Math.max(this.slotCapacity,
+          Math.min(slot.capacity() * 2, Snapshot.CAPACITY));
+      if (capacity > this.slotCapacity) {
+        modal.println(" keyframe over " + slot.capacity()
+            + " bytes, growing slots to " + capacity, Modal.ALERT);
+        this.slotCapacity = capacity;
+      }
+      this.keyframes[i] = ByteBuffer.allocate(capacity);
+    }
+  }
+
+  /** Returns the slot of the keyframe of a sequence */
+  private int slot(long sequence) {
+    return (int) (sequence / KEYFRAME % this.keyframes.length);
+  }
+}
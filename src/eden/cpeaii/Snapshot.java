@@ -0,0 +1,183 @@
+package eden.cpeaii;
+
+import java.io.*;
+import java.nio.*;
+import java.nio.channels.*;
+import java.nio.file.*;
+import java.util.zip.DataFormatException;
+
+import eden.common.io.LzCodec;
+
+/** A Snapshot is the whole state of a game, saved by
+ * GameComponent.save(ByteBuffer) into a buffer allocated once. Every Sprite
+ * writes its own fields and its Path2D as exact coordinates, and every
+ * Randomizer its state, without serialization or reflection, hence taking or
+ * restoring a Snapshot takes microseconds and the restored game goes on
+ * exactly as the saved one did.
+ * <br><br>
+ * A Snapshot may be written into a file, compressed by an LzCodec, as a
+ * checkpoint to be read back after a crash or by another process. The file
+ * begins with a header of MAGIC, VERSION, whether the state is compressed,
+ * and the length of the state, which follows.
+ * <br><br>
+ * A file may pass the header checks yet hold a state of another layout, or
+ * a damaged one. Hence the game is saved before every restore, and put back
+ * as it was if the restore fails.
+ */
+public class Snapshot {
+
+  /** File signature, "CPSS" */
+  public static final int MAGIC = 0x43505353;
+
+  /** File format version */
+  public static final byte VERSION = 1;
+
+  /** Largest state in bytes */
+  public static final int CAPACITY = 1 << 20;
+
+  /** Size of the header in bytes */
+  private static final int HEADER = 4 + 1 + 1 + 4;
+
+  /** State, from 0 to its limit */
+  private final ByteBuffer state = ByteBuffer.allocate(CAPACITY);
+
+  /** State of the game before a restore, allocated upon the first restore */
+  private ByteBuffer backup;
+
+  /** File contents, allocated upon the first write or read */
+  private byte[] file;
+
+  /** Compressor, allocated upon the first write */
+  private LzCodec codec;
+
+  /** Whether the state holds a Snapshot */
+  private boolean taken;
+
+  /** Saves the state of a game into the Snapshot
+   *
+   * @param game GameComponent to be saved
+   * @throws BufferOverflowException if the state exceeds CAPACITY
+   */
+  public void take(GameComponent game) {
+    this.taken = false;
+    this.state.clear();
+    game.save(this.state);
+    this.state.flip();
+    this.taken = true;
+  }
+
+  /** Restores the state of a game from the Snapshot. If the state is bad,
+   * the game is left as it was and the Snapshot is discarded.
+   *
+   * @param game GameComponent to be restored
+   * @throws IllegalStateException if no Snapshot was taken or read
+   * @throws IllegalArgumentException if the state is bad
+   */
+  public void restore(GameComponent game) {
+    if (!this.taken)
+      throw new IllegalStateException("no snapshot");
+    if (this.backup == null)
+      this.backup = ByteBuffer.allocate(CAPACITY);
+    this.backup.clear();
+    game.save(this.backup);
+    this.backup.flip();
+    this.state.rewind();
+    try {
+      game.restore(this.state);
+    } catch (RuntimeException e) {
+      game.restore(this.backup);
+      this.taken = false;
+      throw new IllegalArgumentException("BAD state: " + e, e);
+    }
+  }
+
+  /** Returns whether a Snapshot was taken or read */
+  public boolean isTaken() {
+    return this.taken;
+  }
+
+  /** Returns the length of the state in bytes, or 0 if none */
+  public int getLength() {
+    return this.taken ? this.state.limit() : 0;
+  }
+
+  /** Writes the Snapshot into a file, compressed
+   *
+   * @param path file to be written
+   * @return length of the file in bytes
+   * @throws IllegalStateException if no Snapshot was taken or read
+   */
+  public int write(Path path) throws IOException {
+    if (!this.taken)
+      throw new IllegalStateException("no snapshot");
+    if (this.file == null)
+      this.file = new byte[HEADER + LzCodec.maxLength(CAPACITY)];
+    if (this.codec == null)
+      this.codec = new LzCodec();
+    int length = this.state.limit();
+    int packed = this.codec.compress(
+        this.state.array(), 0, length, this.file, HEADER);
+    // stored as is if it does not compress
+    boolean compressed = packed < length;
+    if (!compressed) {
+      System.arraycopy(this.state.array(), 0, this.file, HEADER, length);
+      packed = length;
+    }
+    ByteBuffer buffer = ByteBuffer.wrap(this.file, 0, HEADER + packed);
+    buffer.putInt(MAGIC).put(VERSION).put((byte) (compressed ? 1 : 0))
+        .putInt(length);
+    buffer.rewind();
+    try (FileChannel channel = FileChannel.open(path,
+        StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+        StandardOpenOption.TRUNCATE_EXISTING)) {
+      while (buffer.hasRemaining())
+        channel.write(buffer);
+    }
+    return HEADER + packed;
+  }
+
+  /** Reads a Snapshot from a file written by write(Path)
+   *
+   * @param path file to be read
+   */
+  public void read(Path path) throws IOException {
+    if (this.file == null)
+      this.file = new byte[HEADER + LzCodec.maxLength(CAPACITY)];
+    int size;
+    try (FileChannel channel = FileChannel.open(path)) {
+      if (channel.size() < HEADER || channel.size() > this.file.length)
+        throw new IOException("BAD size: " + channel.size());
+      size = (int) channel.size();
+      ByteBuffer buffer = ByteBuffer.wrap(this.file, 0, size);
+      while (buffer.hasRemaining())
+        if (channel.read(buffer) < 0)
+          throw new EOFException();
+    }
+    ByteBuffer header = ByteBuffer.wrap(this.file, 0, HEADER);
+    if (header.getInt() != MAGIC)
+      throw new IOException("BAD magic");
+    byte version = header.get();
+    if (version != VERSION)
+      throw new IOException("BAD version: " + version);
+    boolean compressed = header.get() != 0;
+    int length = header.getInt();
+    if (length < 0 || length > CAPACITY)
+      throw new IOException("BAD length: " + length);
+    this.taken = false;
+    if (compressed)
+      try {
+        if (LzCodec.decompress(this.file, HEADER, size - HEADER,
+            this.state.array(), 0, CAPACITY) != length)
+          throw new IOException("BAD length: " + length);
+      } catch (DataFormatException e) {
+        throw new IOException(e);
+      }
+    else if (size - HEADER == length)
+      System.arraycopy(this.file, HEADER, this.state.array(), 0, length);
+    else
+      throw new IOException("BAD size: " + size);
+    this.state.clear();
+    this.state.limit(length);
+    this.taken = true;
+  }
+}
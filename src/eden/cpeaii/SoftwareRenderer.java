@@ -0,0 +1,452 @@
+package eden.cpeaii;
+
+import java.awt.*;
+import java.awt.geom.*;
+import java.awt.image.*;
+import java.util.*;
+import java.util.concurrent.*;
+
+/** A SoftwareRenderer draws VectorSprites straight into the int[] framebuffer
+ * of a BufferedImage, bypassing the generic Java2D path pipeline. Polygons are
+ * scan-converted with an edge table, outlines are drawn with Bresenham's line
+ * algorithm, and StarDusts are plotted as pixel blocks.
+ * <br><br>
+ * The framebuffer is split into square tiles. Sprites are flattened and binned
+ * per tile on the calling thread, then the tiles are rasterized in parallel on
+ * a ForkJoinPool. Each tile only ever writes its own pixels, so no further
+ * synchronization is needed.
+ */
+public class SoftwareRenderer {
+
+  // geometry
+  /** Side length of a tile in pixels */
+  public static final int TILE = 64;
+
+  /** Flatness used when flattening curved segments */
+  public static final double FLATNESS = 0.5;
+
+  // primitive kinds
+  private static final byte POLYGON = 0;
+  private static final byte BLOCK = 1;
+
+  // framebuffer
+  /** Image whose raster is drawn into */
+  private final BufferedImage image;
+
+  /** Pixels of the image, one packed RGB int each */
+  private final int[] pixels;
+
+  /** Dimensions of the framebuffer */
+  private final int width, height;
+
+  // tiles
+  /** Number of tiles across and down */
+  private final int columns, rows;
+
+  /** Primitive indices binned per tile, in drawing order */
+  private final int[][] bins;
+
+  /** Number of primitive indices in each bin */
+  private final int[] binSizes;
+
+  // primitives
+  /** Reusable primitives, of which the first count are used this frame */
+  private final ArrayList<Primitive> primitives = new ArrayList<>();
+
+  /** Number of primitives in this frame */
+  private int count;
+
+  /** Background color of this frame */
+  private int background;
+
+  /** Pool on which the tiles are rasterized */
+  private final ForkJoinPool pool;
+
+  /** Active edge table of each worker, grown to the largest polygon */
+  private final ThreadLocal<double[][]> actives
+      = ThreadLocal.withInitial(() -> new double[][] {new double[16]});
+
+  public SoftwareRenderer(int width, int height) {
+    this(width, height, ForkJoinPool.commonPool());
+  }
+
+  public SoftwareRenderer(int width, int height, ForkJoinPool pool) {
+    this.width = width;
+    this.height = height;
+    this.image = new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
+    this.pixels
+        = ((DataBufferInt) this.image.getRaster().getDataBuffer()).getData();
+    this.columns = (width + TILE - 1) / TILE;
+    this.rows = (height + TILE - 1) / TILE;
+    this.bins = new int[this.columns * this.rows][16];
+    this.binSizes = new int[this.bins.length];
+    this.pool = pool;
+  }
+
+  /** Begins a frame. Sprites added afterwards are drawn in order of addition.
+   *
+   * @param background Color to clear the framebuffer with
+   */
+  public void begin(Color background) {
+    this.background = background.getRGB();
+    this.count = 0;
+  }
+
+  /** Adds a Sprite to this frame. Its pending transformation is applied even
+   * if it is invisible, just as in VectorSprite.draw(Graphics2D).
+   *
+   * @param sprite Sprite to be drawn
+   */
+  public void add(Sprite sprite) {
+    VectorSprite vectorSprite = (VectorSprite) sprite;
+    vectorSprite.applyTransform();
+    if (!vectorSprite.isVisible())
+      return;
+    int outline = vectorSprite.outline.getRGB();
+    int fill = vectorSprite.fill.getRGB();
+    if (!VectorSprite.isFilled()) {
+      outline = (outline >>> 24) != 0 ? outline : fill;
+      fill = 0;
+    }
+    if ((outline >>> 24) == 0 && (fill >>> 24) == 0)
+      return;
+    if (this.count == this.primitives.size())
+      this.primitives.add(new Primitive());
+    Primitive p = this.primitives.get(this.count);
+    p.set(vectorSprite.path2d, outline, fill,
+        sprite instanceof StarDust ? BLOCK : POLYGON);
+    if (p.maxX < 0 || p.maxY < 0 || p.minX >= this.width
+        || p.minY >= this.height)
+      return;
+    this.count++;
+  }
+
+  /** Ends a frame, rasterizing every added Sprite into the framebuffer */
+  public void finish() {
+    Arrays.fill(this.binSizes, 0);
+    for (int i = 0; i < this.count; i++) {
+      Primitive p = this.primitives.get(i);
+      int c0 = Math.max(p.minX, 0) / TILE;
+      int c1 = Math.min(p.maxX, this.width - 1) / TILE;
+      int r0 = Math.max(p.minY, 0) / TILE;
+      int r1 = Math.min(p.maxY, this.height - 1) / TILE;
+      for (int r = r0; r <= r1; r++)
+        for (int c = c0; c <= c1; c++)
+          bin(r * this.columns + c, i);
+    }
+    this.pool.invoke(new TileAction(0, this.bins.length));
+  }
+
+  /** Returns the image being drawn into
+   *
+   * @return image of the SoftwareRenderer
+   */
+  public BufferedImage getImage() {
+    return this.image;
+  }
+
+  /** Returns the width of the framebuffer
+   *
+   * @return width in pixels
+   */
+  public int getWidth() {
+    return this.width;
+  }
+
+  /** Returns the height of the framebuffer
+   *
+   * @return height in pixels
+   */
+  public int getHeight() {
+    return this.height;
+  }
+
+  private void bin(int tile, int primitive) {
+    if (this.binSizes[tile] == this.bins[tile].length)
+      this.bins[tile]
+          = Arrays.copyOf(this.bins[tile], this.bins[tile].length * 2);
+    this.bins[tile][this.binSizes[tile]++] = primitive;
+  }
+
+  /** Rasterizes a tile */
+  private void rasterize(int tile) {
+    int x0 = (tile % this.columns) * TILE;
+    int y0 = (tile / this.columns) * TILE;
+    int x1 = Math.min(x0 + TILE, this.width);
+    int y1 = Math.min(y0 + TILE, this.height);
+    for (int y = y0; y < y1; y++)
+      Arrays.fill(this.pixels, y * this.width + x0, y * this.width + x1,
+          this.background);
+    int[] bin = this.bins[tile];
+    double[][] active = this.actives.get();
+    for (int b = 0; b < this.binSizes[tile]; b++) {
+      Primitive p = this.primitives.get(bin[b]);
+      if (p.kind == BLOCK) {
+        int color = (p.fill >>> 24) != 0 ? p.fill : p.outline;
+        fillBlock(p.minX, p.minY, p.maxX, p.maxY, color, x0, y0, x1, y1);
+        continue;
+      }
+      if ((p.fill >>> 24) != 0) {
+        if (active[0].length < p.edges)
+          active[0] = new double[Math.max(p.edges, active[0].length * 2)];
+        fillPolygon(p, active[0], x0, y0, x1, y1);
+      }
+      if ((p.outline >>> 24) != 0)
+        for (int s = 0; s < p.segments; s++)
+          if (p.drawn[s])
+            drawLine(
+                (int) Math.floor(p.coordinates[s * 4]),
+                (int) Math.floor(p.coordinates[s * 4 + 1]),
+                (int) Math.floor(p.coordinates[s * 4 + 2]),
+                (int) Math.floor(p.coordinates[s * 4 + 3]),
+                p.outline, x0, y0, x1, y1);
+    }
+  }
+
+  /** Fills a block of pixels, inclusive, clipped to a tile */
+  private void fillBlock(
+      int minX, int minY, int maxX, int maxY, int color,
+      int x0, int y0, int x1, int y1) {
+    minX = Math.max(minX, x0);
+    minY = Math.max(minY, y0);
+    maxX = Math.min(maxX, x1 - 1);
+    maxY = Math.min(maxY, y1 - 1);
+    for (int y = minY; y <= maxY; y++)
+      for (int x = minX; x <= maxX; x++)
+        plot(y * this.width + x, color);
+  }
+
+  /** Scan-converts a polygon, clipped to a tile, with the even-odd rule. Edges
+   * enter the active edge table in order of their upper end, and pixels are
+   * sampled at their centers.
+   */
+  private void fillPolygon(
+      Primitive p, double[] active, int x0, int y0, int x1, int y1) {
+    int top = Math.max(y0, p.minY);
+    int bottom = Math.min(y1 - 1, p.maxY);
+    int next = 0;
+    for (int y = top; y <= bottom; y++) {
+      double center = y + 0.5;
+      // admit edges starting above this scanline
+      while (next < p.edges && p.table[next * 4] <= center)
+        next++;
+      int crossings = 0;
+      for (int e = 0; e < next; e++) {
+        int i = e * 4;
+        if (center >= p.table[i] && center < p.table[i + 1])
+          active[crossings++]
+              = p.table[i + 2] + (center - p.table[i]) * p.table[i + 3];
+      }
+      // insertion sort, crossings are few
+      for (int i = 1; i < crossings; i++) {
+        double key = active[i];
+        int j = i - 1;
+        while (j >= 0 && active[j] > key) {
+          active[j + 1] = active[j];
+          j--;
+        }
+        active[j + 1] = key;
+      }
+      int row = y * this.width;
+      for (int i = 0; i + 1 < crossings; i += 2) {
+        int from = Math.max(x0, (int) Math.ceil(active[i] - 0.5));
+        int to = Math.min(x1, (int) Math.ceil(active[i + 1] - 0.5));
+        for (int x = from; x < to; x++)
+          plot(row + x, p.fill);
+      }
+    }
+  }
+
+  /** Draws a line with Bresenham's algorithm, clipped to a tile */
+  private void drawLine(
+      int xA, int yA, int xB, int yB, int color,
+      int x0, int y0, int x1, int y1) {
+    if (Math.max(xA, xB) < x0 || Math.min(xA, xB) >= x1
+        || Math.max(yA, yB) < y0 || Math.min(yA, yB) >= y1)
+      return;
+    int dx = Math.abs(xB - xA);
+    int dy = -Math.abs(yB - yA);
+    int sx = xA < xB ? 1 : -1;
+    int sy = yA < yB ? 1 : -1;
+    int error = dx + dy;
+    while (true) {
+      if (xA >= x0 && xA < x1 && yA >= y0 && yA < y1)
+        plot(yA * this.width + xA, color);
+      if (xA == xB && yA == yB)
+        break;
+      int e2 = error * 2;
+      if (e2 >= dy) {
+        error += dy;
+        xA += sx;
+      }
+      if (e2 <= dx) {
+        error += dx;
+        yA += sy;
+      }
+    }
+  }
+
+  /** Writes a pixel, blending if the color is translucent */
+  private void plot(int index, int color) {
+    int alpha = color >>> 24;
+    if (alpha == 255) {
+      this.pixels[index] = color;
+      return;
+    }
+    int dst = this.pixels[index];
+    int inverse = 255 - alpha;
+    int r = (((color >> 16) & 255) * alpha + ((dst >> 16) & 255) * inverse)
+        / 255;
+    int g = (((color >> 8) & 255) * alpha + ((dst >> 8) & 255) * inverse)
+        / 255;
+    int b = ((color & 255) * alpha + (dst & 255) * inverse) / 255;
+    this.pixels[index] = (r << 16) | (g << 8) | b;
+  }
+
+  /** A Primitive is a flattened VectorSprite ready for rasterization */
+  private static class Primitive {
+
+    /** Either POLYGON or BLOCK */
+    byte kind;
+
+    /** ARGB colors; an alpha of zero skips the pass */
+    int outline, fill;
+
+    /** Inclusive pixel bounds */
+    int minX, minY, maxX, maxY;
+
+    /** Line segments as (x0, y0, x1, y1) quadruples */
+    double[] coordinates = new double[64];
+
+    /** Whether a segment is part of the outline, as opposed to one implicitly
+     * closing a subpath for filling
+     */
+    boolean[] drawn = new boolean[16];
+
+    /** Number of segments */
+    int segments;
+
+    /** Edge table as (yTop, yBottom, xTop, dx/dy) quadruples, sorted by yTop
+     */
+    double[] table = new double[64];
+
+    /** Number of edges in the edge table */
+    int edges;
+
+    /** Iteration buffer */
+    private final double[] segment = new double[6];
+
+    void set(Path2D path2d, int outline, int fill, byte kind) {
+      this.kind = kind;
+      this.outline = outline;
+      this.fill = fill;
+      Rectangle2D bounds = path2d.getBounds2D();
+      this.minX = (int) Math.floor(bounds.getMinX());
+      this.minY = (int) Math.floor(bounds.getMinY());
+      this.maxX = (int) Math.floor(bounds.getMaxX());
+      this.maxY = (int) Math.floor(bounds.getMaxY());
+      this.segments = 0;
+      this.edges = 0;
+      if (kind == BLOCK)
+        return;
+      double startX = 0, startY = 0, lastX = 0, lastY = 0;
+      boolean open = false;
+      PathIterator i = path2d.getPathIterator(null, FLATNESS);
+      for (; !i.isDone(); i.next())
+        switch (i.currentSegment(this.segment)) {
+          case PathIterator.SEG_MOVETO:
+            if (open)
+              addSegment(lastX, lastY, startX, startY, false);
+            startX = lastX = this.segment[0];
+            startY = lastY = this.segment[1];
+            open = true;
+            break;
+          case PathIterator.SEG_LINETO:
+            addSegment(lastX, lastY, this.segment[0], this.segment[1], true);
+            lastX = this.segment[0];
+            lastY = this.segment[1];
+            break;
+          case PathIterator.SEG_CLOSE:
+            addSegment(lastX, lastY, startX, startY, true);
+            lastX = startX;
+            lastY = startY;
+            open = false;
+            break;
+        }
+      if (open)
+        addSegment(lastX, lastY, startX, startY, false);
+      buildTable();
+    }
+
+    private void addSegment(
+        double xA, double yA, double xB, double yB, boolean outlined) {
+      if (this.segments == this.drawn.length) {
+        this.drawn = Arrays.copyOf(this.drawn, this.segments * 2);
+        this.coordinates = Arrays.copyOf(
+            this.coordinates, this.segments * 8);
+      }
+      int i = this.segments * 4;
+      this.coordinates[i] = xA;
+      this.coordinates[i + 1] = yA;
+      this.coordinates[i + 2] = xB;
+      this.coordinates[i + 3] = yB;
+      this.drawn[this.segments++] = outlined;
+    }
+
+    private void buildTable() {
+      if (this.table.length < this.segments * 4)
+        this.table = new double[this.segments * 4];
+      for (int s = 0; s < this.segments; s++) {
+        int i = s * 4;
+        double xA = this.coordinates[i], yA = this.coordinates[i + 1];
+        double xB = this.coordinates[i + 2], yB = this.coordinates[i + 3];
+        if (yA == yB)
+          continue;
+        if (yA > yB) {
+          double t = xA;
+          xA = xB;
+          xB = t;
+          t = yA;
+          yA = yB;
+          yB = t;
+        }
+        // insertion by yTop
+        int e = this.edges++;
+        while (e > 0 && this.table[(e - 1) * 4] > yA) {
+          System.arraycopy(this.table, (e - 1) * 4, this.table, e * 4, 4);
+          e--;
+        }
+        int j = e * 4;
+        this.table[j] = yA;
+        this.table[j + 1] = yB;
+        this.table[j + 2] = xA;
+        this.table[j + 3] = (xB - xA) / (yB - yA);
+      }
+    }
+  }
+
+  /** A TileAction rasterizes a range of tiles, splitting itself in halves */
+  private class TileAction extends RecursiveAction {
+
+    private static final long serialVersionUID = 1L;
+
+    private final int from, to;
+
+    TileAction(int from, int to) {
+      this.from = from;
+      this.to = to;
+    }
+
+    @Override
+    protected void compute() {
+      if (this.to - this.from <= 2) {
+        for (int t = this.from; t < this.to; t++)
+          rasterize(t);
+        return;
+      }
+      int middle = (this.from + this.to) >>> 1;
+      invokeAll(new TileAction(this.from, middle),
+          new TileAction(middle, this.to));
+    }
+  }
+}
@@ -3,6 +3,7 @@ package eden.cpeaii;
 import java.awt.geom.Path2D;
 import java.awt.geom.Rectangle2D;
 import java.awt.Graphics2D;
+import java.nio.ByteBuffer;
 
 public interface Sprite {
 
@@ -71,4 +72,7 @@ public interface Sprite {
   public Path2D getPath2d();
 
   public void setPath2d(Path2D p);
+
+  // persistence
+  public void save(ByteBuffer out);
 }
@@ -2,13 +2,21 @@ package eden.cpeaii;
 
 import java.awt.*;
 import java.awt.geom.*;
+import java.nio.ByteBuffer;
 import java.util.*;
 
+import eden.common.io.AsyncPrintStream;
+import eden.common.io.EventLog;
 import eden.common.io.Modal;
 
 public class StarDustTile {
 
-  private static final Modal modal = new Modal("StarDustTile");
+  private static final Modal modal
+      = new Modal("StarDustTile", AsyncPrintStream.getStdout());
+
+  /** Event format of an update without a horizontal direction */
+  private static final int UPD_UNEX
+      = EventLog.define(" UPD UNEX, dX %d, dY %d");
 
   // colors
   /** Outline color of a StarDust to be drawn with */
@@ -53,9 +61,13 @@ public class StarDustTile {
   /** Set of StarDusts in the StarDustTile. Size defined by density. */
   private final Set<StarDust> starDusts;
 
+  // randomness
+  /** Stream drawn from for the position of a StarDust */
+  private final Randomizer random;
+
   public StarDustTile(
       Rectangle2D makeBounds, Rectangle2D viewBounds, int length, int density,
-      int dX, int dY, int speed, Color fill) {
+      int dX, int dY, int speed, Color fill, Randomizer random) {
     // boundaries
     this.makeBounds = makeBounds;
     this.viewBounds = viewBounds;
@@ -68,13 +80,16 @@ public class StarDustTile {
     this.speed = (byte) speed;
     // aggregations
     this.starDusts = new HashSet<>();
+    // randomness
+    this.random = random;
     // visual
     this.fill = fill;
+    double[] xs = new double[density], ys = new double[density];
+    random.fill(xs, 0, density, makeBounds.getMinX(), makeBounds.getMaxX());
+    random.fill(ys, 0, density, makeBounds.getMinY(), makeBounds.getMaxY());
     for (byte b = 0; b < density; b++)
       this.starDusts.add(new StarDustImpl(
-          (int) Randomizer.random(makeBounds.getMinX(), makeBounds.getMaxX()),
-          (int) Randomizer.random(makeBounds.getMinY(), makeBounds.getMaxY()),
-          length, dX, dY, speed, this.fill));
+          (int) xs[b], (int) ys[b], length, dX, dY, speed, this.fill));
     this.starDusts.forEach(s -> s.setViewBounds(viewBounds));
   }
 
@@ -99,18 +114,58 @@ public class StarDustTile {
       tempX = (int) this.makeBounds.getMinX();
     else if (this.dX < 0)
       tempX = (int) this.makeBounds.getMaxX();
-    else
+    else {
       modal.println(" UPD UNEX", Modal.ERROR);
+      modal.event(Modal.ERROR, UPD_UNEX, this.dX, this.dY);
+    }
     for (byte b = (byte) this.starDusts.size(); b <= this.density; b++)
       newDusts.add(new StarDustImpl(
           tempX,
-          (int) Randomizer.random(
+          (int) this.random.nextDouble(
               this.makeBounds.getMinY(), this.makeBounds.getMaxY()),
           this.length, this.dX, this.dY, this.speed, this.fill));
     newDusts.forEach(s -> s.setViewBounds(this.viewBounds));
     this.starDusts.addAll(newDusts);
   }
 
+  /** Writes the fill color, attributes, Randomizer state and StarDusts of
+   * the StarDustTile
+   *
+   * @param out buffer to be written at its position
+   */
+  public void save(ByteBuffer out) {
+    out.putInt(this.fill.getRGB()).put(this.length).put(this.density);
+    this.random.save(out);
+    out.putInt(this.starDusts.size());
+    for (StarDust s : this.starDusts)
+      s.save(out);
+  }
+
+  /** Reads the state written by save(ByteBuffer) into the StarDustTile
+   *
+   * @param in buffer positioned at the state
+   */
+  public void restore(ByteBuffer in) {
+    this.fill = new Color(in.getInt(), true);
+    this.length = in.get();
+    this.density = in.get();
+    this.random.restore(in);
+    this.starDusts.clear();
+    for (int i = in.getInt(); i > 0; i--) {
+      StarDust s = new StarDustImpl(in);
+      s.setViewBounds(this.viewBounds);
+      this.starDusts.add(s);
+    }
+  }
+
+  /** Returns the StarDusts in the StarDustTile
+   *
+   * @return StarDusts of the StarDustTile
+   */
+  Set<StarDust> getStarDusts() {
+    return this.starDusts;
+  }
+
   /** Returns the rectangular bounds in which a StarDust will be made
    *
    * @return make bounds of the StarDustTile
@@ -141,6 +196,7 @@ public class StarDustTile {
    */
   public void setViewBounds(Rectangle2D viewBounds) {
     this.viewBounds = viewBounds;
+    this.starDusts.forEach(s -> s.setViewBounds(viewBounds));
   }
 
   /** Returns the side length of a StarDust
@@ -202,5 +258,9 @@ public class StarDustTile {
       this.outline = fill;
       this.fill = fill;
     }
+
+    StarDustImpl(ByteBuffer in) {
+      super(in);
+    }
   }
 }
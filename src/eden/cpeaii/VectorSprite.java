@@ -2,7 +2,9 @@ package eden.cpeaii;
 
 import java.awt.*;
 import java.awt.geom.*;
+import java.nio.ByteBuffer;
 
+import eden.common.io.AsyncPrintStream;
 import eden.common.io.Modal;
 
 /** A VectorSprite is a Sprite graphically represented as a vector as opposed to
@@ -12,12 +14,16 @@ import eden.common.io.Modal;
  */
 public abstract class VectorSprite implements Sprite {
 
-  private static final Modal modal = new Modal("VectorSprite");
+  private static final Modal modal
+      = new Modal("VectorSprite", AsyncPrintStream.getStdout());
 
   // geometry
   /** Path2D representing an empty Shape */
   public static final Path2D SHAPE_NULL = new Path2D.Float();
 
+  /** Number of coordinates of each type of PathIterator segment */
+  private static final int[] COORDS = new int[]{2, 2, 4, 6, 0};
+
   /** AffineTransform representing the identity transformation */
   public static final AffineTransform IDENTITY_TRANSFORMATION
       = new AffineTransform();
@@ -26,6 +32,12 @@ public abstract class VectorSprite implements Sprite {
   /** Color representing full transparency */
   public static final Color TRANSPARENT = new Color(0, 0, 0, 0);
 
+  // quality
+  /** Whether VectorSprites are filled, or only outlined. Outlining falls back
+   * to the fill color for VectorSprites without an outline.
+   */
+  private static boolean filled = true;
+
   // visual
   /** Geometric representation of the VectorSprite */
   Path2D path2d;
@@ -84,19 +96,56 @@ public abstract class VectorSprite implements Sprite {
     this.speed = (byte) speed;
   }
 
+  /** Makes a VectorSprite from the state written by save(ByteBuffer). Its
+   * bounds are left for its owner to set, as they are shared.
+   *
+   * @param in buffer positioned at the state
+   */
+  VectorSprite(ByteBuffer in) {
+    // visual
+    this.path2d = getPath(in);
+    this.outline = new Color(in.getInt(), true);
+    this.fill = new Color(in.getInt(), true);
+    this.visibility = in.get() != 0;
+    // geometry
+    this.affineTransform = new AffineTransform();
+    // velocity
+    this.dX = in.get();
+    this.dY = in.get();
+    this.speed = in.get();
+  }
+
   /** Draws the VectorSprite
    *
    * @param g Graphics2D context to be passed
    */
   @Override
   public void draw(Graphics2D g) {
-    this.path2d.transform(this.affineTransform);
+    applyTransform();
     if (isVisible()) {
-      g.setColor(this.outline);
-      g.draw(this.path2d);
-      g.setColor(this.fill);
-      g.fill(this.path2d);
+      if (filled) {
+        if (this.outline.getAlpha() != 0) {
+          g.setColor(this.outline);
+          g.draw(this.path2d);
+        }
+        if (this.fill.getAlpha() != 0) {
+          g.setColor(this.fill);
+          g.fill(this.path2d);
+        }
+      } else {
+        g.setColor(this.outline.getAlpha() != 0 ? this.outline : this.fill);
+        g.draw(this.path2d);
+      }
     }
+  }
+
+  /** Applies the AffineTransform accumulated since the last draw to path2d.
+   * Renderers other than draw(Graphics2D) must invoke this once per frame.
+   */
+  void applyTransform() {
+    if (this.affineTransform.isIdentity())
+      return;
+    this.path2d.transform(this.affineTransform);
     this.affineTransform.setTransform(IDENTITY_TRANSFORMATION);
   }
 
@@ -129,6 +178,8 @@ public abstract class VectorSprite implements Sprite {
             - (int) path2dBounds.getMaxY()), 0);
     }
     this.affineTransform.translate(tX, tY);
+    // at once, so that collisions do not depend on when frames are drawn
+    applyTransform();
   }
 
   /** Updates the VectorSprite. A Sprite subclass may invoke this method as is
@@ -312,6 +363,88 @@ public abstract class VectorSprite implements Sprite {
     this.visibility = newVisibility;
   }
 
+  /** Writes the state of the VectorSprite, to be read back by the
+   * constructor of its class taking a ByteBuffer. Bounds are not written.
+   *
+   * @param out buffer to be written at its position
+   */
+  @Override
+  public void save(ByteBuffer out) {
+    applyTransform();
+    putPath(out, this.path2d);
+    out.putInt(this.outline.getRGB()).putInt(this.fill.getRGB())
+        .put((byte) (this.visibility ? 1 : 0))
+        .put(this.dX).put(this.dY).put(this.speed);
+  }
+
+  /** Writes a Path2D as its winding rule, number of segments, then each
+   * segment as its type and exact coordinates
+   *
+   * @param out buffer to be written at its position
+   * @param path Path2D to be written
+   */
+  static void putPath(ByteBuffer out, Path2D path) {
+    double[] coords = new double[6];
+    out.put((byte) path.getWindingRule());
+    int count = out.position(), n = 0;
+    out.putShort((short) 0);
+    for (PathIterator i = path.getPathIterator(null); !i.isDone(); i.next()) {
+      int type = i.currentSegment(coords);
+      out.put((byte) type);
+      for (int c = 0; c < COORDS[type]; c++)
+        out.putDouble(coords[c]);
+      n++;
+    }
+    out.putShort(count, (short) n);
+  }
+
+  /** Reads a Path2D written by putPath(ByteBuffer, Path2D)
+   *
+   * @param in buffer positioned at the Path2D
+   * @return Path2D read
+   */
+  static Path2D getPath(ByteBuffer in) {
+    int rule = in.get();
+    int n = in.getShort() & 0xffff;
+    Path2D out = new Path2D.Double(rule, n);
+    for (int s = 0; s < n; s++)
+      switch (in.get()) {
+        case PathIterator.SEG_MOVETO:
+          out.moveTo(in.getDouble(), in.getDouble());
+          break;
+        case PathIterator.SEG_LINETO:
+          out.lineTo(in.getDouble(), in.getDouble());
+          break;
+        case PathIterator.SEG_QUADTO:
+          out.quadTo(in.getDouble(), in.getDouble(), in.getDouble(),
+              in.getDouble());
+          break;
+        case PathIterator.SEG_CUBICTO:
+          out.curveTo(in.getDouble(), in.getDouble(), in.getDouble(),
+              in.getDouble(), in.getDouble(), in.getDouble());
+          break;
+        default:
+          out.closePath();
+      }
+    return out;
+  }
+
+  /** Returns whether VectorSprites are filled, or only outlined
+   *
+   * @return true if the condition is met; false otherwise
+   */
+  public static boolean isFilled() {
+    return filled;
+  }
+
+  /** Sets whether VectorSprites are filled, or only outlined
+   *
+   * @param newFilled new fill state
+   */
+  public static void setFilled(boolean newFilled) {
+    filled = newFilled;
+  }
+
   /** Returns the fill color of the VectorSprite to be drawn with
    *
    * @return fill color of the VectorSprite
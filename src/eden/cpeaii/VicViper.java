@@ -2,6 +2,7 @@ package eden.cpeaii;
 
 import java.awt.*;
 import java.awt.geom.*;
+import java.nio.ByteBuffer;
 import java.util.*;
 
 public class VicViper extends VectorSprite implements Ship {
@@ -51,10 +52,35 @@ public class VicViper extends VectorSprite implements Ship {
     // aggregations
     this.blasterFactory = new BlasterFactory(
         path2d.getBounds2D(), false, 1, 15, Effect.DAMAGE);
-    this.blasters = new HashSet<>();
+    this.blasters = new LinkedHashSet<>();
     this.energy = Byte.MAX_VALUE;
   }
 
+  /** Makes a VicViper, with its BlasterFactory and Blasters, from the state
+   * written by save(ByteBuffer)
+   *
+   * @param in buffer positioned at the state
+   */
+  public VicViper(ByteBuffer in) {
+    super(in);
+    // aggregations
+    this.blasterFactory = new BlasterFactory(in);
+    this.blasters = new LinkedHashSet<>();
+    for (int i = in.getInt(); i > 0; i--)
+      this.blasters.add(this.blasterFactory.make(in));
+    this.energy = in.get();
+  }
+
+  @Override
+  public void save(ByteBuffer out) {
+    super.save(out);
+    this.blasterFactory.save(out);
+    out.putInt(this.blasters.size());
+    for (Blaster b : this.blasters)
+      b.save(out);
+    out.put(this.energy);
+  }
+
   @Override
   public void update() {
     super.update();
@@ -79,9 +105,9 @@ public class VicViper extends VectorSprite implements Ship {
       Blaster blaster = this.blasterFactory.make(100, 0);
       blaster.setViewBounds(this.viewBounds);
       this.blasters.add(blaster);
-      for (int i = 0; i < GameComponent.sounds.length; i++)
-        if (GameComponent.audio.play(i))
-          break;
+      if (GameComponent.sounds != null)
+        GameComponent.audio.play(GameComponent.sounds[0], 1f,
+            GameComponent.pan(this), 0, GameComponent.pitch());
     }
     this.blasters.forEach(Blaster::update);
     this.blasterFactory.update();